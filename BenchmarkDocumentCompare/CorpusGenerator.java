@@ -0,0 +1,151 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+/** Synthetic corpus generator.
+ * Writes documents shaped like the ones in set/, a .T title, .A author and .W body, with words
+ * drawn from a Zipf distribution so that a few words, stopwords among them, are very common and
+ * most are rare. The same count and seed always give the same corpus.
+ */
+public class CorpusGenerator {
+	/** Common words placed at the top of the distribution, most are in stopwords.txt. */
+	static final String[] COMMON = {"the", "of", "and", "a", "to", "in", "is", "for", "that", "with", "on", "as", "by", "this", "are", "an"};
+	static final String[] SYLLABLES = {"com", "put", "er", "sys", "tem", "pro", "gram", "lan", "guage", "data", "ret", "rie", "val", "in", "for", "ma", "tion", "al", "go", "rithm", "struc", "ture", "se", "arch", "ma", "trix", "net", "work", "log", "ic"};
+	private final Random random;
+	private final String[] vocabulary;
+	private final double[] cumulative;
+	/** Constructor.
+	 *\param vocabularySize The number of distinct words.
+	 *\param seed The random seed.
+	 */
+	public CorpusGenerator(int vocabularySize, long seed) {
+		random = new Random(seed);
+		vocabulary = new String[vocabularySize];
+		for(int x=0; x < vocabularySize; x++)
+			vocabulary[x] = x < COMMON.length ? COMMON[x] : word(x);
+		/*Zipf with exponent 1, the rank r word has weight 1/r.*/
+		cumulative = new double[vocabularySize];
+		double total = 0;
+		for(int x=0; x < vocabularySize; x++) {
+			total += 1.0 / (x + 1);
+			cumulative[x] = total;
+		}
+		for(int x=0; x < vocabularySize; x++)
+			cumulative[x] /= total;
+	}
+	/** Made up word for a rank, distinct for every rank. */
+	private static String word(int rank) {
+		StringBuilder word = new StringBuilder();
+		for(int x = rank; x > 0; x /= SYLLABLES.length)
+			word.append(SYLLABLES[x % SYLLABLES.length]);
+		return word.toString();
+	}
+	/** Draws a word.
+	 *\return a word of the vocabulary.
+	 */
+	public String nextWord() {
+		int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+		if(rank < 0)
+			rank = -rank - 1;
+		return vocabulary[Math.min(rank, vocabulary.length - 1)];
+	}
+	/** Makes the text of a document.
+	 *\param bodyWords The number of words in the .W section.
+	 *\return the document.
+	 */
+	public String document(int bodyWords) {
+		StringBuilder text = new StringBuilder(".T\n");
+		appendWords(text, 4 + random.nextInt(8));
+		text.append(".A\n");
+		text.append(Character.toUpperCase(nextWord().charAt(0))).append(". ").append(nextWord().toUpperCase()).append('\n');
+		text.append(".W\n");
+		appendWords(text, bodyWords);
+		return text.toString();
+	}
+	/** Makes the text of a query, shaped like the ones in query/.
+	 *\param words The number of words.
+	 *\return the query.
+	 */
+	public String query(int words) {
+		StringBuilder text = new StringBuilder(".W\n");
+		appendWords(text, words);
+		return text.toString();
+	}
+	private void appendWords(StringBuilder text, int count) {
+		for(int x=0; x < count; x++) {
+			text.append(nextWord());
+			/*Some punctuation, and lines of about ten words.*/
+			if(random.nextInt(12) == 0)
+				text.append(random.nextBoolean() ? "," : ".");
+			text.append(x % 10 == 9 || x == count - 1 ? '\n' : ' ');
+		}
+	}
+	/** Writes a corpus, unless the directory already holds one of the same size.
+	 *\param directory Where to write the documents, created if needed.
+	 *\param documents The number of documents.
+	 *\return the directory.
+	 *\throws IOException if a document can't be written.
+	 */
+	public File writeCorpus(File directory, int documents) throws IOException {
+		File complete = new File(directory, ".complete-" + documents);
+		if(complete.exists())
+			return directory;
+		directory.mkdirs();
+		for(int x=1; x <= documents; x++)
+			write(new File(directory, x + ".txt"), document(50 + random.nextInt(150)));
+		complete.createNewFile();
+		return directory;
+	}
+	/** Writes text to a file.
+	 *\param file The file.
+	 *\param text The text.
+	 *\throws IOException if it can't be written.
+	 */
+	public static void write(File file, String text) throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try {
+			out.write(text);
+		}
+		finally {
+			out.close();
+		}
+	}
+	/** A generated corpus shared by the benchmarks, kept in the temporary directory between runs.
+	 *\param documents The number of documents.
+	 *\return the directory of the corpus.
+	 *\throws IOException if it can't be written.
+	 */
+	public static File corpus(int documents) throws IOException {
+		File directory = new File(System.getProperty("java.io.tmpdir"), "doccompare-bench-" + documents);
+		return new CorpusGenerator(50000, documents).writeCorpus(directory, documents);
+	}
+	/** Writes a corpus from the command line.
+	 *\param args directory and number of documents.
+	 */
+	public static void main(String args[]) throws IOException {
+		if(args.length != 2) {
+			System.out.println("Usage: java -cp Build/:Build/Benchmarks/ BenchmarkDocumentCompare.CorpusGenerator <directory> <number of documents>");
+			return;
+		}
+		new CorpusGenerator(50000, 1).writeCorpus(new File(args[0]), Integer.parseInt(args[1]));
+	}
+}
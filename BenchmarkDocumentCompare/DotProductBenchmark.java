@@ -0,0 +1,65 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import DocumentCompare.CorpusLoader;
+import DocumentCompare.Document;
+import DocumentCompare.DocumentVectors;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.ScalarDotProduct;
+import DocumentCompare.Term;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+/** Benchmarks of the dot product kernels, finding the documents most like a document of the corpus.
+ * The setup prints the kernel the vectors would use by default, vector is only the SIMD kernel
+ * when the JVM has the jdk.incubator.vector module, which make bench adds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class DotProductBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	public int documents;
+	DocumentVectors scalar, vector;
+	MultiSet<Term> query;
+	@Setup
+	public void setUp() throws IOException {
+		File[] paths = CorpusGenerator.corpus(documents).listFiles();
+		Arrays.sort(paths);
+		CorpusLoader loader = new CorpusLoader();
+		loader.load(paths, new Document(System.getProperty("stopwords", "stopwords.txt")).getMultiSet());
+		MemoryIndex index = new MemoryIndex(loader.getDocuments(), loader.getDictionary(), loader.getDocumentFrequencyList());
+		scalar = new DocumentVectors(index, new ScalarDotProduct());
+		vector = new DocumentVectors(index);
+		System.out.println("\nDefault kernel " + DocumentVectors.getFastestKernel().getClass().getSimpleName());
+		query = new Document(paths[0].getPath()).getMultiSet();
+	}
+	@Benchmark
+	public double[] scalar() {
+		return scalar.score(query);
+	}
+	@Benchmark
+	public double[] vector() {
+		return vector.score(query);
+	}
+}
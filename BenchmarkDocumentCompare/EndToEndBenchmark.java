@@ -0,0 +1,70 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import DocumentCompare.DocCompare;
+import DocumentCompare.Index;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+/** Benchmarks of a whole query from the command line, parsing the data directory against
+ * querying a built index. The results DocCompare prints are thrown away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class EndToEndBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	public int documents;
+	String directory, stopwords, queryFile, indexFile;
+	PrintStream console;
+	@Setup
+	public void setUp() throws IOException {
+		directory = CorpusGenerator.corpus(documents).getPath();
+		stopwords = System.getProperty("stopwords", "stopwords.txt");
+		File query = File.createTempFile("query", ".txt");
+		query.deleteOnExit();
+		CorpusGenerator.write(query, new CorpusGenerator(50000, 3).query(25));
+		queryFile = query.getPath();
+		File index = File.createTempFile("index", ".idx");
+		index.deleteOnExit();
+		indexFile = index.getPath();
+		new DocCompare(directory, stopwords, Runtime.getRuntime().availableProcessors()).writeIndex(indexFile);
+		console = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {}
+			public void write(byte[] b, int off, int len) {}
+		}));
+	}
+	@TearDown
+	public void tearDown() {
+		System.setOut(console);
+	}
+	@Benchmark
+	public DocCompare dataDirectory() throws IOException {
+		return new DocCompare(queryFile, 10, directory, stopwords);
+	}
+	@Benchmark
+	public DocCompare index() throws IOException {
+		return new DocCompare(queryFile, 10, new Index(indexFile));
+	}
+}
@@ -0,0 +1,103 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import DocumentCompare.DocCompare;
+import DocumentCompare.Document;
+import DocumentCompare.MaxScoreScorer;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MinHashIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TopKCollector;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+/** Recall and latency of MinHashIndex on a query directory.
+ * For several bands, rows and document frequency limits, prints the recall at k, the share of the exact engine's k most similar
+ * documents that the candidates find, counting only documents with a similarity above 0, with the average
+ * number of candidates, the time to work out the signatures and the time to score a query. The time to
+ * score a query is the average of a few passes over every query, after one to warm up, and the first line
+ * is the exact engine, MaxScoreScorer.
+ */
+public class MinHashEvaluation {
+	static final int PASSES = 20;
+	static final String[] SETTINGS = {"16,1", "32,1", "64,1", "128,1", "64,2", "256,2", "64,1,25", "64,1,400", "64,1,1000000"};
+	/** Prints the evaluation.
+	 *\param args The data directory, the query directory, k and the MinHashIndex settings to try,
+	 * set, query, 10 and SETTINGS if not given.
+	 *\throws IOException if a document or query doesn't open.
+	 */
+	public static void main(String args[]) throws IOException {
+		String data = args.length > 0 ? args[0] : "set", queries = args.length > 1 ? args[1] : "query";
+		int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		MemoryIndex index = new DocCompare(data, System.getProperty("stopwords", "stopwords.txt"), Runtime.getRuntime().availableProcessors()).getIndex();
+		File[] queryPaths = new File(queries).listFiles();
+		if(queryPaths == null)
+			throw new IOException(queries + " is not a directory.");
+		Arrays.sort(queryPaths);
+		ArrayList<MultiSet<Term>> bases = new ArrayList<MultiSet<Term>>();
+		ArrayList<HashSet<Integer>> exact = new ArrayList<HashSet<Integer>>();
+		for(File queryPath : queryPaths) {
+			MultiSet<Term> base = new Document(queryPath.getPath()).getMultiSet();
+			TopKCollector results = new TopKCollector(k);
+			new MaxScoreScorer(index).score(base, results);
+			HashSet<Integer> relevant = new HashSet<Integer>();
+			for(int x=0; x < results.size(); x++)
+				if(results.getScores()[x] > 0)
+					relevant.add(results.getDocuments()[x]);
+			bases.add(base);
+			exact.add(relevant);
+		}
+		System.out.println(index.getDocumentCount() + " documents, " + queryPaths.length + " queries, k " + k);
+		System.out.println("settings\trecall@" + k + "\tcandidates\tbuild ms\tms per query");
+		long started = 0;
+		for(int pass=0; pass <= PASSES; pass++) {
+			if(pass == 1)
+				started = System.nanoTime();
+			for(MultiSet<Term> base : bases)
+				new MaxScoreScorer(index).score(base, new TopKCollector(k));
+		}
+		System.out.printf("exact\t1.000\t%d\t0\t%.4f%n", index.getDocumentCount(), (System.nanoTime() - started) / 1e6 / PASSES / bases.size());
+		String[] settings = args.length > 3 ? Arrays.copyOfRange(args, 3, args.length) : SETTINGS;
+		for(String setting : settings) {
+			int[] configuration = MinHashIndex.parseSettings(setting);
+			started = System.nanoTime();
+			MinHashIndex signatures = new MinHashIndex(index, configuration[0], configuration[1], configuration[2]);
+			double build = (System.nanoTime() - started) / 1e6;
+			long found = 0, relevant = 0, candidates = 0;
+			for(int x=0; x < bases.size(); x++) {
+				TopKCollector results = new TopKCollector(k);
+				signatures.score(bases.get(x), results);
+				for(int doc : results.getDocuments())
+					if(exact.get(x).contains(doc))
+						found++;
+				relevant += exact.get(x).size();
+				candidates += signatures.candidates(bases.get(x)).length;
+			}
+			for(int pass=0; pass <= PASSES; pass++) {
+				if(pass == 1)
+					started = System.nanoTime();
+				for(MultiSet<Term> base : bases)
+					signatures.score(base, new TopKCollector(k));
+			}
+			System.out.printf("%d,%d,%d\t%.3f\t%d\t%.0f\t%.4f%n", configuration[0], configuration[1], configuration[2], relevant > 0 ? (double) found / relevant : 1,
+				candidates / bases.size(), build, (System.nanoTime() - started) / 1e6 / PASSES / bases.size());
+		}
+	}
+}
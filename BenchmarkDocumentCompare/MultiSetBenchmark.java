@@ -0,0 +1,86 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import DocumentCompare.IntMultiSet;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.Tokenizer;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+/** Benchmarks of counting terms, the generic MultiSet against IntMultiSet. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiSetBenchmark {
+	Term[] terms;
+	int[] numbers;
+	MultiSet<Term> filledSet;
+	IntMultiSet filledIntSet;
+	@Setup
+	public void setUp() throws IOException {
+		/*A body of a few thousand words, as Terms and as dictionary numbers.*/
+		CorpusGenerator generator = new CorpusGenerator(50000, 2);
+		Tokenizer tokens = new Tokenizer(new StringReader(generator.query(5000)), new TermDictionary());
+		ArrayList<Term> termList = new ArrayList<Term>();
+		ArrayList<Integer> numberList = new ArrayList<Integer>();
+		for(int number = tokens.next(); number != -1; number = tokens.next()) {
+			termList.add(tokens.getTerm());
+			numberList.add(number);
+		}
+		terms = termList.toArray(new Term[termList.size()]);
+		numbers = new int[numberList.size()];
+		for(int x=0; x < numbers.length; x++)
+			numbers[x] = numberList.get(x);
+		filledSet = add();
+		filledIntSet = addInt();
+	}
+	@Benchmark
+	public MultiSet<Term> add() {
+		MultiSet<Term> set = new MultiSet<Term>();
+		for(Term term : terms)
+			set.add(term);
+		return set;
+	}
+	@Benchmark
+	public int count() {
+		int total = 0;
+		for(Term term : terms)
+			total += filledSet.count(term);
+		return total;
+	}
+	@Benchmark
+	public IntMultiSet addInt() {
+		IntMultiSet set = new IntMultiSet();
+		for(int number : numbers)
+			set.add(number);
+		return set;
+	}
+	@Benchmark
+	public int countInt() {
+		int total = 0;
+		for(int number : numbers)
+			total += filledIntSet.count(number);
+		return total;
+	}
+}
@@ -0,0 +1,99 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import DocumentCompare.CorpusLoader;
+import DocumentCompare.Document;
+import DocumentCompare.Index;
+import DocumentCompare.IndexWriter;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.PostingsIterator;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import DocumentCompare.TermDictionary;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+/** Benchmarks of reading plain and compressed index files.
+ * The sizes of both files and the number of postings are printed by the setup, decoding walks every
+ * postings list of the index so postings per second is the posting count over the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PostingsBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	public int documents;
+	File plainFile, compressedFile;
+	Index plain, compressed;
+	MultiSet<Term> query;
+	@Setup
+	public void setUp() throws IOException {
+		File[] paths = CorpusGenerator.corpus(documents).listFiles();
+		Arrays.sort(paths);
+		CorpusLoader loader = new CorpusLoader();
+		loader.load(paths, new Document(System.getProperty("stopwords", "stopwords.txt")).getMultiSet());
+		MemoryIndex index = new MemoryIndex(loader.getDocuments(), loader.getDictionary(), loader.getDocumentFrequencyList());
+		plainFile = File.createTempFile("plain", ".idx");
+		compressedFile = File.createTempFile("compressed", ".idx");
+		IndexWriter.write(index, plainFile.getPath(), false);
+		IndexWriter.write(index, compressedFile.getPath(), true);
+		plain = new Index(plainFile.getPath());
+		compressed = new Index(compressedFile.getPath());
+		long postings = 0;
+		for(int term=0; term < index.getTermCount(); term++)
+			postings += index.getDocumentFrequency(term);
+		System.out.println("\n" + postings + " postings, plain index " + plainFile.length() + " bytes, compressed index " + compressedFile.length() + " bytes");
+		query = new Document("query", new StringReader(new CorpusGenerator(50000, 3).query(25)), null, new TermDictionary()).getMultiSet();
+	}
+	@TearDown
+	public void tearDown() {
+		plainFile.delete();
+		compressedFile.delete();
+	}
+	private static long decode(Index index) {
+		long sum = 0;
+		for(int term=0; term < index.getTermCount(); term++) {
+			PostingsIterator postings = index.getPostings(term);
+			while(postings.next())
+				sum += postings.getDocument() + postings.getCount();
+		}
+		return sum;
+	}
+	@Benchmark
+	public long decodePlain() {
+		return decode(plain);
+	}
+	@Benchmark
+	public long decodeCompressed() {
+		return decode(compressed);
+	}
+	@Benchmark
+	public double[] scorePlain() {
+		return new TermAtATimeScorer(plain).score(query);
+	}
+	@Benchmark
+	public double[] scoreCompressed() {
+		return new TermAtATimeScorer(compressed).score(query);
+	}
+}
@@ -0,0 +1,108 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import DocumentCompare.CorpusLoader;
+import DocumentCompare.Document;
+import DocumentCompare.DocumentVectors;
+import DocumentCompare.MaxScoreScorer;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.TopKCollector;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+/** Benchmarks of scoring a query against a loaded corpus and selecting the results.
+ * setCosineSimilarity is the original engine, every document is compared to the query.
+ * documentVectors compares every document too, but with weights worked out before the query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ScoreBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	public int documents;
+	Document[] corpus;
+	MultiSet<Term> documentFrequencyList, query;
+	MemoryIndex index;
+	DocumentVectors vectors;
+	double[] scores;
+	@Setup
+	public void setUp() throws IOException {
+		File[] paths = CorpusGenerator.corpus(documents).listFiles();
+		Arrays.sort(paths);
+		CorpusLoader loader = new CorpusLoader();
+		loader.load(paths, new Document(System.getProperty("stopwords", "stopwords.txt")).getMultiSet());
+		corpus = loader.getDocuments();
+		index = new MemoryIndex(corpus, loader.getDictionary(), loader.getDocumentFrequencyList());
+		documentFrequencyList = new MultiSet<Term>();
+		for(Document doc : corpus)
+			documentFrequencyList.add(doc.getMultiSet().getSet());
+		query = new Document("query", new StringReader(new CorpusGenerator(50000, 3).query(25)), null, new TermDictionary()).getMultiSet();
+		scores = new TermAtATimeScorer(index).score(query);
+		vectors = new DocumentVectors(index);
+	}
+	@Benchmark
+	public void setCosineSimilarity(Blackhole hole) {
+		for(Document doc : corpus) {
+			doc.setCosineSimilarity(query, documentFrequencyList);
+			hole.consume(doc.getCosineSimilarity());
+		}
+	}
+	@Benchmark
+	public double[] documentVectors() {
+		return vectors.score(query);
+	}
+	@Benchmark
+	public double[] termAtATime() {
+		return new TermAtATimeScorer(index).score(query);
+	}
+	@Benchmark
+	public int[] termAtATimeTopK() {
+		TopKCollector results = new TopKCollector(10);
+		new TermAtATimeScorer(index).score(query, results);
+		return results.getDocuments();
+	}
+	@Benchmark
+	public int[] maxScoreTopK() {
+		TopKCollector results = new TopKCollector(10);
+		new MaxScoreScorer(index).score(query, results);
+		return results.getDocuments();
+	}
+	@Benchmark
+	public int[] topK() {
+		TopKCollector results = new TopKCollector(10);
+		for(int doc=0; doc < scores.length; doc++)
+			results.collect(doc, scores[doc]);
+		return results.getDocuments();
+	}
+	@Benchmark
+	public double[] fullSort() {
+		double[] sorted = scores.clone();
+		Arrays.sort(sorted);
+		return sorted;
+	}
+}
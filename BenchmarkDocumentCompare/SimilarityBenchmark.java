@@ -0,0 +1,94 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import DocumentCompare.BM25Similarity;
+import DocumentCompare.CorpusLoader;
+import DocumentCompare.CosineSimilarity;
+import DocumentCompare.Document;
+import DocumentCompare.ImpactIndex;
+import DocumentCompare.LogCosineSimilarity;
+import DocumentCompare.MaxScoreScorer;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.TopKCollector;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+/** Benchmarks of the scoring models, a query of ScoreBenchmark scored for its 10 most similar documents.
+ * termAtATime and maxScore are the TF-IDF cosine worked out per posting, the others score an ImpactIndex
+ * of each model, one multiply-add per posting. See SimilarityEvaluation for how their results differ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SimilarityBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	public int documents;
+	MemoryIndex index;
+	ImpactIndex cosine, logCosine, bm25;
+	MultiSet<Term> query;
+	@Setup
+	public void setUp() throws IOException {
+		File[] paths = CorpusGenerator.corpus(documents).listFiles();
+		Arrays.sort(paths);
+		CorpusLoader loader = new CorpusLoader();
+		loader.load(paths, new Document(System.getProperty("stopwords", "stopwords.txt")).getMultiSet());
+		index = new MemoryIndex(loader.getDocuments(), loader.getDictionary(), loader.getDocumentFrequencyList());
+		cosine = new ImpactIndex(index, new CosineSimilarity());
+		logCosine = new ImpactIndex(index, new LogCosineSimilarity());
+		bm25 = new ImpactIndex(index, new BM25Similarity());
+		query = new Document("query", new StringReader(new CorpusGenerator(50000, 3).query(25)), null, new TermDictionary()).getMultiSet();
+	}
+	private int[] topK(ImpactIndex impacts) {
+		TopKCollector results = new TopKCollector(10);
+		impacts.score(query, results);
+		return results.getDocuments();
+	}
+	@Benchmark
+	public int[] termAtATime() {
+		TopKCollector results = new TopKCollector(10);
+		new TermAtATimeScorer(index).score(query, results);
+		return results.getDocuments();
+	}
+	@Benchmark
+	public int[] maxScore() {
+		TopKCollector results = new TopKCollector(10);
+		new MaxScoreScorer(index).score(query, results);
+		return results.getDocuments();
+	}
+	@Benchmark
+	public int[] impactCosine() {
+		return topK(cosine);
+	}
+	@Benchmark
+	public int[] impactLogCosine() {
+		return topK(logCosine);
+	}
+	@Benchmark
+	public int[] impactBM25() {
+		return topK(bm25);
+	}
+}
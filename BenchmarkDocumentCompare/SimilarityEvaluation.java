@@ -0,0 +1,103 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import DocumentCompare.BM25Similarity;
+import DocumentCompare.CosineSimilarity;
+import DocumentCompare.DocCompare;
+import DocumentCompare.Document;
+import DocumentCompare.ImpactIndex;
+import DocumentCompare.LogCosineSimilarity;
+import DocumentCompare.MaxScoreScorer;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Similarity;
+import DocumentCompare.Term;
+import DocumentCompare.TopKCollector;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+/** Evaluation of the scoring models on a query directory.
+ * There are no relevance judgements for query/, so each model is compared with the TF-IDF cosine the
+ * program ranks with: how many of its k most similar documents the cosine also ranks in its k, averaged
+ * over the queries, and how often both rank the same document first. The time to score a query is the
+ * average of a few passes over every query, after one to warm up.
+ */
+public class SimilarityEvaluation {
+	static final int PASSES = 20;
+	/** Prints the evaluation.
+	 *\param args The data directory, the query directory and k, set, query and 10 if not given.
+	 *\throws IOException if a document or query doesn't open.
+	 */
+	public static void main(String args[]) throws IOException {
+		String data = args.length > 0 ? args[0] : "set", queries = args.length > 1 ? args[1] : "query";
+		int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		MemoryIndex index = new DocCompare(data, System.getProperty("stopwords", "stopwords.txt"), Runtime.getRuntime().availableProcessors()).getIndex();
+		File[] queryPaths = new File(queries).listFiles();
+		if(queryPaths == null)
+			throw new IOException(queries + " is not a directory.");
+		Arrays.sort(queryPaths);
+		ArrayList<MultiSet<Term>> bases = new ArrayList<MultiSet<Term>>();
+		int[][] exact = new int[queryPaths.length][];
+		for(int x=0; x < queryPaths.length; x++) {
+			bases.add(new Document(queryPaths[x].getPath()).getMultiSet());
+			TopKCollector results = new TopKCollector(k);
+			new MaxScoreScorer(index).score(bases.get(x), results);
+			exact[x] = results.getDocuments();
+		}
+		System.out.println(index.getDocumentCount() + " documents, " + queryPaths.length + " queries, k " + k);
+		System.out.println("model\toverlap@" + k + "\tsame first\tms per query");
+		long started = 0;
+		for(int pass=0; pass <= PASSES; pass++) {
+			if(pass == 1)
+				started = System.nanoTime();
+			for(MultiSet<Term> base : bases)
+				new MaxScoreScorer(index).score(base, new TopKCollector(k));
+		}
+		System.out.printf("maxScore\t%.3f\t%d/%d\t%.4f%n", 1.0, queryPaths.length, queryPaths.length, (System.nanoTime() - started) / 1e6 / PASSES / bases.size());
+		Similarity[] models = {new CosineSimilarity(), new LogCosineSimilarity(), new BM25Similarity()};
+		String[] names = {"cosine", "logcosine", "bm25"};
+		for(int model=0; model < models.length; model++) {
+			ImpactIndex impacts = new ImpactIndex(index, models[model]);
+			double overlap = 0;
+			int sameFirst = 0;
+			for(int x=0; x < bases.size(); x++) {
+				TopKCollector results = new TopKCollector(k);
+				impacts.score(bases.get(x), results);
+				int[] ranked = results.getDocuments();
+				HashSet<Integer> expected = new HashSet<Integer>();
+				for(int doc : exact[x])
+					expected.add(doc);
+				int shared = 0;
+				for(int doc : ranked)
+					if(expected.contains(doc))
+						shared++;
+				overlap += exact[x].length > 0 ? (double) shared / exact[x].length : 1;
+				if(ranked.length > 0 && exact[x].length > 0 && ranked[0] == exact[x][0])
+					sameFirst++;
+			}
+			for(int pass=0; pass <= PASSES; pass++) {
+				if(pass == 1)
+					started = System.nanoTime();
+				for(MultiSet<Term> base : bases)
+					impacts.score(base, new TopKCollector(k));
+			}
+			System.out.printf("%s\t%.3f\t%d/%d\t%.4f%n", names[model], overlap / bases.size(), sameFirst, bases.size(), (System.nanoTime() - started) / 1e6 / PASSES / bases.size());
+		}
+	}
+}
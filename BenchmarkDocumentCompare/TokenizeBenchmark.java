@@ -0,0 +1,82 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package BenchmarkDocumentCompare;
+import DocumentCompare.Document;
+import DocumentCompare.DocumentReader;
+import DocumentCompare.MultiSet;
+import DocumentCompare.StopwordFilter;
+import DocumentCompare.Term;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.Tokenizer;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+/** Benchmarks of turning text in to terms. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizeBenchmark {
+	String text;
+	String[] words;
+	File file;
+	MultiSet<Term> stopwords;
+	StopwordFilter filter;
+	DocumentReader reader;
+	@Setup
+	public void setUp() throws IOException {
+		text = new CorpusGenerator(50000, 1).document(200);
+		words = text.split("[ \n]");
+		file = File.createTempFile("tokenize", ".txt");
+		file.deleteOnExit();
+		CorpusGenerator.write(file, text);
+		stopwords = new Document(System.getProperty("stopwords", "stopwords.txt")).getMultiSet();
+		filter = new StopwordFilter(stopwords);
+		reader = new DocumentReader();
+	}
+	@Benchmark
+	public void termConstruction(Blackhole hole) {
+		for(String word : words)
+			hole.consume(new Term(word));
+	}
+	@Benchmark
+	public int tokenizer() throws IOException {
+		Tokenizer tokens = new Tokenizer(new StringReader(text), new TermDictionary());
+		int count = 0;
+		while(tokens.next() != -1)
+			count++;
+		return count;
+	}
+	@Benchmark
+	public Document documentParse() throws IOException {
+		return new Document(file.getPath(), stopwords);
+	}
+	@Benchmark
+	public Document documentParseFiltered() throws IOException {
+		return new Document(file.getPath(), null, new TermDictionary(filter));
+	}
+	@Benchmark
+	public Document documentRead() throws IOException {
+		TermDictionary dictionary = new TermDictionary(filter);
+		return Document.read(file.getPath(), reader.read(file.getPath(), dictionary, false), dictionary);
+	}
+}
@@ -0,0 +1,217 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+/** All pairs similarity.
+ * Finds the most similar documents to every document of a corpus in one pass, instead of running a
+ * query for each. The similarity of two documents is the cosine of their DocumentVectors, the TF-IDF
+ * vectors the documents have in the index, so it is the same both ways round.
+ *
+ * A row is not always the -q ranking of the same document. A query file keeps its stopwords in its
+ * length, so when the document has stopwords its weights, and so its similarities, differ. Otherwise the
+ * row is the ranking without the document itself, to within 1e-6: the weights here are floats, and the
+ * terms walked through the postings and those added from the vectors, which the threshold decides, are
+ * summed in another order. Neighbours closer than that can swap places, or be kept or dropped at the threshold.
+ *
+ * Each document is scored against the documents it shares a term with, found through postings of
+ * normalized weights, the index turned back on its side. Terms are taken by their bound, the most
+ * they can add to a similarity. Once the bounds of the terms left add up to less than the threshold,
+ * a document that hasn't shared a term yet can't reach it, so no more postings are walked and the
+ * terms left are only added to the documents already found, from their own vectors.
+ *
+ * The documents are shared out between threads, each thread scores one document at a time.
+ */
+public class AllPairs {
+	/** Bounds are raised by this much, they are worked out in double but the weights are floats. */
+	private static final double SLACK = 1 + 1e-6;
+	/** Bits of a sort key holding the entry, so a document can have at most 2^ENTRY_BITS distinct terms. */
+	private static final int ENTRY_BITS = 24, ENTRY_MASK = (1 << ENTRY_BITS) - 1;
+	private final InvertedIndex index;
+	private final DocumentVectors vectors;
+	private final DotProduct kernel = DocumentVectors.getFastestKernel();
+	private final int threads;
+	/** Postings of term by document, term runs from termStarts[term] to termStarts[term + 1]. */
+	private final int[] termStarts, postingDocuments;
+	/** The weights of the postings over the norms of their documents. */
+	private final float[] postingWeights;
+	/** Constructor.
+	 *\param newIndex The index of the documents.
+	 *\param threadCount The number of documents to score at once.
+	 *\throws IllegalArgumentException if a document has more than 2^24 distinct terms.
+	 */
+	public AllPairs(InvertedIndex newIndex, int threadCount) {
+		if(threadCount <= 0)
+			throw new IllegalArgumentException("Thread count must be greater than 0.");
+		index = newIndex;
+		threads = threadCount;
+		vectors = new DocumentVectors(index);
+		int[] terms = vectors.getTerms();
+		float[] weights = vectors.getWeights();
+		termStarts = new int[index.getTermCount() + 1];
+		for(int term : terms)
+			termStarts[term + 1]++;
+		for(int term=0; term < index.getTermCount(); term++)
+			termStarts[term + 1] += termStarts[term];
+		postingDocuments = new int[terms.length];
+		postingWeights = new float[terms.length];
+		int[] sizes = new int[index.getTermCount()];
+		for(int doc=0; doc < vectors.getDocumentCount(); doc++) {
+			if(vectors.getEnd(doc) - vectors.getStart(doc) > ENTRY_MASK + 1)
+				throw new IllegalArgumentException(index.getName(doc) + " has more than " + (ENTRY_MASK + 1) + " distinct terms.");
+			for(int x=vectors.getStart(doc); x < vectors.getEnd(doc); x++) {
+				int posting = termStarts[terms[x]] + sizes[terms[x]]++;
+				postingDocuments[posting] = doc;
+				postingWeights[posting] = weights[x] / vectors.getNorm(doc);
+			}
+		}
+	}
+	/** Finds the most similar documents to every document.
+	 *\param resultCount The most neighbours to keep for each document.
+	 *\param threshold The least similarity of a neighbour, documents sharing no term are never neighbours.
+	 *\return the neighbours of each document, indexed by document number.
+	 *\throws IOException if interrupted.
+	 */
+	public TopKCollector[] run(final int resultCount, final double threshold) throws IOException {
+		if(resultCount <= 0)
+			throw new IllegalArgumentException("k must be greater than 0.");
+		final TopKCollector[] neighbours = new TopKCollector[vectors.getDocumentCount()];
+		final AtomicInteger next = new AtomicInteger();
+		Callable<Void> worker = new Callable<Void>() {
+			public Void call() {
+				Scorer scorer = new Scorer();
+				for(int doc = next.getAndIncrement(); doc < neighbours.length; doc = next.getAndIncrement())
+					neighbours[doc] = scorer.score(doc, resultCount, threshold);
+				return null;
+			}
+		};
+		int workers = Math.max(1, Math.min(threads, neighbours.length));
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			ArrayList<Future<Void>> done = new ArrayList<Future<Void>>();
+			for(int x=0; x < workers; x++)
+				done.add(pool.submit(worker));
+			for(Future<Void> finished : done)
+				finished.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while comparing documents.");
+		}
+		catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		return neighbours;
+	}
+	/** Writes the neighbours of every document, one "document : neighbour : similarity" line each.
+	 *\param neighbours The neighbours found by run.
+	 *\param out Where the lines are written.
+	 */
+	public void write(TopKCollector[] neighbours, PrintStream out) {
+		for(int doc=0; doc < neighbours.length; doc++) {
+			int[] order = neighbours[doc].getDocuments();
+			double[] similarity = neighbours[doc].getScores();
+			StringBuilder lines = new StringBuilder();
+			for(int x=0; x < order.length; x++)
+				lines.append(index.getName(doc)).append(" : ").append(index.getName(order[x])).append(" : ").append(similarity[x]).append('\n');
+			out.print(lines);
+		}
+		out.flush();
+	}
+	/** The accumulators of one thread, cleared after every document. */
+	private class Scorer {
+		private final double[] area = new double[vectors.getDocumentCount()];
+		private final boolean[] found = new boolean[vectors.getDocumentCount()];
+		private int[] candidates = new int[64];
+		private final float[] dense = new float[index.getTermCount()];
+		/** Scores one document against the documents it shares terms with.
+		 *\return its neighbours.
+		 */
+		TopKCollector score(int doc, int resultCount, double threshold) {
+			TopKCollector results = new TopKCollector(resultCount);
+			int start = vectors.getStart(doc), end = vectors.getEnd(doc);
+			float norm = vectors.getNorm(doc);
+			if(norm == 0)
+				return results;
+			int[] terms = vectors.getTerms();
+			float[] weights = vectors.getWeights();
+			/*Entries by descending bound. The bound is in the high bits of the key and the entry in the low
+			 * bits, which only blurs the order of nearly equal bounds, not the sums.
+			 */
+			int length = end - start;
+			long[] order = new long[length];
+			double remaining = 0;
+			for(int x=0; x < length; x++) {
+				double bound = weights[start + x] / norm * index.getMaxWeight(terms[start + x]) * SLACK;
+				remaining += bound;
+				order[x] = (Double.doubleToLongBits(bound) & ~(long) ENTRY_MASK) | x;
+			}
+			Arrays.sort(order);
+			int count = 0, x = length - 1;
+			for(; x >= 0 && remaining >= threshold; x--) {
+				int entry = start + (int) (order[x] & ENTRY_MASK);
+				int term = terms[entry];
+				float weight = weights[entry] / norm;
+				remaining -= weights[entry] / norm * index.getMaxWeight(term) * SLACK;
+				for(int posting=termStarts[term]; posting < termStarts[term + 1]; posting++) {
+					int other = postingDocuments[posting];
+					if(!found[other]) {
+						found[other] = true;
+						if(count == candidates.length)
+							candidates = Arrays.copyOf(candidates, count * 2);
+						candidates[count++] = other;
+					}
+					area[other] += weight * postingWeights[posting];
+				}
+			}
+			/*The terms left are added to the documents already found from their vectors.*/
+			if(x >= 0) {
+				for(int y=x; y >= 0; y--) {
+					int entry = start + (int) (order[y] & ENTRY_MASK);
+					dense[terms[entry]] = weights[entry] / norm;
+				}
+				for(int c=0; c < count; c++) {
+					int other = candidates[c];
+					area[other] += kernel.dot(dense, terms, weights, vectors.getStart(other), vectors.getEnd(other)) / vectors.getNorm(other);
+				}
+				for(int y=x; y >= 0; y--)
+					dense[terms[start + (int) (order[y] & ENTRY_MASK)]] = 0;
+			}
+			for(int c=0; c < count; c++) {
+				int other = candidates[c];
+				if(other != doc && area[other] > 0 && area[other] >= threshold)
+					results.collect(other, area[other]);
+				area[other] = 0;
+				found[other] = false;
+			}
+			return results;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Okapi BM25.
+ * A term weighs idf * n(d,t) * (k1 + 1) / (n(d,t) + k1 * (1 - b + b * n(d) / average n(d))) in a document,
+ * with idf = log(1 + (N - n(t) + 0.5) / (n(t) + 0.5)) for a corpus of N documents, and the number of times
+ * it is in the query in the query. The term frequency saturates, k1 says how quickly, and b says how much
+ * long documents are discounted. Similarities aren't normalized, they grow with the length of the query.
+ */
+public class BM25Similarity implements Similarity {
+	/** The usual k1. */
+	public static final double K1 = 1.2;
+	/** The usual b. */
+	public static final double B = 0.75;
+	private final double k1, b;
+	/** Constructor, with the usual parameters.
+	 */
+	public BM25Similarity() {
+		this(K1, B);
+	}
+	/** Constructor.
+	 *\param newK1 The term frequency saturation, 0 or more.
+	 *\param newB The length normalization, from 0 to 1.
+	 */
+	public BM25Similarity(double newK1, double newB) {
+		if(!(newK1 >= 0) || !(newB >= 0 && newB <= 1))
+			throw new IllegalArgumentException("k1 must be 0 or more and b from 0 to 1.");
+		k1 = newK1;
+		b = newB;
+	}
+	public double documentWeight(int count, int length, int documentFrequency, int documentCount, double averageLength) {
+		if(count == 0)
+			return 0;
+		double inverseDocumentFrequency = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+		double norm = averageLength > 0 ? 1 - b + b * length / averageLength : 1;
+		return inverseDocumentFrequency * count * (k1 + 1) / (count + k1 * norm);
+	}
+	public double queryWeight(int count, int length, int documentFrequency, int documentCount) {
+		return count;
+	}
+	public boolean isNormalized() {
+		return false;
+	}
+}
@@ -0,0 +1,174 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+/** Compressed postings lists.
+ * A postings list is cut in to blocks of BLOCK_SIZE postings. Within a block each posting is the gap
+ * from the previous document number followed by n(d,t), both as variable byte integers: seven bits a
+ * byte, low bits first, the top bit set on every byte but the last. Gaps and counts are mostly small,
+ * so most postings take two bytes instead of eight.
+ *
+ * A list of more than one block starts with a skip table, the last document number of every block and
+ * where the block starts, relative to the end of the table. The first gap of a block is from the last
+ * document of the block before, so any block can be decoded on its own and advance only decodes the
+ * blocks that may hold its target.
+ */
+public class CompressedPostings {
+	/** Postings per block. */
+	static final int BLOCK_SIZE = 128;
+	/** Bytes per skip table entry: last document number and block offset. */
+	static final int SKIP_ENTRY_SIZE = 2 * 4;
+	private byte[] bytes = new byte[1024];
+	private int length;
+	/** Encodes a postings list, the bytes are valid until the next call.
+	 *\param postings The postings, ascending document numbers.
+	 *\param documentFrequency The number of postings.
+	 *\return the number of bytes, see getBytes.
+	 */
+	int encode(PostingsIterator postings, int documentFrequency) {
+		int blocks = blockCount(documentFrequency);
+		int table = blocks > 1 ? blocks * SKIP_ENTRY_SIZE : 0;
+		length = table;
+		ensure(0);
+		int previous = -1;
+		for(int posting=0; postings.next(); posting++) {
+			if(posting % BLOCK_SIZE == 0 && table > 0)
+				putInt((posting / BLOCK_SIZE) * SKIP_ENTRY_SIZE + 4, length - table);
+			int doc = postings.getDocument();
+			ensure(10);
+			putVariableByte(doc - previous);
+			putVariableByte(postings.getCount());
+			previous = doc;
+			if(table > 0 && (posting % BLOCK_SIZE == BLOCK_SIZE - 1 || posting == documentFrequency - 1))
+				putInt((posting / BLOCK_SIZE) * SKIP_ENTRY_SIZE, doc);
+		}
+		return length;
+	}
+	/** Encoded bytes accessor.
+	 *\return the bytes of the last list encoded, the first encode returned of them.
+	 */
+	byte[] getBytes() {
+		return bytes;
+	}
+	private void ensure(int extra) {
+		if(length + extra > bytes.length)
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+	}
+	private void putInt(int position, int value) {
+		bytes[position] = (byte) (value >>> 24);
+		bytes[position + 1] = (byte) (value >>> 16);
+		bytes[position + 2] = (byte) (value >>> 8);
+		bytes[position + 3] = (byte) value;
+	}
+	private void putVariableByte(int value) {
+		while((value & ~0x7f) != 0) {
+			bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		bytes[length++] = (byte) value;
+	}
+	private static int blockCount(int documentFrequency) {
+		return (documentFrequency + BLOCK_SIZE - 1) / BLOCK_SIZE;
+	}
+	/** Iterates a compressed postings list, decoding one block at a time in to reused arrays.
+	 *\param buffer The index the list is in.
+	 *\param start Where the list starts in the buffer.
+	 *\param documentFrequency The number of postings in the list.
+	 *\return the iterator.
+	 */
+	static PostingsIterator iterator(ByteBuffer buffer, int start, int documentFrequency) {
+		return new BlockIterator(buffer, start, documentFrequency);
+	}
+	private static class BlockIterator implements PostingsIterator {
+		private final ByteBuffer buffer;
+		private final int table, data, documentFrequency, blocks;
+		private final int[] documents = new int[BLOCK_SIZE], counts = new int[BLOCK_SIZE];
+		/** The decoded block, its size and the current posting in it. */
+		private int block = -1, size = 0, x = -1;
+		BlockIterator(ByteBuffer newBuffer, int start, int newDocumentFrequency) {
+			buffer = newBuffer;
+			documentFrequency = newDocumentFrequency;
+			blocks = blockCount(documentFrequency);
+			table = start;
+			data = start + (blocks > 1 ? blocks * SKIP_ENTRY_SIZE : 0);
+		}
+		public boolean next() {
+			if(++x < size)
+				return true;
+			if(block + 1 >= blocks)
+				return false;
+			decode(block + 1);
+			x = 0;
+			return true;
+		}
+		public boolean advance(int target) {
+			if(x >= 0 && x < size && documents[x] >= target)
+				return true;
+			/*Blocks that end before the target are skipped without decoding them.*/
+			int skip = block < 0 ? 0 : block;
+			while(skip < blocks - 1 && buffer.getInt(table + skip * SKIP_ENTRY_SIZE) < target)
+				skip++;
+			if(skip != block) {
+				decode(skip);
+				x = 0;
+			}
+			else if(x < 0)
+				x = 0;
+			while(x < size && documents[x] < target)
+				x++;
+			if(x < size)
+				return true;
+			/*Only the last block can end before the target.*/
+			x = size;
+			return false;
+		}
+		public int getDocument() {
+			return documents[x];
+		}
+		public int getCount() {
+			return counts[x];
+		}
+		private void decode(int newBlock) {
+			block = newBlock;
+			size = Math.min(BLOCK_SIZE, documentFrequency - block * BLOCK_SIZE);
+			int position = data, previous = -1;
+			if(block > 0) {
+				position += buffer.getInt(table + block * SKIP_ENTRY_SIZE + 4);
+				previous = buffer.getInt(table + (block - 1) * SKIP_ENTRY_SIZE);
+			}
+			for(int posting=0; posting < size; posting++) {
+				int value = 0, shift = 0, b;
+				do {
+					b = buffer.get(position++);
+					value |= (b & 0x7f) << shift;
+					shift += 7;
+				} while(b < 0);
+				previous += value;
+				documents[posting] = previous;
+				value = 0;
+				shift = 0;
+				do {
+					b = buffer.get(position++);
+					value |= (b & 0x7f) << shift;
+					shift += 7;
+				} while(b < 0);
+				counts[posting] = value;
+			}
+		}
+	}
+}
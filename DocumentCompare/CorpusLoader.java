@@ -0,0 +1,217 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+/** Parallel document loader.
+ * Parses the documents of a corpus on several threads. Every thread takes the next unparsed file,
+ * puts the Document in the file's slot of the result and counts the document frequencies of its own
+ * documents, the partial counts are added together once every file is parsed. The result is the
+ * same as parsing the files one after another, whatever the number of threads.
+ * The documents share one TermDictionary, so each distinct term is made once for the whole corpus.
+ * The fields of the documents can be loaded instead, a document and document frequencies for each.
+ * Documents are read whole and tokenized where they lie by a DocumentReader per thread, from their
+ * files or from a PackedCorpus.
+ */
+public class CorpusLoader {
+	private int threads;
+	private Charset charset;
+	/*Indexed by field, only the first is used unless the fields are loaded.*/
+	private Document[][] documents;
+	private IntMultiSet[] documentFrequencyLists;
+	private TermDictionary dictionary;
+	/** Constructor.
+	 *\param threadCount The number of threads to parse with, 1 parses on the calling thread.
+	 */
+	public CorpusLoader(int threadCount) {
+		this(threadCount, Charset.defaultCharset());
+	}
+	/** Constructor, with the charset of the documents.
+	 *\param threadCount The number of threads to parse with, 1 parses on the calling thread.
+	 *\param newCharset The charset the documents are in.
+	 */
+	public CorpusLoader(int threadCount, Charset newCharset) {
+		if(threadCount <= 0)
+			throw new IllegalArgumentException("Thread count must be greater than 0.");
+		threads = threadCount;
+		charset = newCharset;
+	}
+	/** Constructor, one thread per processor.
+	 */
+	public CorpusLoader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	/** Parses the documents.
+	 *\param documentPaths The files to parse, their position in the array is their document number.
+	 *\param stopwords The set of stopwords to ignore.
+	 *\throws IOException if any document doesn't open.
+	 */
+	public void load(File[] documentPaths, MultiSet<Term> stopwords) throws IOException {
+		load(documentPaths, stopwords == null ? null : new StopwordFilter(stopwords));
+	}
+	/** Parses the documents, skipping stopwords as they are tokenized.
+	 *\param documentPaths The files to parse, their position in the array is their document number.
+	 *\param stopwords The stopwords to ignore, or null for none.
+	 *\throws IOException if any document doesn't open.
+	 */
+	public void load(File[] documentPaths, StopwordFilter stopwords) throws IOException {
+		load(documentPaths, null, stopwords, false);
+	}
+	/** Parses the documents of a packed corpus.
+	 *\param corpus The documents, their document numbers are the same as in the corpus.
+	 *\param stopwords The stopwords to ignore, or null for none.
+	 *\throws IOException if any document can't be decoded.
+	 */
+	public void load(PackedCorpus corpus, StopwordFilter stopwords) throws IOException {
+		load(null, corpus, stopwords, false);
+	}
+	/** Parses the title, author and body of the documents, see FieldIndex.
+	 *\param documentPaths The files to parse, their position in the array is their document number.
+	 *\param stopwords The stopwords to ignore, or null for none.
+	 *\throws IOException if any document doesn't open.
+	 */
+	public void loadFields(File[] documentPaths, StopwordFilter stopwords) throws IOException {
+		load(documentPaths, null, stopwords, true);
+	}
+	private void load(File[] documentPaths, PackedCorpus corpus, StopwordFilter stopwords, boolean fields) throws IOException {
+		int lists = fields ? FieldIndex.FIELDS : 1;
+		int count = corpus != null ? corpus.getDocumentCount() : documentPaths.length;
+		documents = new Document[lists][count];
+		documentFrequencyLists = new IntMultiSet[lists];
+		for(int list=0; list < lists; list++)
+			documentFrequencyLists[list] = new IntMultiSet();
+		dictionary = new TermDictionary(stopwords);
+		Worker worker = new Worker(documentPaths, corpus, count, fields);
+		int workers = Math.min(threads, count);
+		if(workers <= 1) {
+			addFrequencies(worker.call());
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			ArrayList<Future<IntMultiSet[]>> partials = new ArrayList<Future<IntMultiSet[]>>();
+			for(int x=0; x < workers; x++)
+				partials.add(pool.submit(worker));
+			for(Future<IntMultiSet[]> partial : partials)
+				addFrequencies(partial.get());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading documents.");
+		}
+		catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+	private void addFrequencies(IntMultiSet[] partial) {
+		long started = Statistics.start(), allocated = Statistics.allocated();
+		for(int list=0; list < partial.length; list++)
+			documentFrequencyLists[list].add(partial[list]);
+		Statistics.stop(Statistics.FREQUENCIES, started, allocated);
+	}
+	/** Parses documents until there are none left.
+	 * The same worker is shared by every thread, the call returns that thread's partial document frequencies.
+	 */
+	private class Worker implements Callable<IntMultiSet[]> {
+		private final AtomicInteger next = new AtomicInteger();
+		private final File[] documentPaths;
+		private final PackedCorpus corpus;
+		private final int count;
+		private final boolean fields;
+		Worker(File[] newDocumentPaths, PackedCorpus newCorpus, int documentCount, boolean readFields) {
+			documentPaths = newDocumentPaths;
+			corpus = newCorpus;
+			count = documentCount;
+			fields = readFields;
+		}
+		public IntMultiSet[] call() throws IOException {
+			IntMultiSet[] partial = new IntMultiSet[documents.length];
+			for(int list=0; list < partial.length; list++)
+				partial[list] = new IntMultiSet();
+			DocumentReader reader = new DocumentReader(charset);
+			for(int x = next.getAndIncrement(); x < count; x = next.getAndIncrement()) {
+				long started = Statistics.start(), allocated = Statistics.allocated();
+				/*The dictionary skips the stopwords.*/
+				String name = corpus != null ? corpus.getName(x) : documentPaths[x].getPath();
+				Tokenizer words = corpus != null ? reader.read(corpus.getDocument(x), dictionary, fields) : reader.read(name, dictionary, fields);
+				if(fields) {
+					Document[] parsed = Document.readFields(name, words, dictionary);
+					for(int field=0; field < parsed.length; field++)
+						documents[field][x] = parsed[field];
+				}
+				else
+					documents[0][x] = Document.read(name, words, dictionary);
+				Statistics.stop(Statistics.PARSE, started, allocated);
+				Statistics.add(Statistics.DOCUMENTS, 1);
+				started = Statistics.start();
+				allocated = Statistics.allocated();
+				for(int list=0; list < partial.length; list++)
+					for(int term : documents[list][x].getTermNumbers())
+						partial[list].add(term);
+				Statistics.stop(Statistics.FREQUENCIES, started, allocated);
+			}
+			return partial;
+		}
+	}
+	/** Documents accessor.
+	 *\return the parsed documents, in the order of the paths given to load.
+	 */
+	public Document[] getDocuments() {
+		return documents[0];
+	}
+	/** Field documents accessor.
+	 *\param field A FieldIndex field, after loadFields.
+	 *\return that field of every document, in the order of the paths given to loadFields.
+	 */
+	public Document[] getDocuments(int field) {
+		return documents[field];
+	}
+	/** Dictionary accessor.
+	 *\return the dictionary shared by every document loaded.
+	 */
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+	/** Document frequency accessor.
+	 *\return the multiset of the number of documents each term appears in, by dictionary number.
+	 */
+	public IntMultiSet getDocumentFrequencyList() {
+		return documentFrequencyLists[0];
+	}
+	/** Field document frequency accessor.
+	 *\param field A FieldIndex field, after loadFields.
+	 *\return the multiset of the number of documents with the term in that field, by dictionary number.
+	 */
+	public IntMultiSet getDocumentFrequencyList(int field) {
+		return documentFrequencyLists[field];
+	}
+}
@@ -0,0 +1,35 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** TF-IDF cosine similarity.
+ * The model of Document.setCosineSimilarity and the scorers: the inverse document frequency is 1/n(t)
+ * and the term frequency log(1 + n(d,t)/n(d)), in the document and the query alike. The weights don't
+ * depend on the size of the corpus. The algorithm is documented in algorithm.tex.
+ */
+public class CosineSimilarity implements Similarity {
+	public double documentWeight(int count, int length, int documentFrequency, int documentCount, double averageLength) {
+		double inverseDocumentFrequency = 1 / (double) documentFrequency;
+		return inverseDocumentFrequency * Math.log(1 + (double) count / (double) length);
+	}
+	public double queryWeight(int count, int length, int documentFrequency, int documentCount) {
+		double inverseDocumentFrequency = 1 / (double) documentFrequency;
+		return inverseDocumentFrequency * Math.log(1 + (double) count / (double) length);
+	}
+	public boolean isNormalized() {
+		return true;
+	}
+}
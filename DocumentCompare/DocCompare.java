@@ -16,13 +16,22 @@
  */
 package DocumentCompare;
 import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 /** This is the main class for running this program.
  * This uses the other objects to perform the algorithm.
  */
 public class DocCompare {
-	MultiSet<Term> stopwords, query, documentFrequencyList;
+	StopwordFilter stopwords;
+	MultiSet<Term> query;
+	IntMultiSet documentFrequencyList;
+	TermDictionary dictionary;
 	Document[] documents;
 	/** This allows direct execution.
 	 *\param commandline strings
@@ -31,14 +40,42 @@ public class DocCompare {
 		String usage = "Usage: java -cp Build/ DocumentCompare.DocCompare <options>\n" +
 		"\tOptions:\n"+
 	                "\t-k <number of results to print greater than 0>  (10)\n" +
-	                "\t-s <stopwords document>                         (stopwords.txt)\n" +
+	                "\t-s <stopwords document or compiled filter>      (stopwords.txt)\n" +
+	                "\t-c <filter file to compile the stopwords document to>\n" +
 	                "\t-f <query document> or -q <query document>      (query.txt)\n" +
-	                "\t-d <data directory>                             (set)\n";
-		int k=10;
-		String s = "stopwords.txt", q = "query.txt", d = "set";
+	                "\t-d <data directory or packed corpus file>       (set)\n" +
+	                "\t-P <file to pack the documents of the data directory in to>\n" +
+	                "\t-t <threads to load documents with>             (processors)\n" +
+	                "\t-b <index file to build from the data directory>\n" +
+	                "\t-N <number of shards to split the index in to, written as the -b file .0, .1 and so on>\n" +
+	                "\t-m <megabytes to build the index in, the corpus is streamed through runs on disk>\n" +
+	                "\t-u <index directory to bring up to date with the data directory>\n" +
+	                "\t-i <index file or directory to query instead of the data directory>\n" +
+	                "\t-F <field weights such as T=2,A=0,W=1, to search the title, author and body separately>\n" +
+	                "\t-V <score or check> scores with precomputed document vectors, check compares them to the index\n" +
+	                "\t-A <similarity threshold> prints the k most similar documents to every document, by their index vectors\n" +
+	                "\t-p <port to serve queries on, instead of running one query, 0 for any free port>\n" +
+	                "\t-S <-b file of the shards to start a server for each of and query>\n" +
+	                "\t-W <host:port,host:port of running shard servers to query>\n" +
+	                "\t-C <queries to cache the results of, with -p or -Q>\n" +
+	                "\t-Q <query directory, every query is run and printed in TREC format>\n" +
+	                "\t-M <cosine, logcosine or bm25 scoring model, with -q or -Q>   (cosine)\n" +
+	                "\t-L <bands,rows,most documents a signed term is in, with -q or -Q only MinHash candidates are scored>   (64,1,100)\n" +
+	                "\t--charset <charset of the documents, queries and stopwords>  (platform default)\n" +
+	                "\t--stats prints the time, counts and allocation of each phase to stderr as JSON\n";
+		int k=10, t=Runtime.getRuntime().availableProcessors(), p=-1, m=0, C=0, N=0;
+		double A = -1;
+		String s = "stopwords.txt", q = "query.txt", d = "set", b = null, c = null, u = null, i = null, Q = null, F = null, V = null, P = null, S = null, W = null, M = null, L = null, charsetName = null;
+		double[] weights = null;
+		boolean stats = false;
 		/*Input Parsing*/
 		for(int x=0; x < args.length; x +=2) {
-			if(args[x].equals("-k"))
+			/*The only option without a value.*/
+			if(args[x].equals("--stats")) {
+				stats = true;
+				x--;
+			}
+			else if(args[x].equals("-k"))
 				k = Integer.parseInt(args[x +1]);
 			else if(args[x].equals("-s"))
 				s = args[x +1];
@@ -46,6 +83,44 @@ public class DocCompare {
 				q = args[x +1];
 			else if(args[x].equals("-d"))
 				d = args[x +1];
+			else if(args[x].equals("-t"))
+				t = Integer.parseInt(args[x +1]);
+			else if(args[x].equals("-c"))
+				c = args[x +1];
+			else if(args[x].equals("-b"))
+				b = args[x +1];
+			else if(args[x].equals("-m"))
+				m = Integer.parseInt(args[x +1]);
+			else if(args[x].equals("-u"))
+				u = args[x +1];
+			else if(args[x].equals("-i"))
+				i = args[x +1];
+			else if(args[x].equals("-F"))
+				F = args[x +1];
+			else if(args[x].equals("-Q"))
+				Q = args[x +1];
+			else if(args[x].equals("-A"))
+				A = Double.parseDouble(args[x +1]);
+			else if(args[x].equals("-V"))
+				V = args[x +1];
+			else if(args[x].equals("-C"))
+				C = Integer.parseInt(args[x +1]);
+			else if(args[x].equals("-p"))
+				p = Integer.parseInt(args[x +1]);
+			else if(args[x].equals("-P"))
+				P = args[x +1];
+			else if(args[x].equals("-N"))
+				N = Integer.parseInt(args[x +1]);
+			else if(args[x].equals("-S"))
+				S = args[x +1];
+			else if(args[x].equals("-W"))
+				W = args[x +1];
+			else if(args[x].equals("-M"))
+				M = args[x +1];
+			else if(args[x].equals("-L"))
+				L = args[x +1];
+			else if(args[x].equals("--charset"))
+				charsetName = args[x +1];
 			else {
 				System.out.println(usage);
 				return;
@@ -54,14 +129,151 @@ public class DocCompare {
 		/*Input sanitizing*/
 		if(k <= 0) {
 			System.out.println("k must be greater than 0.\n" +usage);
+			return;
+		}
+		if(t <= 0) {
+			System.out.println("The thread count must be greater than 0.\n" +usage);
+			return;
+		}
+		if(m < 0 || (m > 0 && b == null)) {
+			System.out.println("The memory budget must be greater than 0 and needs -b.\n" +usage);
+			return;
+		}
+		if(C < 0 || (C > 0 && Q == null && p < 0)) {
+			System.out.println("The cache size can't be negative and needs -p or -Q.\n" +usage);
+			return;
+		}
+		if(V != null && (!(V.equals("score") || V.equals("check")) || b != null || u != null || Q != null || p >= 0 || F != null)) {
+			System.out.println("-V is score or check and can't be used with -b, -u, -Q, -p or -F.\n" +usage);
+			return;
+		}
+		if(A != -1 && (!(A >= 0) || b != null || u != null || Q != null || p >= 0 || F != null || V != null)) {
+			System.out.println("The similarity threshold must be 0 or more and can't be used with -b, -u, -Q, -p, -F or -V.\n" +usage);
+			return;
+		}
+		if(N < 0 || (N > 0 && (b == null || m > 0 || F != null || V != null || A != -1))) {
+			System.out.println("The number of shards must be greater than 0, needs -b and can't be used with -m, -F, -V or -A.\n" +usage);
+			return;
+		}
+		if((S != null || W != null) && (S != null && W != null || b != null || u != null || Q != null || p >= 0 || F != null || V != null || A != -1)) {
+			System.out.println("-S and -W can't be used together or with -b, -u, -Q, -p, -F, -V or -A.\n" +usage);
+			return;
+		}
+		Similarity similarity = null;
+		if(M != null) {
+			if(b != null || u != null || p >= 0 || C > 0 || F != null || V != null || A != -1 || S != null || W != null) {
+				System.out.println("-M can't be used with -b, -u, -p, -C, -F, -V, -A, -S or -W.\n" +usage);
+				return;
+			}
+			try {
+				similarity = similarity(M);
+			}
+			catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage() + "\n" +usage);
+				return;
+			}
+		}
+		int[] minHash = null;
+		if(L != null) {
+			if(M != null || b != null || u != null || p >= 0 || C > 0 || F != null || V != null || A != -1 || S != null || W != null) {
+				System.out.println("-L can't be used with -M, -b, -u, -p, -C, -F, -V, -A, -S or -W.\n" +usage);
+				return;
+			}
+			try {
+				minHash = MinHashIndex.parseSettings(L);
+			}
+			catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage() + "\n" +usage);
+				return;
+			}
+		}
+		Charset charset = Charset.defaultCharset();
+		if(charsetName != null) {
+			try {
+				charset = Charset.forName(charsetName);
+			}
+			catch (IllegalArgumentException e) {
+				System.out.println("Unknown charset " + charsetName + ".\n" +usage);
+				return;
+			}
+		}
+		QueryCache cache = C > 0 ? new QueryCache(C) : null;
+		if(stats) {
+			Statistics.enable(true);
+			Statistics.register();
+		}
+		if(F != null) {
+			if(m > 0 || u != null || Q != null || p >= 0) {
+				System.out.println("Field weights can't be used with -m, -u, -Q or -p.\n" +usage);
+				return;
+			}
+			try {
+				weights = FieldIndex.parseWeights(F);
+			}
+			catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage() + "\n" +usage);
+				return;
+			}
 		}
 		try {
-			new DocCompare(q, k, d, s);
+			if(c != null)
+				StopwordFilter.read(s, charset).write(c);
+			else if(P != null)
+				PackedCorpus.write(listDocuments(d), P);
+			else if(F != null && b != null)
+				FieldIndex.load(listDocuments(d), StopwordFilter.read(s, charset), t, charset).write(b);
+			else if(F != null)
+				printFieldResults(q, k, i != null ? FieldIndex.open(i) : FieldIndex.load(listDocuments(d), StopwordFilter.read(s, charset), t, charset), weights, charset);
+			else if(A != -1) {
+				AllPairs pairs = new AllPairs(i != null ? openIndex(i) : new DocCompare(d, s, t, charset).getIndex(), t);
+				pairs.write(pairs.run(k, A), System.out);
+			}
+			else if(V != null)
+				printVectorResults(q, k, i != null ? openIndex(i) : new DocCompare(d, s, t, charset).getIndex(), V.equals("check"), charset);
+			else if(S != null || W != null)
+				printShardResults(q, k, S != null ? ShardCoordinator.launch(ShardIndex.shardFiles(S)) : new ShardCoordinator(W.split(",")), charset);
+			else if(b != null && N > 0)
+				ShardIndex.write(i != null ? openIndex(i) : new DocCompare(d, s, t, charset).getIndex(), N, b);
+			else if(b != null && m > 0)
+				new IndexBuilder(t, m * 1024L * 1024L, charset).build(listDocuments(d), StopwordFilter.read(s, charset), b);
+			else if(b != null)
+				new DocCompare(d, s, t, charset).writeIndex(b);
+			else if(u != null)
+				new IndexDirectory(u).update(d, StopwordFilter.read(s, charset), t, charset);
+			else if(Q != null) {
+				InvertedIndex index = i != null ? openIndex(i) : new DocCompare(d, s, t, charset).getIndex();
+				QueryScorer scorer;
+				if(similarity != null)
+					scorer = new ImpactIndex(index, similarity);
+				else if(minHash != null)
+					scorer = new MinHashIndex(index, minHash[0], minHash[1], minHash[2]);
+				else
+					scorer = MaxScoreScorer.queryScorer(index);
+				new QueryBatch(index, t, scorer, cache, charset).run(Q, k, System.out);
+				if(cache != null)
+					System.err.println("Cache hits " + cache.getHits() + ", misses " + cache.getMisses());
+			}
+			else if(p >= 0 && i != null && new File(i).isDirectory())
+				new QueryServer(new IndexDirectory(i), k, cache).serve(p);
+			else if(p >= 0)
+				new QueryServer(i != null ? openIndex(i) : new DocCompare(d, s, t, charset).getIndex(), k, cache).serve(p);
+			else if(minHash != null) {
+				InvertedIndex index = i != null ? openIndex(i) : new DocCompare(d, s, t, charset).getIndex();
+				printCandidateResults(q, k, index, new MinHashIndex(index, minHash[0], minHash[1], minHash[2]), charset);
+			}
+			else if(similarity != null)
+				printImpactResults(q, k, new ImpactIndex(i != null ? openIndex(i) : new DocCompare(d, s, t, charset).getIndex(), similarity), charset);
+			else if(i != null)
+				new DocCompare(q, k, openIndex(i), charset);
+			else
+				new DocCompare(q, k, d, s, t, charset);
 		}
 		catch (IOException e) {
 			System.out.println(e.getMessage());
 			System.out.println(usage);
 		}
+		if(stats)
+			System.err.print(Statistics.toJson());
 	}
 	/** Document Comparison Object.
 	 * On instantiation it opens documents, calculates cosine similarities and sorts results.
@@ -72,6 +284,31 @@ public class DocCompare {
 	 *\throws IOException if anything doesn't open.
 	 */
 	public DocCompare(String queryFile, int resultCount, String documentDirectory, String stopwordsFile) throws IOException {
+		this(queryFile, resultCount, documentDirectory, stopwordsFile, Runtime.getRuntime().availableProcessors());
+	}
+	/** Document Comparison Object.
+	 * The same as the constructor without a thread count.
+	 *\param queryFile This is the file to compare all other documents to.
+	 *\param resultCount This is the number of results to print
+	 *\param documentDirectory This is the location of all the other documents.
+	 *\param stopwordsFile This is the list of stopwords, these words will not have an impact on the search.
+	 *\param threads The number of threads to open documents with.
+	 *\throws IOException if anything doesn't open.
+	 */
+	public DocCompare(String queryFile, int resultCount, String documentDirectory, String stopwordsFile, int threads) throws IOException {
+		this(queryFile, resultCount, documentDirectory, stopwordsFile, threads, Charset.defaultCharset());
+	}
+	/** Document Comparison Object.
+	 * The same as the constructor without a charset.
+	 *\param queryFile This is the file to compare all other documents to.
+	 *\param resultCount This is the number of results to print
+	 *\param documentDirectory This is the location of all the other documents, or a PackedCorpus file.
+	 *\param stopwordsFile This is the list of stopwords, these words will not have an impact on the search.
+	 *\param threads The number of threads to open documents with.
+	 *\param charset The charset of the documents and the query.
+	 *\throws IOException if anything doesn't open.
+	 */
+	public DocCompare(String queryFile, int resultCount, String documentDirectory, String stopwordsFile, int threads, Charset charset) throws IOException {
 		/*Method:
 		 *create stopword document
 		 *create query document
@@ -79,38 +316,245 @@ public class DocCompare {
 		 *	create document - without stopwords
 		 *	for each term in document
 		 *		add term once to documentFrequencyList
-		 *	for each document
-		 *		set cosine simularity
-		 *sort documents
-		 *return resultCount documents
+		 *invert documents
+		 *for each query term
+		 *	add to the cosine similarity of each document in its postings
+		 *keep the resultCount most similar documents
 		 */
-		stopwords = new Document(stopwordsFile).getMultiSet();
-		query = new Document(queryFile).getMultiSet();
+		this(documentDirectory, stopwordsFile, threads, charset);
+		query = readQuery(queryFile, charset);
+		printResults(getIndex(), resultCount);
+	}
+	/** Document Comparison Object, index version.
+	 * This does the same as the other query constructor, but reads the corpus statistics from an index instead of the data directory.
+	 *\param queryFile This is the file to compare all other documents to.
+	 *\param resultCount This is the number of results to print
+	 *\param index The index of the documents.
+	 *\throws IOException if the query doesn't open.
+	 */
+	public DocCompare(String queryFile, int resultCount, InvertedIndex index) throws IOException {
+		this(queryFile, resultCount, index, Charset.defaultCharset());
+	}
+	/** Document Comparison Object, index version.
+	 * The same as the index constructor without a charset.
+	 *\param queryFile This is the file to compare all other documents to.
+	 *\param resultCount This is the number of results to print
+	 *\param index The index of the documents.
+	 *\param charset The charset of the query.
+	 *\throws IOException if the query doesn't open.
+	 */
+	public DocCompare(String queryFile, int resultCount, InvertedIndex index, Charset charset) throws IOException {
+		query = readQuery(queryFile, charset);
+		printResults(index, resultCount);
+	}
+	/** Corpus Object.
+	 * On instantiation it opens the stopwords and every document in the directory and counts document frequencies, but runs no query.
+	 *\param documentDirectory This is the location of the documents.
+	 *\param stopwordsFile This is the list of stopwords, these words will not have an impact on the search.
+	 *\param threads The number of threads to open documents with.
+	 *\throws IOException if anything doesn't open.
+	 */
+	public DocCompare(String documentDirectory, String stopwordsFile, int threads) throws IOException {
+		this(documentDirectory, stopwordsFile, threads, Charset.defaultCharset());
+	}
+	/** Corpus Object.
+	 * The same as the corpus constructor without a charset.
+	 *\param documentDirectory This is the location of the documents, or a PackedCorpus file.
+	 *\param stopwordsFile This is the list of stopwords, these words will not have an impact on the search.
+	 *\param threads The number of threads to open documents with.
+	 *\param charset The charset of the documents.
+	 *\throws IOException if anything doesn't open.
+	 */
+	public DocCompare(String documentDirectory, String stopwordsFile, int threads, Charset charset) throws IOException {
+		stopwords = StopwordFilter.read(stopwordsFile, charset);
+		/*The documents are parsed in parallel and each thread counts the document frequencies
+		 * of its own documents, these are added together to make documentFrequencyList.
+		 */
+		CorpusLoader loader = new CorpusLoader(threads, charset);
+		if(new File(documentDirectory).isFile())
+			loader.load(new PackedCorpus(documentDirectory), stopwords);
+		else
+			loader.load(listDocuments(documentDirectory), stopwords);
+		documents = loader.getDocuments();
+		dictionary = loader.getDictionary();
+		documentFrequencyList = loader.getDocumentFrequencyList();
+	}
+	/** Lists the documents of a data directory.
+	 *\param documentDirectory The data directory.
+	 *\return the files in the directory, in name order which is the order they are numbered in.
+	 *\throws IOException if it isn't a directory.
+	 */
+	public static File[] listDocuments(String documentDirectory) throws IOException {
+		long started = Statistics.start(), allocated = Statistics.allocated();
 		File documentFolder = new File(documentDirectory);
-		if(documentFolder.isDirectory()) {
-			File[] documentPaths = documentFolder.listFiles();
-			documents = new Document[documentPaths.length];
-			int x=0;
-			for( File docPath : documentPaths) {
-				if(docPath.isFile())
-					documents[x] = new Document(docPath.getPath(), stopwords);
-				x++;
-			}
-		}
-		else {
+		if(!documentFolder.isDirectory())
 			throw new IOException("Specified directory is not a directory.");
+		/*Sub directories are not documents.*/
+		File[] documentPaths = documentFolder.listFiles(new FileFilter() {
+			public boolean accept(File path) {
+				return path.isFile();
+			}
+		});
+		/*Numbering in name order breaks ties between equal similarities the same way on every platform.*/
+		Arrays.sort(documentPaths);
+		Statistics.stop(Statistics.LIST, started, allocated);
+		return documentPaths;
+	}
+	/** Reads a query document.
+	 *\param queryFile The file to read.
+	 *\param charset The charset of the file.
+	 *\return the multiset of the query, without stopwords removed.
+	 *\throws IOException if the file can't be read.
+	 */
+	static MultiSet<Term> readQuery(String queryFile, Charset charset) throws IOException {
+		TermDictionary queryDictionary = new TermDictionary();
+		return Document.read(queryFile, new DocumentReader(charset).read(queryFile, queryDictionary, false), queryDictionary).getMultiSet();
+	}
+	/** Opens an index to query.
+	 *\param indexPath An index file written by IndexWriter, or an IndexDirectory.
+	 *\return the index.
+	 *\throws IOException if the index can't be read.
+	 */
+	static InvertedIndex openIndex(String indexPath) throws IOException {
+		if(new File(indexPath).isDirectory())
+			return new IndexDirectory(indexPath).open();
+		return new Index(indexPath);
+	}
+	/** Writes the corpus statistics to an index file.
+	 * The index can then be queried with the index constructor without opening the documents again.
+	 *\param indexFile The file to write.
+	 *\throws IOException if the index can't be written.
+	 */
+	public void writeIndex(String indexFile) throws IOException {
+		IndexWriter.write(getIndex(), indexFile);
+	}
+	/** Index accessor.
+	 *\return an inverted index of the documents, which doesn't change and can be shared by threads.
+	 */
+	public MemoryIndex getIndex() {
+		return new MemoryIndex(documents, dictionary, documentFrequencyList);
+	}
+	/** Scores the query against the index and prints the most similar documents.
+	 *\param index The index of the documents.
+	 *\param resultCount This is the number of results to print
+	 */
+	private void printResults(InvertedIndex index, int resultCount) {
+		System.out.print(formatResults(index, search(index, query, resultCount)));
+	}
+	/** Scores the query against the fields of the documents and prints the most similar documents.
+	 *\param queryFile This is the file to compare all other documents to.
+	 *\param resultCount This is the number of results to print
+	 *\param index The fields of the documents.
+	 *\param weights The weight of every field, see FieldIndex.parseWeights.
+	 *\param charset The charset of the query.
+	 *\throws IOException if the query doesn't open.
+	 */
+	static void printFieldResults(String queryFile, int resultCount, FieldIndex index, double[] weights, Charset charset) throws IOException {
+		MultiSet<Term> base = FieldIndex.readQuery(queryFile, new InputStreamReader(new FileInputStream(queryFile), charset));
+		System.out.print(formatResults(index.getField(FieldIndex.BODY), index.search(base, weights, resultCount)));
+	}
+	/** Scores the query against precomputed document vectors and prints the most similar documents.
+	 *\param queryFile This is the file to compare all other documents to.
+	 *\param resultCount This is the number of results to print
+	 *\param index The index of the documents, the vectors are worked out from it.
+	 *\param check true to also score the index and report the documents whose similarities differ.
+	 *\param charset The charset of the query.
+	 *\throws IOException if the query doesn't open.
+	 */
+	static void printVectorResults(String queryFile, int resultCount, InvertedIndex index, boolean check, Charset charset) throws IOException {
+		MultiSet<Term> base = readQuery(queryFile, charset);
+		DocumentVectors vectors = new DocumentVectors(index);
+		TopKCollector results = new TopKCollector(resultCount);
+		vectors.score(base, results);
+		System.out.print(formatResults(index, results));
+		if(check) {
+			int differences = vectors.compare(base, DocumentVectors.TOLERANCE);
+			System.err.println(differences + " of " + index.getDocumentCount() + " similarities differ from the index by more than " + DocumentVectors.TOLERANCE);
 		}
-		/*We have the documents and we need to add the terms to documentFrequencyList*/
-		documentFrequencyList = new MultiSet<Term>();
-		for(Document doc : documents) {
-			documentFrequencyList.add(doc.getMultiSet().getSet());
+	}
+	/** Scores the query with another model and prints the most similar documents.
+	 *\param queryFile This is the file to compare all other documents to.
+	 *\param resultCount This is the number of results to print
+	 *\param impacts The postings of the documents weighed by the model.
+	 *\param charset The charset of the query.
+	 *\throws IOException if the query doesn't open.
+	 */
+	static void printImpactResults(String queryFile, int resultCount, ImpactIndex impacts, Charset charset) throws IOException {
+		TopKCollector results = new TopKCollector(resultCount);
+		long started = Statistics.start(), allocated = Statistics.allocated();
+		impacts.score(readQuery(queryFile, charset), results);
+		Statistics.stop(Statistics.SCORE, started, allocated);
+		System.out.print(formatResults(impacts.getIndex(), results));
+	}
+	/** Scores the query against the candidates of a MinHashIndex and prints the most similar documents.
+	 *\param queryFile This is the file to compare all other documents to.
+	 *\param resultCount This is the number of results to print
+	 *\param index The index of the documents.
+	 *\param candidates The signatures of the documents.
+	 *\param charset The charset of the query.
+	 *\throws IOException if the query doesn't open.
+	 */
+	static void printCandidateResults(String queryFile, int resultCount, InvertedIndex index, MinHashIndex candidates, Charset charset) throws IOException {
+		TopKCollector results = new TopKCollector(resultCount);
+		long started = Statistics.start(), allocated = Statistics.allocated();
+		candidates.score(readQuery(queryFile, charset), results);
+		Statistics.stop(Statistics.SCORE, started, allocated);
+		System.out.print(formatResults(index, results));
+	}
+	/** Looks up a scoring model by name.
+	 *\param name cosine, logcosine or bm25.
+	 *\return the model, BM25 with the usual parameters.
+	 *\throws IllegalArgumentException if there is no such model.
+	 */
+	static Similarity similarity(String name) {
+		if(name.equals("cosine"))
+			return new CosineSimilarity();
+		if(name.equals("logcosine"))
+			return new LogCosineSimilarity();
+		if(name.equals("bm25"))
+			return new BM25Similarity();
+		throw new IllegalArgumentException("Unknown scoring model " + name + ".");
+	}
+	/** Scores the query against the shards of a corpus and prints the most similar documents.
+	 *\param queryFile This is the file to compare all other documents to.
+	 *\param resultCount This is the number of results to print
+	 *\param coordinator The shard servers, closed once the query is answered.
+	 *\param charset The charset of the query.
+	 *\throws IOException if the query doesn't open or a shard fails.
+	 */
+	static void printShardResults(String queryFile, int resultCount, ShardCoordinator coordinator, Charset charset) throws IOException {
+		try {
+			System.out.print(coordinator.search(new String(Files.readAllBytes(Paths.get(queryFile)), charset), resultCount));
 		}
-		for(Document doc : documents) {
-			doc.setCosineSimilarity(query, documentFrequencyList);
+		finally {
+			coordinator.close();
 		}
-		Arrays.sort(documents);
-		for(int x=0; resultCount > 0 && x < documents.length; resultCount --, x ++) {
-			System.out.println(documents[x].getName() + " : " + documents[x].getCosineSimilarity());
+	}
+	/** Scores a query against an index.
+	 *\param index The index of the documents.
+	 *\param base The multiset of the query document.
+	 *\param resultCount The number of results to keep.
+	 *\return the most similar documents.
+	 */
+	static TopKCollector search(InvertedIndex index, MultiSet<Term> base, int resultCount) {
+		TopKCollector results = new TopKCollector(resultCount);
+		MaxScoreScorer.queryScorer(index).score(base, results);
+		return results;
+	}
+	/** Formats results the way they are printed, one "name : similarity" line each.
+	 *\param index The index of the documents.
+	 *\param results The most similar documents.
+	 *\return the result lines.
+	 */
+	static String formatResults(InvertedIndex index, TopKCollector results) {
+		long started = Statistics.start(), allocated = Statistics.allocated();
+		int[] order = results.getDocuments();
+		double[] cosineSimilarity = results.getScores();
+		StringBuilder lines = new StringBuilder();
+		for(int x=0; x < order.length; x++) {
+			lines.append(index.getName(order[x])).append(" : ").append(cosineSimilarity[x]).append('\n');
 		}
+		Statistics.stop(Statistics.RESULTS, started, allocated);
+		return lines.toString();
 	}
 }
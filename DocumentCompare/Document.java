@@ -18,14 +18,17 @@ package DocumentCompare;
 import java.io.IOException;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.Reader;
 /**  Document object. 
  * It reads it's file on creation and creates a MultiSet representation of the terms in the document.
+ * The terms are held as the sorted numbers given to them by a TermDictionary and their counts.
  */
 public class Document implements Comparable<Document> {
 	private double cosineSimilarity = -1;
-	private MultiSet<Term> terms;
+	private int[] termNumbers, termCounts;
+	private int length;
+	private TermDictionary dictionary;
 	private String fileName;
 	/** Document Constructor.
 	 * This opens the file and parses it for all terms not in the stopwords list.
@@ -33,23 +36,119 @@ public class Document implements Comparable<Document> {
 	 *\param stopwords The set of stopwords to ignore.
 	 */
 	public Document(String newFileName, MultiSet<Term> stopwords) throws IOException {
-		terms = new MultiSet<Term>();
+		this(newFileName, stopwords, new TermDictionary());
+	}
+	/** Document Constructor, shared dictionary.
+	 * This is the same as the stopwords constructor, but terms are interned in a dictionary shared with other documents.
+	 *\param newFileName the file to open.
+	 *\param stopwords The set of stopwords to ignore.
+	 *\param dictionary The dictionary to intern terms in.
+	 */
+	public Document(String newFileName, MultiSet<Term> stopwords, TermDictionary newDictionary) throws IOException {
+		this(newFileName, new FileReader(newFileName), stopwords, newDictionary);
+	}
+	/** Document Constructor, from text.
+	 * This parses text that isn't in a file, such as a query sent to the query server.
+	 *\param newFileName the name to give the document.
+	 *\param documentFile the text of the document, this is closed once read.
+	 *\param stopwords The set of stopwords to ignore.
+	 *\param dictionary The dictionary to intern terms in.
+	 */
+	public Document(String newFileName, Reader documentFile, MultiSet<Term> stopwords, TermDictionary newDictionary) throws IOException {
+		IntMultiSet terms = new IntMultiSet();
 		fileName = newFileName;
-		BufferedReader documentFile;
-		documentFile = new BufferedReader(new FileReader(fileName));
-		String fullLine;
-		while((fullLine=documentFile.readLine()) != null) {
-			String line[] = fullLine.split(" ");
-			for(String word: line) {
-				Term newTerm = new Term(word);
-				/*If the string is only punctation, getvalue will return null as the value will not have been set.
-				 * otherwise, if there is a stopwords set then ensure that our term isn't in it.
-				 */
-				if(newTerm.getValue() != null && (stopwords == null || !stopwords.test(newTerm))) {
-					terms.add(newTerm);
+		dictionary = newDictionary;
+		try {
+			/*The tokenizer skips words that are only punctuation.
+			 * If there is a stopwords set then ensure that our term isn't in it.
+			 */
+			Tokenizer words = new Tokenizer(documentFile, dictionary);
+			long dropped = 0;
+			for(int term = words.next(); term != -1; term = words.next()) {
+				if(stopwords == null || !stopwords.test(words.getTerm())) {
+					terms.add(term);
 				}
+				else
+					dropped++;
 			}
+			Statistics.add(Statistics.STOPWORDS, dropped);
+		}
+		finally {
+			documentFile.close();
 		}
+		/*The document doesn't change once read, so the set is frozen in to sorted arrays.*/
+		termNumbers = terms.getSet();
+		termCounts = terms.count(termNumbers);
+		length = terms.count();
+	}
+	/** Reads a document from a tokenizer.
+	 * Every term the tokenizer gives is counted, the dictionary's stopwords are already skipped.
+	 *\param fileName the name to give the document.
+	 *\param words A tokenizer of the text, see DocumentReader.
+	 *\param dictionary The dictionary words interns terms in.
+	 *\return the document.
+	 *\throws IOException if the text can't be read.
+	 */
+	public static Document read(String fileName, Tokenizer words, TermDictionary dictionary) throws IOException {
+		IntMultiSet terms = new IntMultiSet();
+		for(int term = words.next(); term != -1; term = words.next())
+			terms.add(term);
+		return new Document(fileName, terms, dictionary);
+	}
+	/** Document Constructor, from counted terms.
+	 *\param newFileName the name to give the document.
+	 *\param terms the dictionary numbers of the terms in the document.
+	 *\param newDictionary The dictionary the numbers belong to.
+	 */
+	private Document(String newFileName, IntMultiSet terms, TermDictionary newDictionary) {
+		fileName = newFileName;
+		dictionary = newDictionary;
+		termNumbers = terms.getSet();
+		termCounts = terms.count(termNumbers);
+		length = terms.count();
+	}
+	/** Reads the fields of a document.
+	 * The title, author and body sections are read as separate documents with the same name, see FieldIndex.
+	 *\param fileName the file to open.
+	 *\param dictionary The dictionary to intern terms in, its stopwords are skipped.
+	 *\return a document for each field, indexed by FieldIndex field.
+	 *\throws IOException if the file can't be read.
+	 */
+	public static Document[] readFields(String fileName, TermDictionary dictionary) throws IOException {
+		return readFields(fileName, new FileReader(fileName), dictionary);
+	}
+	/** Reads the fields of a document, from text.
+	 *\param fileName the name to give the documents.
+	 *\param documentFile the text of the document, this is closed once read.
+	 *\param dictionary The dictionary to intern terms in, its stopwords are skipped.
+	 *\return a document for each field, indexed by FieldIndex field.
+	 *\throws IOException if the text can't be read.
+	 */
+	public static Document[] readFields(String fileName, Reader documentFile, TermDictionary dictionary) throws IOException {
+		try {
+			return readFields(fileName, new Tokenizer(documentFile, dictionary, true), dictionary);
+		}
+		finally {
+			documentFile.close();
+		}
+	}
+	/** Reads the fields of a document, from a tokenizer.
+	 *\param fileName the name to give the documents.
+	 *\param words A tokenizer reading fields, see DocumentReader.
+	 *\param dictionary The dictionary words interns terms in.
+	 *\return a document for each field, indexed by FieldIndex field.
+	 *\throws IOException if the text can't be read.
+	 */
+	public static Document[] readFields(String fileName, Tokenizer words, TermDictionary dictionary) throws IOException {
+		IntMultiSet[] terms = new IntMultiSet[FieldIndex.FIELDS];
+		for(int field=0; field < terms.length; field++)
+			terms[field] = new IntMultiSet();
+		for(int term = words.next(); term != -1; term = words.next())
+			terms[words.getField()].add(term);
+		Document[] fields = new Document[terms.length];
+		for(int field=0; field < terms.length; field++)
+			fields[field] = new Document(fileName, terms[field], dictionary);
+		return fields;
 	}
 	/** Document Constructor, no stopwords.
 	 * This is the same as the other constructor but doesn't use stopwords, useful when you want to open a stopwords document.
@@ -96,6 +195,19 @@ public class Document implements Comparable<Document> {
 	 *\param MultiSet<Term> the multiset that contains information about term frequency in the dataset
 	 */
 	public void setCosineSimilarity(MultiSet<Term> base, MultiSet<Term> documentFrequency) {
+		/*The TF-IDF weights don't depend on the size of the corpus.*/
+		setCosineSimilarity(base, documentFrequency, new CosineSimilarity(), 0, 0);
+	}
+	/** Similarity setter.
+	 * The same as the TF-IDF setter, with the weights of another model. The similarity is only a cosine if the model is normalized.
+	 *\param base the multiset of the base document to compare to
+	 *\param documentFrequency the multiset that contains information about term frequency in the dataset
+	 *\param similarity The model weighing the terms, see Similarity.
+	 *\param documentCount The number of documents in the dataset.
+	 *\param averageLength The average number of terms in a document of the dataset.
+	 */
+	public void setCosineSimilarity(MultiSet<Term> base, MultiSet<Term> documentFrequency, Similarity similarity, int documentCount, double averageLength) {
+		MultiSet<Term> terms = getMultiSet();
 		double area=0;
 		double baseMagnitude=0, magnitude=0;
 		/*We need to consider both sets of words, the words in this document and the words in the multiset.
@@ -109,17 +221,11 @@ public class Document implements Comparable<Document> {
 		*/
 		for(Term word : baseUnionTerms) {
 			if(documentFrequency.count(word) != 0) {
-				/*The inverse document frequency scales the relevence by the size of the document.
-				 * This is so that a very large document with our search in it twice is not ranked
-				 *  above a very small document with our search in it once.
-				 */
-				double inverseDocumentFrequency = 1 / (double) documentFrequency.count(word);
-				/*The relevance of a term is based on the term frequency in the document, this is logrithmic
-				 * as a document with the search term in it 10 times isn't 10 times more relevant than one
-				 * with our search term once.
+				/*The model weighs the term in each document, with TF-IDF the inverse document frequency
+				 * scales the relevance and the term frequency is logarithmic, see CosineSimilarity.
 				 */
-				double ourRelevance = inverseDocumentFrequency * Math.log(1 + (double) terms.count(word)/ (double) terms.count());
-				double baseRelevance = inverseDocumentFrequency * ( Math.log(1 + (double) base.count(word)/(double)base.count()));
+				double ourRelevance = similarity.documentWeight(terms.count(word), terms.count(), documentFrequency.count(word), documentCount, averageLength);
+				double baseRelevance = similarity.queryWeight(base.count(word), base.count(), documentFrequency.count(word), documentCount);
 				/*We need to keep a running total so that we can normalize it at the end.
 				 */
 				area += ourRelevance * baseRelevance;
@@ -130,7 +236,9 @@ public class Document implements Comparable<Document> {
 		/*If the magnitude is 0, then our document is disjoint from the base document.
 		 * We need to set the cosineSimilarity to 0 to avoid zero division.
 		 */
-		if(magnitude == 0)
+		if(!similarity.isNormalized())
+			cosineSimilarity = area;
+		else if(magnitude == 0)
 			cosineSimilarity =0;
 		else
 			cosineSimilarity= area / (Math.sqrt(magnitude) * Math.sqrt(baseMagnitude));
@@ -140,6 +248,35 @@ public class Document implements Comparable<Document> {
 	 *\return MultiSet pointer.
 	 */
 	public MultiSet<Term> getMultiSet() {
-		return new MultiSet<Term>(terms);
+		MultiSet<Term> terms = new MultiSet<Term>();
+		for(int x=0; x < termNumbers.length; x++)
+			terms.add(dictionary.getTerm(termNumbers[x]), termCounts[x]);
+		return terms;
+	}
+	/** Term numbers accessor.
+	 * The array is shared with the document and must not be changed.
+	 *\return the sorted dictionary numbers of the distinct terms in the document.
+	 */
+	public int[] getTermNumbers() {
+		return termNumbers;
+	}
+	/** Term counts accessor.
+	 * The array is shared with the document and must not be changed.
+	 *\return n(d,t) of each term, in the same order as getTermNumbers.
+	 */
+	public int[] getTermCounts() {
+		return termCounts;
+	}
+	/** Length accessor.
+	 *\return n(d), the total number of terms in the document.
+	 */
+	public int getLength() {
+		return length;
+	}
+	/** Dictionary accessor.
+	 *\return the dictionary the term numbers belong to.
+	 */
+	public TermDictionary getDictionary() {
+		return dictionary;
 	}
 }
@@ -0,0 +1,172 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+/** Bulk document reader.
+ * Reads a whole document with one read in to a direct buffer that is kept for the next document, so
+ * reading a corpus of small files costs an open and a read each rather than a stream, a decoder and
+ * their buffers each. The document is then tokenized where it lies.
+ *
+ * Text is decoded as a Reader in the charset would decode it, malformed and unmappable input becoming
+ * the replacement character, so the terms are the same as Document gives with a FileReader in that
+ * charset. Most documents don't need decoding at all: in UTF-8, US-ASCII and ISO-8859-1 a document
+ * whose bytes are all below 128 is ASCII, and in ISO-8859-1 every byte is the character with its
+ * number, so those are tokenized byte by byte. Anything else is decoded in one go in to a buffer
+ * that is also kept.
+ *
+ * Not thread safe, each thread reads with its own. A tokenizer reads the reader's buffers, so it
+ * must be done with before the next document is read.
+ */
+public class DocumentReader {
+	private static final int INITIAL_CAPACITY = 64 * 1024;
+	private final Charset charset;
+	private final CharsetDecoder decoder;
+	/*Whether bytes below 128 are always ASCII characters, and whether every byte is a character.*/
+	private final boolean asciiCompatible, singleByte;
+	private ByteBuffer bytes = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+	private CharBuffer chars = CharBuffer.allocate(INITIAL_CAPACITY);
+	/** Constructor, in the default charset as FileReader reads.
+	 */
+	public DocumentReader() {
+		this(Charset.defaultCharset());
+	}
+	/** Constructor.
+	 *\param newCharset The charset of the documents.
+	 */
+	public DocumentReader(Charset newCharset) {
+		charset = newCharset;
+		decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		singleByte = charset.equals(StandardCharsets.ISO_8859_1);
+		asciiCompatible = singleByte || charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII);
+	}
+	/** Charset accessor.
+	 *\return the charset documents are read in.
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+	/** Reads a document file.
+	 *\param fileName The file to read.
+	 *\param dictionary The dictionary to intern terms in.
+	 *\param fields true to read the fields of the document, see Tokenizer.
+	 *\return a tokenizer of the whole document, valid until the next document is read.
+	 *\throws IOException if the file can't be read.
+	 */
+	public Tokenizer read(String fileName, TermDictionary dictionary, boolean fields) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		try {
+			/*A byte to spare so that the end of the file is read without growing the buffer.*/
+			long size = channel.size() + 1;
+			if(size > Integer.MAX_VALUE)
+				throw new IOException(fileName + " is too large to read.");
+			if(bytes.capacity() < size)
+				bytes = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, Math.max(size, 2L * bytes.capacity())));
+			bytes.clear();
+			/*The file may have grown since its size was taken, it is read to the end all the same.*/
+			while(channel.read(bytes) >= 0) {
+				if(!bytes.hasRemaining())
+					bytes = grow(bytes, fileName);
+			}
+			bytes.flip();
+		}
+		finally {
+			channel.close();
+		}
+		return read(bytes, dictionary, fields);
+	}
+	/** Reads a document from memory, such as a PackedCorpus.
+	 *\param document The bytes of the document from its position to its limit, left as they are.
+	 *\param dictionary The dictionary to intern terms in.
+	 *\param fields true to read the fields of the document, see Tokenizer.
+	 *\return a tokenizer of the whole document, valid until the next document is read.
+	 *\throws CharacterCodingException never, as bad input is replaced, unless the charset can't decode at all.
+	 */
+	public Tokenizer read(ByteBuffer document, TermDictionary dictionary, boolean fields) throws CharacterCodingException {
+		if(singleByte || (asciiCompatible && isAscii(document)))
+			return new Tokenizer(document, dictionary, fields);
+		return new Tokenizer(decode(document), dictionary, fields);
+	}
+	/** Checks a document for bytes of 128 and above, 8 at a time.
+	 *\param document The bytes from its position to its limit.
+	 *\return true if they are all below 128.
+	 */
+	private static boolean isAscii(ByteBuffer document) {
+		int x = document.position(), end = document.limit();
+		for(; x + 8 <= end; x += 8)
+			if((document.getLong(x) & 0x8080808080808080L) != 0)
+				return false;
+		for(; x < end; x++)
+			if(document.get(x) < 0)
+				return false;
+		return true;
+	}
+	/** Decodes a document in to the character buffer, growing it as needed.
+	 *\param document The bytes from its position to its limit, left as they are.
+	 *\return the characters.
+	 */
+	private CharBuffer decode(ByteBuffer document) throws CharacterCodingException {
+		ByteBuffer input = document.duplicate();
+		long estimate = (long) Math.ceil(input.remaining() * (double) decoder.averageCharsPerByte());
+		if(chars.capacity() < estimate)
+			chars = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE, estimate));
+		decoder.reset();
+		chars.clear();
+		/*As CharsetDecoder.decode does it, but into a buffer that is kept.*/
+		while(true) {
+			CoderResult result = input.hasRemaining() ? decoder.decode(input, chars, true) : CoderResult.UNDERFLOW;
+			if(result.isUnderflow())
+				result = decoder.flush(chars);
+			if(result.isUnderflow())
+				break;
+			if(result.isOverflow()) {
+				CharBuffer larger = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE, 2L * chars.capacity() + 1));
+				chars.flip();
+				larger.put(chars);
+				chars = larger;
+				continue;
+			}
+			result.throwException();
+		}
+		chars.flip();
+		return chars;
+	}
+	/** Doubles a byte buffer, keeping what is in it.
+	 *\param full The buffer, written up to its limit.
+	 *\param fileName The file being read, for the error.
+	 *\return a buffer with the same bytes written and room for more.
+	 *\throws IOException if the buffer can't grow.
+	 */
+	private static ByteBuffer grow(ByteBuffer full, String fileName) throws IOException {
+		if(full.capacity() == Integer.MAX_VALUE)
+			throw new IOException(fileName + " is too large to read.");
+		ByteBuffer larger = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, 2L * full.capacity()));
+		full.flip();
+		larger.put(full);
+		return larger;
+	}
+}
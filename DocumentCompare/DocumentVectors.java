@@ -0,0 +1,203 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Document vectors.
+ * The TF-IDF weight of every term of every document, worked out once when the corpus is loaded
+ * instead of for every query as Document.setCosineSimilarity does. Each document is a row of term
+ * numbers in ascending order with the weight of each term, the rows are stored one after another in
+ * flat arrays with the L2 norm of each row, so scoring a query against a document is a sparse dot
+ * product and nothing is allocated per document. Any document can be the query, to find the
+ * documents most like it.
+ *
+ * The dot products are worked out by a DotProduct kernel, VectorDotProduct when the JVM has the
+ * Vector API and ScalarDotProduct otherwise.
+ *
+ * Weights and norms are floats, which halves the memory of the weights, so similarities agree with
+ * TermAtATimeScorer to within TOLERANCE rather than exactly, see compare.
+ *
+ * Immutable, any number of threads can score against one.
+ */
+public class DocumentVectors {
+	/** The difference float weights are expected to make to a similarity, at most. */
+	public static final double TOLERANCE = 1e-6;
+	/** The fastest kernel this JVM can load. */
+	private static final DotProduct FASTEST = loadKernel();
+	private final InvertedIndex index;
+	private final DotProduct kernel;
+	/** Row of each document, the row of doc runs from starts[doc] to starts[doc + 1]. */
+	private final int[] starts;
+	private final int[] terms;
+	private final float[] weights, norms;
+	/** Constructor, works out the vector of every document.
+	 *\param newIndex The index of the documents, for the term numbers and weights.
+	 */
+	public DocumentVectors(InvertedIndex newIndex) {
+		this(newIndex, FASTEST);
+	}
+	/** Constructor, with a kernel.
+	 *\param newIndex The index of the documents, for the term numbers and weights.
+	 *\param newKernel The kernel to score with.
+	 */
+	public DocumentVectors(InvertedIndex newIndex, DotProduct newKernel) {
+		index = newIndex;
+		kernel = newKernel;
+		int documentCount = index.getDocumentCount();
+		starts = new int[documentCount + 1];
+		/*The first pass sizes the rows, the second fills them. Terms are taken in ascending order so every row is sorted.*/
+		for(int term=0; term < index.getTermCount(); term++) {
+			PostingsIterator postings = index.getPostings(term);
+			while(postings.next())
+				starts[postings.getDocument() + 1]++;
+		}
+		for(int doc=0; doc < documentCount; doc++)
+			starts[doc + 1] += starts[doc];
+		terms = new int[starts[documentCount]];
+		weights = new float[starts[documentCount]];
+		int[] sizes = new int[documentCount];
+		for(int term=0; term < index.getTermCount(); term++) {
+			if(index.getDocumentFrequency(term) == 0)
+				continue;
+			double inverseDocumentFrequency = 1 / (double) index.getDocumentFrequency(term);
+			PostingsIterator postings = index.getPostings(term);
+			while(postings.next()) {
+				int doc = postings.getDocument();
+				int entry = starts[doc] + sizes[doc]++;
+				terms[entry] = term;
+				weights[entry] = (float) (inverseDocumentFrequency * Math.log(1 + (double) postings.getCount() / (double) index.getLength(doc)));
+			}
+		}
+		norms = new float[documentCount];
+		for(int doc=0; doc < documentCount; doc++)
+			norms[doc] = (float) Math.sqrt(index.getMagnitude(doc));
+	}
+	/** Scores a query against every document.
+	 *\param base The multiset of the query document.
+	 *\return the cosine similarity of each document, indexed by document number, as TermAtATimeScorer gives it.
+	 */
+	public double[] score(MultiSet<Term> base) {
+		/*The query is spread out by term number, so each row gathers the query weights of its terms.*/
+		float[] dense = new float[index.getTermCount()];
+		double baseMagnitude = 0;
+		boolean disjoint = true;
+		for(Term word : base) {
+			int term = index.findTerm(word.getValue().toLowerCase());
+			if(term < 0)
+				continue;
+			double inverseDocumentFrequency = 1 / (double) index.getDocumentFrequency(term);
+			double baseRelevance = inverseDocumentFrequency * Math.log(1 + (double) base.count(word) / (double) base.count());
+			baseMagnitude += baseRelevance * baseRelevance;
+			dense[term] = (float) baseRelevance;
+			disjoint = false;
+		}
+		double baseNorm = Math.sqrt(baseMagnitude);
+		double[] similarity = new double[norms.length];
+		for(int doc=0; doc < similarity.length; doc++) {
+			/*An empty document is NaN once the query shares a term with the corpus, as in TermAtATimeScorer.*/
+			if(norms[doc] == 0)
+				similarity[doc] = disjoint ? 0 : Double.NaN;
+			else
+				similarity[doc] = kernel.dot(dense, terms, weights, starts[doc], starts[doc + 1]) / (norms[doc] * baseNorm);
+		}
+		return similarity;
+	}
+	/** Scores a query and offers every document to a collector.
+	 *\param base The multiset of the query document.
+	 *\param results The collector keeping the most similar documents.
+	 */
+	public void score(MultiSet<Term> base, TopKCollector results) {
+		double[] similarity = score(base);
+		for(int doc=0; doc < similarity.length; doc++)
+			results.collect(doc, similarity[doc]);
+	}
+	/** Kernel accessor.
+	 *\return the fastest kernel this JVM can load, the one the vectors score with by default.
+	 */
+	public static DotProduct getFastestKernel() {
+		return FASTEST;
+	}
+	private static DotProduct loadKernel() {
+		/*VectorDotProduct can't be linked unless the JVM was started with the incubator module.*/
+		try {
+			return (DotProduct) Class.forName("DocumentCompare.VectorDotProduct").getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException e) {
+			return new ScalarDotProduct();
+		}
+		catch (LinkageError e) {
+			return new ScalarDotProduct();
+		}
+	}
+	/** Compares scoring with the vectors to scoring the index.
+	 *\param base The multiset of the query document.
+	 *\param tolerance The largest difference allowed between two similarities.
+	 *\return the number of documents whose similarities differ by more than the tolerance, NaN only matches NaN.
+	 */
+	public int compare(MultiSet<Term> base, double tolerance) {
+		double[] expected = new TermAtATimeScorer(index).score(base), actual = score(base);
+		int differences = 0;
+		for(int doc=0; doc < expected.length; doc++) {
+			if(Double.isNaN(expected[doc]) || Double.isNaN(actual[doc])) {
+				if(Double.isNaN(expected[doc]) != Double.isNaN(actual[doc]))
+					differences++;
+			}
+			else if(Math.abs(expected[doc] - actual[doc]) > tolerance)
+				differences++;
+		}
+		return differences;
+	}
+	/** Document count accessor.
+	 *\return the number of document vectors.
+	 */
+	public int getDocumentCount() {
+		return norms.length;
+	}
+	/** Norm accessor.
+	 *\param doc The document number.
+	 *\return the L2 norm of the document's vector.
+	 */
+	public float getNorm(int doc) {
+		return norms[doc];
+	}
+	/** Row accessor.
+	 *\param doc The document number.
+	 *\return the first entry of the document's vector in getTerms and getWeights.
+	 */
+	public int getStart(int doc) {
+		return starts[doc];
+	}
+	/** Row accessor.
+	 *\param doc The document number.
+	 *\return the entry after the last of the document's vector.
+	 */
+	public int getEnd(int doc) {
+		return starts[doc + 1];
+	}
+	/** Term numbers accessor.
+	 * The array is shared and must not be changed.
+	 *\return the term numbers of every vector, each row ascending.
+	 */
+	public int[] getTerms() {
+		return terms;
+	}
+	/** Weights accessor.
+	 * The array is shared and must not be changed.
+	 *\return the TF-IDF weight of each entry of getTerms.
+	 */
+	public float[] getWeights() {
+		return weights;
+	}
+}
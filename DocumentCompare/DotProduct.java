@@ -0,0 +1,34 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Dot product kernel.
+ * Multiplies a sparse document vector, a row of DocumentVectors, with a dense query vector
+ * indexed by term number: the query weight of each term of the row is gathered and multiplied by
+ * the row's weight. Implementations differ in how they do the arithmetic, see ScalarDotProduct and
+ * VectorDotProduct, and may round differently.
+ */
+public interface DotProduct {
+	/** Sparse dense dot product.
+	 *\param dense The weight of every term number, 0 for terms not in the query.
+	 *\param terms The term numbers of the row.
+	 *\param weights The weights of the row.
+	 *\param start The first entry of the row.
+	 *\param end The entry after the last of the row.
+	 *\return the sum of the products of the row's weights with the dense weights of the same terms.
+	 */
+	public double dot(float[] dense, int[] terms, float[] weights, int start, int end);
+}
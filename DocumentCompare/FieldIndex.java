@@ -0,0 +1,205 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+/** Field index.
+ * The documents and queries are CACM style, a line starting with ".T" begins the title, ".A" the
+ * authors and ".W" the body. Document runs every section together in to one set of terms, with the
+ * markers as terms of their own. This keeps an InvertedIndex for each field instead, made from the
+ * terms of that section alone, with its own document frequencies and magnitudes.
+ *
+ * A query is given a weight for each field. The similarity of a document is the TF-IDF cosine
+ * similarity of the query with each of its fields, averaged by the weights. A field with no weight
+ * isn't scored at all, so searching only the title or only the authors reads nothing but that
+ * field's postings. A document with an empty field, or a query sharing no term with a field,
+ * adds 0 for that field.
+ */
+public class FieldIndex {
+	/** Field numbers. */
+	public static final int TITLE = 0, AUTHOR = 1, BODY = 2;
+	/** The number of fields. */
+	public static final int FIELDS = 3;
+	/** The marker letter of each field. */
+	static final String MARKERS = "TAW";
+	/** The suffix of each field's index file. */
+	private static final String[] SUFFIXES = {".title", ".author", ".body"};
+	private final InvertedIndex[] fields;
+	/** Constructor.
+	 *\param newFields An index of each field, numbering the same documents.
+	 */
+	public FieldIndex(InvertedIndex[] newFields) {
+		if(newFields.length != FIELDS)
+			throw new IllegalArgumentException("There must be an index for each field.");
+		fields = newFields;
+	}
+	/** Parses the fields of a corpus.
+	 *\param documentPaths The files to index, their position in the array is their document number.
+	 *\param stopwords The stopwords to ignore, or null for none.
+	 *\param threads The number of threads to parse with.
+	 *\return the index of every field.
+	 *\throws IOException if any document doesn't open.
+	 */
+	public static FieldIndex load(File[] documentPaths, StopwordFilter stopwords, int threads) throws IOException {
+		return load(documentPaths, stopwords, threads, Charset.defaultCharset());
+	}
+	/** Parses the fields of a corpus, with the charset of the documents.
+	 *\param documentPaths The files to index, their position in the array is their document number.
+	 *\param stopwords The stopwords to ignore, or null for none.
+	 *\param threads The number of threads to parse with.
+	 *\param charset The charset the documents are in.
+	 *\return the index of every field.
+	 *\throws IOException if any document doesn't open.
+	 */
+	public static FieldIndex load(File[] documentPaths, StopwordFilter stopwords, int threads, Charset charset) throws IOException {
+		CorpusLoader loader = new CorpusLoader(threads, charset);
+		loader.loadFields(documentPaths, stopwords);
+		InvertedIndex[] fields = new InvertedIndex[FIELDS];
+		for(int field=0; field < FIELDS; field++)
+			fields[field] = new MemoryIndex(loader.getDocuments(field), loader.getDictionary(), loader.getDocumentFrequencyList(field));
+		return new FieldIndex(fields);
+	}
+	/** Opens the index files written by write.
+	 *\param indexFile The name the index was written with.
+	 *\return the index of every field.
+	 *\throws IOException if an index file can't be read.
+	 */
+	public static FieldIndex open(String indexFile) throws IOException {
+		InvertedIndex[] fields = new InvertedIndex[FIELDS];
+		for(int field=0; field < FIELDS; field++)
+			fields[field] = new Index(indexFile + SUFFIXES[field]);
+		return new FieldIndex(fields);
+	}
+	/** Writes an index file for each field, named after indexFile with the field as the extension.
+	 *\param indexFile The name to write the index with.
+	 *\throws IOException if an index can't be written.
+	 */
+	public void write(String indexFile) throws IOException {
+		for(int field=0; field < FIELDS; field++)
+			IndexWriter.write(fields[field], indexFile + SUFFIXES[field]);
+	}
+	/** Field accessor.
+	 *\param field The field number.
+	 *\return the index of that field.
+	 */
+	public InvertedIndex getField(int field) {
+		return fields[field];
+	}
+	/** Field lookup.
+	 *\param marker The letter after the dot of a section marker.
+	 *\return the field number, or -1 for a section that isn't indexed.
+	 */
+	public static int field(char marker) {
+		return MARKERS.indexOf(marker);
+	}
+	/** Parses field weights, such as "T=2,A=0,W=1".
+	 * Fields that aren't listed have no weight.
+	 *\param weights Comma separated marker letter and weight pairs.
+	 *\return the weight of every field, by field number.
+	 *\throws IllegalArgumentException if the weights can't be parsed, are negative or are all 0.
+	 */
+	public static double[] parseWeights(String weights) {
+		double[] parsed = new double[FIELDS];
+		double total = 0;
+		for(String pair : weights.split(",", -1)) {
+			int equals = pair.indexOf('=');
+			if(equals != 1 || field(pair.charAt(0)) < 0)
+				throw new IllegalArgumentException("Field weights look like T=2,A=0,W=1.");
+			double weight = Double.parseDouble(pair.substring(2));
+			if(!(weight >= 0) || Double.isInfinite(weight))
+				throw new IllegalArgumentException("Field weights must be 0 or more.");
+			parsed[field(pair.charAt(0))] = weight;
+			total += weight;
+		}
+		if(total == 0)
+			throw new IllegalArgumentException("At least one field needs a weight.");
+		return parsed;
+	}
+	/** Reads a query.
+	 * The section markers of the query are dropped, every section of it is matched against every field.
+	 *\param name The name of the query.
+	 *\param queryFile The text of the query, this is closed once read.
+	 *\return the multiset of the query terms.
+	 *\throws IOException if the query can't be read.
+	 */
+	public static MultiSet<Term> readQuery(String name, Reader queryFile) throws IOException {
+		MultiSet<Term> query = new MultiSet<Term>();
+		for(Document section : Document.readFields(name, queryFile, new TermDictionary()))
+			query.add(section.getMultiSet());
+		return query;
+	}
+	/** Scores a query against every document.
+	 *\param base The multiset of the query document.
+	 *\param weights The weight of every field, see parseWeights.
+	 *\return the weighted similarity of each document, indexed by document number.
+	 */
+	public double[] score(MultiSet<Term> base, double[] weights) {
+		double[] similarity = new double[fields[0].getDocumentCount()];
+		/*One field is its own similarity, it isn't rounded by multiplying and dividing by its weight.*/
+		boolean single = weightedFields(weights) == 1;
+		double total = 0;
+		for(int field=0; field < FIELDS; field++) {
+			if(weights[field] == 0)
+				continue;
+			double weight = single ? 1 : weights[field];
+			double[] fieldSimilarity = new TermAtATimeScorer(fields[field]).score(base);
+			for(int doc=0; doc < similarity.length; doc++)
+				if(!Double.isNaN(fieldSimilarity[doc]))
+					similarity[doc] += weight * fieldSimilarity[doc];
+			total += weight;
+		}
+		for(int doc=0; doc < similarity.length; doc++)
+			similarity[doc] /= total;
+		return similarity;
+	}
+	/** Scores a query and keeps the most similar documents.
+	 *\param base The multiset of the query document.
+	 *\param weights The weight of every field, see parseWeights.
+	 *\param resultCount The number of results to keep.
+	 *\return the most similar documents.
+	 */
+	public TopKCollector search(MultiSet<Term> base, double[] weights, int resultCount) {
+		/*A single field is searched with pruning. Its similarities are the field's own, but the pruning
+		 * scorer ranks empty fields as NaN rather than 0, so unless it finds enough documents with a
+		 * similarity above 0 the field is scored in full.
+		 */
+		if(weightedFields(weights) == 1) {
+			int field = 0;
+			while(weights[field] == 0)
+				field++;
+			TopKCollector results = new TopKCollector(resultCount);
+			new MaxScoreScorer(fields[field]).score(base, results);
+			double[] scores = results.getScores();
+			if(scores.length == resultCount && scores[scores.length - 1] > 0)
+				return results;
+		}
+		TopKCollector results = new TopKCollector(resultCount);
+		double[] similarity = score(base, weights);
+		for(int doc=0; doc < similarity.length; doc++)
+			results.collect(doc, similarity[doc]);
+		return results;
+	}
+	private static int weightedFields(double[] weights) {
+		int weighted = 0;
+		for(int field=0; field < FIELDS; field++)
+			if(weights[field] != 0)
+				weighted++;
+		return weighted;
+	}
+}
@@ -0,0 +1,100 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+/** An index seen with the document frequencies of another corpus.
+ * Scores the documents of a ShardIndex as the whole corpus would score them: the given terms take their
+ * document frequencies over every shard, which is what their inverse document frequencies are worked out
+ * from, and every other term is treated as being in no document. A given term that none of the shard's
+ * documents contain still counts towards the magnitude of the query, it has a number past the shard's
+ * terms and no postings.
+ *
+ * Made for a query, with the frequencies of its terms. Doesn't change, so it can be shared by threads.
+ */
+public class GlobalFrequencies implements InvertedIndex {
+	private final InvertedIndex index;
+	private final Map<String, Integer> numbers = new HashMap<String, Integer>();
+	private final Map<Integer, Integer> documentFrequencies = new HashMap<Integer, Integer>();
+	private final ArrayList<String> missing = new ArrayList<String>();
+	/** Constructor.
+	 *\param newIndex The index of the documents, usually a shard.
+	 *\param frequencies The document frequency over the whole corpus of each lower case term, every one greater than 0.
+	 */
+	public GlobalFrequencies(InvertedIndex newIndex, Map<String, Integer> frequencies) {
+		index = newIndex;
+		for(Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+			if(frequency.getValue() <= 0)
+				throw new IllegalArgumentException("The document frequency of " + frequency.getKey() + " must be greater than 0.");
+			int term = index.findTerm(frequency.getKey());
+			if(term < 0) {
+				term = index.getTermCount() + missing.size();
+				missing.add(frequency.getKey());
+			}
+			numbers.put(frequency.getKey(), term);
+			documentFrequencies.put(term, frequency.getValue());
+		}
+	}
+	public int getDocumentCount() {
+		return index.getDocumentCount();
+	}
+	public String getName(int doc) {
+		return index.getName(doc);
+	}
+	public int getLength(int doc) {
+		return index.getLength(doc);
+	}
+	public double getMagnitude(int doc) {
+		return index.getMagnitude(doc);
+	}
+	public double getMaxWeight(int term) {
+		return term < index.getTermCount() ? index.getMaxWeight(term) : 0;
+	}
+	public int getTermCount() {
+		return index.getTermCount() + missing.size();
+	}
+	public String getTerm(int term) {
+		return term < index.getTermCount() ? index.getTerm(term) : missing.get(term - index.getTermCount());
+	}
+	public int findTerm(String term) {
+		Integer number = numbers.get(term);
+		return number != null ? number : -1;
+	}
+	public int getDocumentFrequency(int term) {
+		Integer frequency = documentFrequencies.get(term);
+		return frequency != null ? frequency : 0;
+	}
+	public PostingsIterator getPostings(int term) {
+		if(term < index.getTermCount())
+			return index.getPostings(term);
+		return new PostingsIterator() {
+			public boolean next() {
+				return false;
+			}
+			public boolean advance(int target) {
+				return false;
+			}
+			public int getDocument() {
+				return -1;
+			}
+			public int getCount() {
+				return 0;
+			}
+		};
+	}
+}
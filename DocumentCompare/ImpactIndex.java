@@ -0,0 +1,125 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Impact index.
+ * The postings of an index with the weight of each posting worked out once by a Similarity, already divided
+ * by the magnitude of its document when the model is normalized. Scoring a query is then a multiply-add of
+ * the query term's weight with each of its postings, and a division by the query's magnitude at the end,
+ * with no logarithm or division per posting. The postings of each term are stored one after another in
+ * flat arrays, the weights as floats as DocumentVectors stores them, so similarities agree with the same
+ * model worked out in doubles to within DocumentVectors.TOLERANCE.
+ *
+ * As TermAtATimeScorer does, a normalized model gives an empty document NaN once the query shares a term
+ * with the corpus, and every other document NaN when it shares none. Immutable, any number of threads can score against one.
+ */
+public class ImpactIndex implements QueryScorer {
+	private final InvertedIndex index;
+	private final Similarity similarity;
+	/** Postings of each term, the postings of term run from starts[term] to starts[term + 1]. */
+	private final int[] starts;
+	private final int[] documents;
+	private final float[] impacts;
+	/** The magnitude of each document's weights, 1 for a model that isn't normalized. */
+	private final double[] norms;
+	/** Constructor, works out the weight of every posting.
+	 *\param newIndex The index of the documents.
+	 *\param newSimilarity The model to weigh the postings with.
+	 */
+	public ImpactIndex(InvertedIndex newIndex, Similarity newSimilarity) {
+		index = newIndex;
+		similarity = newSimilarity;
+		int documentCount = index.getDocumentCount(), termCount = index.getTermCount();
+		long totalLength = 0;
+		for(int doc=0; doc < documentCount; doc++)
+			totalLength += index.getLength(doc);
+		double averageLength = documentCount > 0 ? (double) totalLength / documentCount : 0;
+		starts = new int[termCount + 1];
+		for(int term=0; term < termCount; term++)
+			starts[term + 1] = starts[term] + index.getDocumentFrequency(term);
+		documents = new int[starts[termCount]];
+		impacts = new float[starts[termCount]];
+		/*Summed in doubles then rounded once, the magnitudes need every weight before any is divided.*/
+		double[] weights = new double[starts[termCount]];
+		double[] magnitudes = new double[documentCount];
+		for(int term=0; term < termCount; term++) {
+			int documentFrequency = index.getDocumentFrequency(term), entry = starts[term];
+			PostingsIterator postings = index.getPostings(term);
+			while(postings.next()) {
+				int doc = postings.getDocument();
+				documents[entry] = doc;
+				weights[entry] = similarity.documentWeight(postings.getCount(), index.getLength(doc), documentFrequency, documentCount, averageLength);
+				magnitudes[doc] += weights[entry] * weights[entry];
+				entry++;
+			}
+		}
+		norms = new double[documentCount];
+		for(int doc=0; doc < documentCount; doc++)
+			norms[doc] = similarity.isNormalized() ? Math.sqrt(magnitudes[doc]) : 1;
+		for(int entry=0; entry < weights.length; entry++)
+			impacts[entry] = (float) (weights[entry] / norms[documents[entry]]);
+	}
+	/** Index accessor.
+	 *\return the index the postings were read from.
+	 */
+	public InvertedIndex getIndex() {
+		return index;
+	}
+	/** Model accessor.
+	 *\return the model the postings were weighed with.
+	 */
+	public Similarity getSimilarity() {
+		return similarity;
+	}
+	/** Scores a query against every document.
+	 *\param base The multiset of the query document.
+	 *\return the similarity of each document, indexed by document number.
+	 */
+	public double[] score(MultiSet<Term> base) {
+		double[] area = new double[norms.length];
+		double baseMagnitude = 0;
+		boolean disjoint = true;
+		for(Term word : base) {
+			int term = index.findTerm(word.getValue().toLowerCase());
+			if(term < 0)
+				continue;
+			double baseRelevance = similarity.queryWeight(base.count(word), base.count(), index.getDocumentFrequency(term), index.getDocumentCount());
+			baseMagnitude += baseRelevance * baseRelevance;
+			disjoint = false;
+			for(int entry=starts[term]; entry < starts[term + 1]; entry++)
+				area[documents[entry]] = Math.fma(impacts[entry], baseRelevance, area[documents[entry]]);
+		}
+		if(!similarity.isNormalized())
+			return area;
+		double baseNorm = Math.sqrt(baseMagnitude);
+		for(int doc=0; doc < area.length; doc++) {
+			if(norms[doc] == 0)
+				area[doc] = disjoint ? 0 : Double.NaN;
+			else
+				area[doc] = area[doc] / baseNorm;
+		}
+		return area;
+	}
+	/** Scores a query and offers every document to a collector.
+	 *\param base The multiset of the query document.
+	 *\param results The collector keeping the most similar documents.
+	 */
+	public void score(MultiSet<Term> base, TopKCollector results) {
+		double[] similarity = score(base);
+		for(int doc=0; doc < similarity.length; doc++)
+			results.collect(doc, similarity[doc]);
+	}
+}
@@ -0,0 +1,194 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+/** Index object.
+ * This maps an index written by IndexWriter so queries can be scored against it,
+ * the documents the index was built from are not opened.
+ * Postings lists are decoded a block at a time as they are read, see CompressedPostings.
+ * Nothing is copied on to the heap, the tables are read in place through the mapping so opening
+ * an index is immediate and processes querying the same index share the page cache.
+ * An index over 2GB is mapped in pieces, see MappedFile, each postings list is read from the piece it starts in.
+ */
+public class Index implements InvertedIndex {
+	private MappedFile index;
+	private int documentCount, termCount;
+	private long documentsOffset, termsOffset, postingsOffset, stringsOffset;
+	private boolean compressed;
+	/** Index Constructor.
+	 * This maps the index file.
+	 *\param indexFile The file written by IndexWriter.
+	 *\throws IOException if the file can't be read or isn't an index.
+	 */
+	public Index(String indexFile) throws IOException {
+		this(indexFile, Integer.MAX_VALUE);
+	}
+	/** Index Constructor, with the largest mapping.
+	 * A postings list can be at most about half the largest mapping.
+	 *\param indexFile The file written by IndexWriter.
+	 *\param largestMapping The most bytes to map at once, a larger index is mapped in pieces.
+	 *\throws IOException if the file can't be read or isn't an index.
+	 */
+	public Index(String indexFile, int largestMapping) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(indexFile), StandardOpenOption.READ);
+		try {
+			if(channel.size() < IndexWriter.HEADER_SIZE)
+				throw new IOException(indexFile + " is not an index.");
+			index = new MappedFile(channel, largestMapping);
+			if(index.getInt(0) != IndexWriter.MAGIC)
+				throw new IOException(indexFile + " is not an index.");
+			if(index.getInt(4) != IndexWriter.VERSION)
+				throw new IOException(indexFile + " was written by a different version, rebuild it.");
+			documentCount = index.getInt(8);
+			termCount = index.getInt(12);
+			compressed = (index.getInt(16) & IndexWriter.COMPRESSED) != 0;
+			documentsOffset = index.getLong(24);
+			termsOffset = index.getLong(32);
+			postingsOffset = index.getLong(40);
+			stringsOffset = index.getLong(48);
+			/*The postings lists a piece boundary falls in are kept whole, the mappings stay valid after the channel is closed.*/
+			for(long boundary : index.getBoundaries()) {
+				if(boundary <= postingsOffset || boundary >= termsOffset || termCount == 0)
+					continue;
+				int term = lastPostingsBefore(boundary);
+				index.keepWhole(getPostingsOffset(term), term + 1 < termCount ? getPostingsOffset(term + 1) : termsOffset);
+			}
+		}
+		finally {
+			channel.close();
+		}
+	}
+	/** Binary search of the postings offsets, which ascend with the term table.
+	 *\param position A byte of the postings.
+	 *\return the last term whose postings start before the position.
+	 */
+	private int lastPostingsBefore(long position) {
+		int low = 0, high = termCount - 1;
+		while(low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if(getPostingsOffset(middle) < position)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+		return low;
+	}
+	public int getDocumentCount() {
+		return documentCount;
+	}
+	public String getName(int doc) {
+		long entry = documentsOffset + (long) doc * IndexWriter.DOCUMENT_ENTRY_SIZE;
+		return getString(index.getInt(entry), index.getInt(entry + 4));
+	}
+	public int getTermCount() {
+		return termCount;
+	}
+	public String getTerm(int term) {
+		long entry = termsOffset + (long) term * IndexWriter.TERM_ENTRY_SIZE;
+		return getString(index.getInt(entry), index.getInt(entry + 4));
+	}
+	public int findTerm(String term) {
+		return findTerm(term.getBytes(StandardCharsets.UTF_8));
+	}
+	/** Binary search of the term table.
+	 * The bytes are compared in place, so no Strings are made for the terms in the index.
+	 *\param term UTF-8 bytes of the lower case term.
+	 *\return the term number, or -1 when no document contains the term.
+	 */
+	private int findTerm(byte[] term) {
+		int low = 0, high = termCount - 1;
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			long entry = termsOffset + (long) middle * IndexWriter.TERM_ENTRY_SIZE;
+			long start = stringsOffset + index.getInt(entry);
+			int length = index.getInt(entry + 4);
+			int difference = 0;
+			for(int x=0; difference == 0 && x < Math.min(length, term.length); x++)
+				difference = (index.get(start + x) & 0xff) - (term[x] & 0xff);
+			if(difference == 0)
+				difference = length - term.length;
+			if(difference < 0)
+				low = middle + 1;
+			else if(difference > 0)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+	public int getLength(int doc) {
+		return index.getInt(documentsOffset + (long) doc * IndexWriter.DOCUMENT_ENTRY_SIZE + 8);
+	}
+	public double getMagnitude(int doc) {
+		return index.getDouble(documentsOffset + (long) doc * IndexWriter.DOCUMENT_ENTRY_SIZE + 12);
+	}
+	public int getDocumentFrequency(int term) {
+		return index.getInt(termsOffset + (long) term * IndexWriter.TERM_ENTRY_SIZE + 8);
+	}
+	public double getMaxWeight(int term) {
+		return index.getDouble(termsOffset + (long) term * IndexWriter.TERM_ENTRY_SIZE + 20);
+	}
+	public PostingsIterator getPostings(int term) {
+		final ByteBuffer index = this.index.buffer(getPostingsOffset(term));
+		final int start = this.index.offset(getPostingsOffset(term));
+		if(compressed)
+			return CompressedPostings.iterator(index, start, getDocumentFrequency(term));
+		final int end = start + getDocumentFrequency(term) * IndexWriter.POSTING_SIZE;
+		return new PostingsIterator() {
+			private int posting = start - IndexWriter.POSTING_SIZE;
+			public boolean next() {
+				posting += IndexWriter.POSTING_SIZE;
+				return posting < end;
+			}
+			public boolean advance(int target) {
+				if(posting < start)
+					posting = start;
+				/*Binary search of the postings after the current one.*/
+				int low = (posting - start) / IndexWriter.POSTING_SIZE, high = (end - start) / IndexWriter.POSTING_SIZE;
+				while(low < high) {
+					int middle = (low + high) >>> 1;
+					if(index.getInt(start + middle * IndexWriter.POSTING_SIZE) < target)
+						low = middle + 1;
+					else
+						high = middle;
+				}
+				posting = start + low * IndexWriter.POSTING_SIZE;
+				return posting < end;
+			}
+			public int getDocument() {
+				return index.getInt(posting);
+			}
+			public int getCount() {
+				return index.getInt(posting + 4);
+			}
+		};
+	}
+	private long getPostingsOffset(int term) {
+		return index.getLong(termsOffset + (long) term * IndexWriter.TERM_ENTRY_SIZE + 12);
+	}
+	private String getString(int offset, int length) {
+		byte[] bytes = new byte[length];
+		for(int x=0; x < length; x++)
+			bytes[x] = index.get(stringsOffset + offset + x);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,429 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+/** Streaming index builder.
+ * Writes the same index file as IndexWriter, but without holding the corpus in memory, so corpora
+ * much larger than the heap can be indexed. Each document is dropped as soon as it is parsed and its
+ * postings go in to a fixed size buffer. A full buffer is sorted by term and spilled to a run on disk,
+ * then the runs are merged, several passes if there are many, in to postings lists.
+ *
+ * Only the dictionary and a name, length and magnitude per document stay on the heap.
+ * Each thread has its own buffer and takes documents in ascending order, so sorting a buffer by term
+ * with a stable counting sort leaves every postings list in document order.
+ */
+public class IndexBuilder {
+	/** Bytes a buffered posting takes: term number, document number and n(d,t). */
+	static final int POSTING_BYTES = 3 * 4;
+	/** Most runs merged at once, each open run holds a file and its read buffer. */
+	static final int MERGE_FAN_IN = 64;
+	private final int threads;
+	private final int bufferSize;
+	private final Charset charset;
+	private String[] names;
+	private int[] lengths;
+	private TermDictionary dictionary;
+	private File runDirectory;
+	private final List<File> runs = new ArrayList<File>();
+	/** Constructor.
+	 *\param threadCount The number of threads to parse with.
+	 *\param memoryBudget Bytes for the postings buffers, shared by the threads. Half of it is buffer,
+	 * the other half the copy the buffer is sorted in to.
+	 */
+	public IndexBuilder(int threadCount, long memoryBudget) {
+		this(threadCount, memoryBudget, Charset.defaultCharset());
+	}
+	/** Constructor, with the charset of the documents.
+	 *\param threadCount The number of threads to parse with.
+	 *\param memoryBudget Bytes for the postings buffers, shared by the threads.
+	 *\param newCharset The charset the documents are in.
+	 */
+	public IndexBuilder(int threadCount, long memoryBudget, Charset newCharset) {
+		if(threadCount <= 0)
+			throw new IllegalArgumentException("Thread count must be greater than 0.");
+		threads = threadCount;
+		bufferSize = (int) Math.min(Integer.MAX_VALUE / 3, Math.max(1, memoryBudget / (2 * POSTING_BYTES) / threadCount));
+		charset = newCharset;
+	}
+	/** Builds an index file.
+	 *\param documentPaths The files to index, their position in the array is their document number.
+	 *\param stopwords The stopwords to ignore, or null for none.
+	 *\param indexFile The file to write.
+	 *\throws IOException if a document can't be read or the index can't be written.
+	 */
+	public void build(File[] documentPaths, StopwordFilter stopwords, String indexFile) throws IOException {
+		names = new String[documentPaths.length];
+		lengths = new int[documentPaths.length];
+		dictionary = new TermDictionary(stopwords);
+		runs.clear();
+		/*Runs are kept beside the index, where there is room for it.*/
+		File parent = new File(indexFile).getAbsoluteFile().getParentFile();
+		runDirectory = Files.createTempDirectory(parent.toPath(), "runs").toFile();
+		try {
+			parse(documentPaths);
+			while(runs.size() > MERGE_FAN_IN)
+				mergePass();
+			File postings = new File(runDirectory, "postings");
+			SpilledIndex index = mergePostings(postings);
+			IndexWriter.write(index, indexFile);
+		}
+		finally {
+			for(File file : runDirectory.listFiles())
+				file.delete();
+			runDirectory.delete();
+		}
+	}
+	private void parse(File[] documentPaths) throws IOException {
+		Worker worker = new Worker(documentPaths);
+		int workers = Math.min(threads, documentPaths.length);
+		if(workers <= 1) {
+			worker.call();
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			ArrayList<Future<Void>> results = new ArrayList<Future<Void>>();
+			for(int x=0; x < workers; x++)
+				results.add(pool.submit(worker));
+			for(Future<Void> result : results)
+				result.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading documents.");
+		}
+		catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+	/** Parses documents until there are none left, every thread with its own buffer. */
+	private class Worker implements Callable<Void> {
+		private final AtomicInteger next = new AtomicInteger();
+		private final File[] documentPaths;
+		Worker(File[] newDocumentPaths) {
+			documentPaths = newDocumentPaths;
+		}
+		public Void call() throws IOException {
+			int[] buffer = new int[bufferSize * 3];
+			int size = 0;
+			DocumentReader reader = new DocumentReader(charset);
+			for(int x = next.getAndIncrement(); x < documentPaths.length; x = next.getAndIncrement()) {
+				/*The dictionary skips the stopwords.*/
+				String name = documentPaths[x].getPath();
+				Document document = Document.read(name, reader.read(name, dictionary, false), dictionary);
+				names[x] = document.getName();
+				lengths[x] = document.getLength();
+				int[] numbers = document.getTermNumbers(), counts = document.getTermCounts();
+				for(int y=0; y < numbers.length; y++) {
+					if(size == buffer.length) {
+						spill(buffer, size);
+						size = 0;
+					}
+					buffer[size++] = numbers[y];
+					buffer[size++] = x;
+					buffer[size++] = counts[y];
+				}
+			}
+			if(size > 0)
+				spill(buffer, size);
+			return null;
+		}
+	}
+	/** Sorts a buffer by term and writes it as a run.
+	 *\param buffer Postings as (term, document, count) triples, in document order.
+	 *\param size The number of ints used.
+	 */
+	private void spill(int[] buffer, int size) throws IOException {
+		/*Every term in the buffer is already in the dictionary.*/
+		int[] starts = new int[dictionary.size() + 1];
+		for(int x=0; x < size; x += 3)
+			starts[buffer[x] + 1] += 3;
+		for(int term=1; term < starts.length; term++)
+			starts[term] += starts[term - 1];
+		int[] sorted = new int[size];
+		for(int x=0; x < size; x += 3) {
+			int position = starts[buffer[x]];
+			starts[buffer[x]] += 3;
+			sorted[position] = buffer[x];
+			sorted[position + 1] = buffer[x + 1];
+			sorted[position + 2] = buffer[x + 2];
+		}
+		File run = newRun();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)));
+		try {
+			for(int x=0; x < size; x++)
+				out.writeInt(sorted[x]);
+		}
+		finally {
+			out.close();
+		}
+		synchronized(runs) {
+			runs.add(run);
+		}
+	}
+	private File newRun() throws IOException {
+		return File.createTempFile("run", "", runDirectory);
+	}
+	/** Merges the runs MERGE_FAN_IN at a time in to fewer, longer runs. */
+	private void mergePass() throws IOException {
+		ArrayList<File> merged = new ArrayList<File>();
+		for(int start=0; start < runs.size(); start += MERGE_FAN_IN) {
+			List<File> group = runs.subList(start, Math.min(start + MERGE_FAN_IN, runs.size()));
+			File run = newRun();
+			RunMerger merger = new RunMerger(group);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)));
+			try {
+				while(merger.next()) {
+					out.writeInt(merger.term);
+					out.writeInt(merger.doc);
+					out.writeInt(merger.count);
+				}
+			}
+			finally {
+				out.close();
+				merger.close();
+			}
+			for(File file : group)
+				file.delete();
+			merged.add(run);
+		}
+		runs.clear();
+		runs.addAll(merged);
+	}
+	/** The last merge, writes the postings lists in term number order and sums the magnitudes.
+	 *\param postingsFile The file to write the postings lists to.
+	 *\return the index, with its postings read from the file.
+	 */
+	private SpilledIndex mergePostings(File postingsFile) throws IOException {
+		int termCount = dictionary.size();
+		int[] documentFrequencies = new int[termCount];
+		long[] offsets = new long[termCount];
+		double[] magnitudes = new double[names.length];
+		/*One postings list at a time is held, its document frequency is only known at its end.*/
+		int[] documents = new int[16], counts = new int[16];
+		RunMerger merger = new RunMerger(runs);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(postingsFile)));
+		try {
+			long offset = 0;
+			boolean more = merger.next();
+			while(more) {
+				int term = merger.term, size = 0;
+				for(; more && merger.term == term; more = merger.next()) {
+					if(size == documents.length) {
+						documents = Arrays.copyOf(documents, size * 2);
+						counts = Arrays.copyOf(counts, size * 2);
+					}
+					documents[size] = merger.doc;
+					counts[size] = merger.count;
+					size++;
+				}
+				documentFrequencies[term] = size;
+				offsets[term] = offset;
+				double inverseDocumentFrequency = 1 / (double) size;
+				for(int x=0; x < size; x++) {
+					double relevance = inverseDocumentFrequency * Math.log(1 + (double) counts[x] / (double) lengths[documents[x]]);
+					magnitudes[documents[x]] += relevance * relevance;
+					out.writeInt(documents[x]);
+					out.writeInt(counts[x]);
+				}
+				offset += (long) size * IndexWriter.POSTING_SIZE;
+			}
+		}
+		finally {
+			out.close();
+			merger.close();
+		}
+		return new SpilledIndex(names, lengths, magnitudes, dictionary, documentFrequencies, offsets, postingsFile);
+	}
+	/** Merges sorted runs in to one stream of postings, ordered by term then document. */
+	private static class RunMerger {
+		private final PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>();
+		private final ArrayList<RunReader> readers = new ArrayList<RunReader>();
+		int term, doc, count;
+		RunMerger(List<File> runs) throws IOException {
+			try {
+				for(File run : runs) {
+					RunReader reader = new RunReader(run);
+					readers.add(reader);
+					if(reader.next())
+						queue.add(reader);
+				}
+			}
+			catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+		/** Moves to the next posting.
+		 *\return false when every run is used up.
+		 */
+		boolean next() throws IOException {
+			RunReader reader = queue.poll();
+			if(reader == null)
+				return false;
+			term = reader.term;
+			doc = reader.doc;
+			count = reader.count;
+			if(reader.next())
+				queue.add(reader);
+			return true;
+		}
+		void close() throws IOException {
+			for(RunReader reader : readers)
+				reader.in.close();
+		}
+	}
+	/** Reads a run one posting at a time. */
+	private static class RunReader implements Comparable<RunReader> {
+		final DataInputStream in;
+		int term, doc, count;
+		RunReader(File run) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+		}
+		boolean next() throws IOException {
+			try {
+				term = in.readInt();
+			}
+			catch (EOFException e) {
+				return false;
+			}
+			doc = in.readInt();
+			count = in.readInt();
+			return true;
+		}
+		public int compareTo(RunReader other) {
+			if(term != other.term)
+				return term < other.term ? -1 : 1;
+			return doc < other.doc ? -1 : doc > other.doc ? 1 : 0;
+		}
+	}
+	/** The merged corpus as IndexWriter reads it, the postings lists are mapped from the merged file. */
+	private static class SpilledIndex implements InvertedIndex {
+		private final String[] names;
+		private final int[] lengths;
+		private final double[] magnitudes, maxWeights;
+		private final TermDictionary dictionary;
+		private final int[] documentFrequencies;
+		private final long[] offsets;
+		private final MappedFile postings;
+		SpilledIndex(String[] newNames, int[] newLengths, double[] newMagnitudes, TermDictionary newDictionary, int[] newDocumentFrequencies, long[] newOffsets, File postingsFile) throws IOException {
+			names = newNames;
+			lengths = newLengths;
+			magnitudes = newMagnitudes;
+			dictionary = newDictionary;
+			documentFrequencies = newDocumentFrequencies;
+			offsets = newOffsets;
+			FileChannel channel = FileChannel.open(postingsFile.toPath(), StandardOpenOption.READ);
+			try {
+				postings = new MappedFile(channel, Integer.MAX_VALUE);
+				/*Each list is read from the piece it starts in.*/
+				for(int term=0; term < offsets.length; term++)
+					if(documentFrequencies[term] > 0)
+						postings.keepWhole(offsets[term], offsets[term] + (long) documentFrequencies[term] * IndexWriter.POSTING_SIZE);
+			}
+			finally {
+				channel.close();
+			}
+			maxWeights = MaxScoreScorer.maxWeights(this);
+		}
+		public int getDocumentCount() {
+			return names.length;
+		}
+		public String getName(int doc) {
+			return names[doc];
+		}
+		public int getLength(int doc) {
+			return lengths[doc];
+		}
+		public double getMagnitude(int doc) {
+			return magnitudes[doc];
+		}
+		public double getMaxWeight(int term) {
+			return maxWeights[term];
+		}
+		public int getTermCount() {
+			return documentFrequencies.length;
+		}
+		public String getTerm(int term) {
+			return dictionary.getValue(term);
+		}
+		public int findTerm(String term) {
+			int number = dictionary.find(term);
+			if(number < 0 || number >= documentFrequencies.length || documentFrequencies[number] == 0)
+				return -1;
+			return number;
+		}
+		public int getDocumentFrequency(int term) {
+			return documentFrequencies[term];
+		}
+		public PostingsIterator getPostings(int term) {
+			final ByteBuffer postings = this.postings.buffer(offsets[term]);
+			final int start = this.postings.offset(offsets[term]);
+			final int end = start + documentFrequencies[term] * IndexWriter.POSTING_SIZE;
+			return new PostingsIterator() {
+				private int posting = start - IndexWriter.POSTING_SIZE;
+				public boolean next() {
+					posting += IndexWriter.POSTING_SIZE;
+					return posting < end;
+				}
+				public boolean advance(int target) {
+					if(posting < start)
+						posting = start;
+					while(posting < end && postings.getInt(posting) < target)
+						posting += IndexWriter.POSTING_SIZE;
+					return posting < end;
+				}
+				public int getDocument() {
+					return postings.getInt(posting);
+				}
+				public int getCount() {
+					return postings.getInt(posting + 4);
+				}
+			};
+		}
+	}
+}
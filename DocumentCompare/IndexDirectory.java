@@ -0,0 +1,411 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+/** Index directory.
+ * An index that is kept up to date with its data directory instead of being built again.
+ * The directory holds segments, each an index file written by IndexWriter, and a manifest naming
+ * the segments and the document every file of the data directory is in, with the modification
+ * time and size the file had when it was read.
+ *
+ * An update only parses the files that are new or whose time or size changed, and writes them to
+ * a new segment. A changed or removed file is dropped from the manifest, its old postings stay in
+ * their segment until the next merge but are skipped. Segments are never written to once the
+ * manifest names them and the manifest is replaced with an atomic rename, so readers always see a
+ * complete generation of the index. A segment the manifest stops naming is deleted by the commit after,
+ * so a reader that read the previous manifest can still open it, and a reader that finds a segment gone
+ * reads the newer manifest again.
+ *
+ * Document frequencies and magnitudes depend on the whole corpus, so the statistics of a segment
+ * are only right on their own. Opening several segments adds them together over the live documents,
+ * which walks every posting. A merge writes the live documents to a single segment with the
+ * statistics of the whole corpus, which is then mapped like any other index file. Merges start on
+ * a background thread once there are MERGE_SEGMENTS segments.
+ *
+ * Documents are numbered in name order, as DocCompare numbers them, so queries against an updated
+ * index give the same results as an index built again from the same files and stopwords.
+ * One process at a time may update a directory, any number may query it.
+ */
+public class IndexDirectory {
+	/** Identifies a manifest, "DCSG". */
+	static final int MAGIC = 0x44435347;
+	/** Manifest layout version. */
+	static final int VERSION = 1;
+	/** Name of the manifest in the directory. */
+	static final String MANIFEST = "segments";
+	/** Number of segments that starts a background merge. */
+	static final int MERGE_SEGMENTS = 8;
+	private final File directory;
+	private Thread merger;
+	/** Constructor.
+	 * The directory is made if it doesn't exist, it holds no index until the first update.
+	 *\param indexDirectory The directory holding the segments.
+	 *\throws IOException if the directory can't be made.
+	 */
+	public IndexDirectory(String indexDirectory) throws IOException {
+		directory = new File(indexDirectory);
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException(indexDirectory + " is not a directory.");
+	}
+	/** Brings the index up to date with the data directory.
+	 *\param documentDirectory The data directory.
+	 *\param stopwords The stopwords to ignore, the same on every update.
+	 *\param threads The number of threads to parse new documents with.
+	 *\return false if nothing had changed.
+	 *\throws IOException if a document can't be read or the index can't be written.
+	 */
+	public boolean update(String documentDirectory, StopwordFilter stopwords, int threads) throws IOException {
+		return update(documentDirectory, stopwords, threads, Charset.defaultCharset());
+	}
+	/** Brings the index up to date with the data directory, with the charset of the documents.
+	 *\param documentDirectory The data directory.
+	 *\param stopwords The stopwords to ignore, the same on every update.
+	 *\param threads The number of threads to parse new documents with.
+	 *\param charset The charset the documents are in, the same on every update.
+	 *\return false if nothing had changed.
+	 *\throws IOException if a document can't be read or the index can't be written.
+	 */
+	public synchronized boolean update(String documentDirectory, StopwordFilter stopwords, int threads, Charset charset) throws IOException {
+		File[] documentPaths = DocCompare.listDocuments(documentDirectory);
+		Manifest manifest = readManifest();
+		ArrayList<File> changed = new ArrayList<File>();
+		ArrayList<Long> modified = new ArrayList<Long>(), sizes = new ArrayList<Long>();
+		HashSet<String> present = new HashSet<String>();
+		for(File path : documentPaths) {
+			present.add(path.getPath());
+			/*Read before the file is parsed, a file written meanwhile is parsed again next time.*/
+			long time = path.lastModified(), size = path.length();
+			Location location = manifest.documents.get(path.getPath());
+			if(location == null || location.modified != time || location.size != size) {
+				changed.add(path);
+				modified.add(time);
+				sizes.add(size);
+			}
+		}
+		boolean removed = false;
+		for(Iterator<String> names = manifest.documents.keySet().iterator(); names.hasNext();) {
+			if(!present.contains(names.next())) {
+				names.remove();
+				removed = true;
+			}
+		}
+		if(changed.isEmpty() && !removed)
+			return false;
+		if(!changed.isEmpty()) {
+			CorpusLoader loader = new CorpusLoader(threads, charset);
+			loader.load(changed.toArray(new File[changed.size()]), stopwords);
+			String segment = segmentName(manifest.generation + 1);
+			IndexWriter.write(new MemoryIndex(loader.getDocuments(), loader.getDictionary(), loader.getDocumentFrequencyList()), new File(directory, segment).getPath());
+			manifest.segments.add(segment);
+			for(int doc=0; doc < changed.size(); doc++)
+				manifest.documents.put(changed.get(doc).getPath(), new Location(manifest.segments.size() - 1, doc, modified.get(doc), sizes.get(doc)));
+		}
+		commit(manifest);
+		if(manifest.segments.size() >= MERGE_SEGMENTS && (merger == null || !merger.isAlive())) {
+			merger = new Thread(new Runnable() {
+				public void run() {
+					try {
+						merge();
+					}
+					catch (IOException e) {
+						System.err.println("Merging " + directory + " failed: " + e.getMessage());
+					}
+				}
+			}, "IndexDirectory merge");
+			merger.start();
+		}
+		return true;
+	}
+	/** Writes the live documents of every segment to one segment.
+	 *\throws IOException if the index can't be read or written.
+	 */
+	public synchronized void merge() throws IOException {
+		Manifest manifest = readManifest();
+		Index[] segments = openSegments(manifest);
+		if(segments.length == 0 || isMerged(manifest, segments))
+			return;
+		String segment = segmentName(manifest.generation + 1);
+		IndexWriter.write(assemble(manifest, segments), new File(directory, segment).getPath());
+		manifest.segments.add(segment);
+		int doc = 0;
+		/*The old segments are left without live documents, so the commit drops them.*/
+		for(Map.Entry<String, Location> document : manifest.documents.entrySet()) {
+			Location location = document.getValue();
+			document.setValue(new Location(manifest.segments.size() - 1, doc++, location.modified, location.size));
+		}
+		commit(manifest);
+	}
+	/** Waits for a background merge to finish.
+	 *\throws InterruptedException if interrupted while waiting.
+	 */
+	public void awaitMerge() throws InterruptedException {
+		Thread current;
+		synchronized(this) {
+			current = merger;
+		}
+		if(current != null)
+			current.join();
+	}
+	/** Opens the current generation of the index.
+	 * A merged index is mapped, otherwise the segments are added together on the heap.
+	 *\return the index, which doesn't change when the directory is updated.
+	 *\throws IOException if there is no index in the directory or it can't be read.
+	 */
+	public InvertedIndex open() throws IOException {
+		Manifest manifest;
+		Index[] segments;
+		while(true) {
+			manifest = readManifest();
+			try {
+				segments = openSegments(manifest);
+				break;
+			}
+			catch (NoSuchFileException e) {
+				/*Another process committed twice since the manifest was read, the newer one names the segments to open.*/
+				if(readManifest().generation == manifest.generation)
+					throw e;
+			}
+		}
+		if(segments.length == 0)
+			throw new IOException(directory + " holds no index, update it from a data directory first.");
+		if(isMerged(manifest, segments))
+			return segments[0];
+		return assemble(manifest, segments);
+	}
+	/** Generation accessor.
+	 * Every update or merge that changes the index commits a new generation, only the header of the manifest is read.
+	 *\return the generation of the index, 0 before the first update.
+	 *\throws IOException if the manifest can't be read.
+	 */
+	public long getGeneration() throws IOException {
+		File file = new File(directory, MANIFEST);
+		if(!file.exists())
+			return 0;
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			if(in.readInt() != MAGIC)
+				throw new IOException(file + " is not an index manifest.");
+			if(in.readInt() != VERSION)
+				throw new IOException(file + " was written by a different version, rebuild the index.");
+			return in.readLong();
+		}
+		finally {
+			in.close();
+		}
+	}
+	/** A single segment without removed documents has the statistics of the whole corpus. */
+	private static boolean isMerged(Manifest manifest, Index[] segments) {
+		return segments.length == 1 && segments[0].getDocumentCount() == manifest.documents.size();
+	}
+	private Index[] openSegments(Manifest manifest) throws IOException {
+		Index[] segments = new Index[manifest.segments.size()];
+		for(int x=0; x < segments.length; x++)
+			segments[x] = new Index(new File(directory, manifest.segments.get(x)).getPath());
+		return segments;
+	}
+	/** Adds the live documents of the segments together.
+	 *\param manifest The live documents.
+	 *\param segments The mapped segments, in manifest order.
+	 *\return an index of the live documents, numbered in name order.
+	 */
+	private static MemoryIndex assemble(Manifest manifest, Index[] segments) {
+		int documentCount = manifest.documents.size();
+		String[] names = new String[documentCount];
+		int[] lengths = new int[documentCount];
+		/*Segment document numbers to index document numbers, -1 for documents that are gone.*/
+		int[][] numbers = new int[segments.length][];
+		for(int segment=0; segment < segments.length; segment++) {
+			numbers[segment] = new int[segments[segment].getDocumentCount()];
+			Arrays.fill(numbers[segment], -1);
+		}
+		int doc = 0;
+		for(Map.Entry<String, Location> document : manifest.documents.entrySet()) {
+			Location location = document.getValue();
+			numbers[location.segment][location.doc] = doc;
+			names[doc] = document.getKey();
+			lengths[doc] = segments[location.segment].getLength(location.doc);
+			doc++;
+		}
+		/*The first pass numbers the terms and counts their live postings, the second fills the postings.*/
+		TermDictionary dictionary = new TermDictionary();
+		IntMultiSet documentFrequency = new IntMultiSet();
+		int[][] terms = new int[segments.length][];
+		for(int segment=0; segment < segments.length; segment++) {
+			terms[segment] = new int[segments[segment].getTermCount()];
+			for(int term=0; term < terms[segment].length; term++) {
+				String value = segments[segment].getTerm(term);
+				int number = dictionary.add(value.toCharArray(), value.length(), value.hashCode(), value).number;
+				terms[segment][term] = number;
+				PostingsIterator postings = segments[segment].getPostings(term);
+				while(postings.next())
+					if(numbers[segment][postings.getDocument()] >= 0)
+						documentFrequency.add(number);
+			}
+		}
+		int termCount = dictionary.size();
+		int[][] postingDocuments = new int[termCount][], postingCounts = new int[termCount][];
+		for(int term=0; term < termCount; term++) {
+			postingDocuments[term] = new int[documentFrequency.count(term)];
+			postingCounts[term] = new int[documentFrequency.count(term)];
+		}
+		int[] sizes = new int[termCount];
+		for(int segment=0; segment < segments.length; segment++) {
+			for(int term=0; term < terms[segment].length; term++) {
+				int number = terms[segment][term];
+				PostingsIterator postings = segments[segment].getPostings(term);
+				while(postings.next()) {
+					int live = numbers[segment][postings.getDocument()];
+					if(live < 0)
+						continue;
+					postingDocuments[number][sizes[number]] = live;
+					postingCounts[number][sizes[number]] = postings.getCount();
+					sizes[number]++;
+				}
+			}
+		}
+		/*Each segment's postings are in name order, a term in several segments needs them interleaved.*/
+		for(int term=0; term < termCount; term++)
+			sortPostings(postingDocuments[term], postingCounts[term]);
+		return new MemoryIndex(names, lengths, dictionary, postingDocuments, postingCounts);
+	}
+	private static void sortPostings(int[] documents, int[] counts) {
+		boolean sorted = true;
+		for(int x=1; sorted && x < documents.length; x++)
+			sorted = documents[x - 1] < documents[x];
+		if(sorted)
+			return;
+		long[] postings = new long[documents.length];
+		for(int x=0; x < documents.length; x++)
+			postings[x] = (long) documents[x] << 32 | counts[x];
+		Arrays.sort(postings);
+		for(int x=0; x < documents.length; x++) {
+			documents[x] = (int) (postings[x] >>> 32);
+			counts[x] = (int) postings[x];
+		}
+	}
+	private static String segmentName(long generation) {
+		return "segment-" + generation + ".idx";
+	}
+	private Manifest readManifest() throws IOException {
+		Manifest manifest = new Manifest();
+		File file = new File(directory, MANIFEST);
+		if(!file.exists())
+			return manifest;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if(in.readInt() != MAGIC)
+				throw new IOException(file + " is not an index manifest.");
+			if(in.readInt() != VERSION)
+				throw new IOException(file + " was written by a different version, rebuild the index.");
+			manifest.generation = in.readLong();
+			int segmentCount = in.readInt();
+			for(int x=0; x < segmentCount; x++)
+				manifest.segments.add(in.readUTF());
+			int documentCount = in.readInt();
+			for(int x=0; x < documentCount; x++) {
+				String name = in.readUTF();
+				manifest.documents.put(name, new Location(in.readInt(), in.readInt(), in.readLong(), in.readLong()));
+			}
+		}
+		finally {
+			in.close();
+		}
+		return manifest;
+	}
+	/** Writes the next generation of the manifest and deletes the segments neither it nor the last one needs.
+	 * A segment the new manifest drops is kept for readers of the last one until the next commit.
+	 *\param manifest The new state of the index, its segments are renumbered.
+	 */
+	private void commit(Manifest manifest) throws IOException {
+		HashSet<String> named = new HashSet<String>(readManifest().segments);
+		named.addAll(manifest.segments);
+		File[] files = directory.listFiles();
+		if(files != null)
+			for(File file : files)
+				if(file.getName().startsWith("segment-") && file.getName().endsWith(".idx") && !named.contains(file.getName()))
+					file.delete();
+		/*Segments without live documents are dropped.*/
+		boolean[] live = new boolean[manifest.segments.size()];
+		for(Location location : manifest.documents.values())
+			live[location.segment] = true;
+		int[] renumbered = new int[live.length];
+		ArrayList<String> segments = new ArrayList<String>();
+		for(int segment=0; segment < live.length; segment++) {
+			renumbered[segment] = segments.size();
+			if(live[segment])
+				segments.add(manifest.segments.get(segment));
+		}
+		manifest.generation++;
+		File temporary = new File(directory, MANIFEST + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(manifest.generation);
+			out.writeInt(segments.size());
+			for(String segment : segments)
+				out.writeUTF(segment);
+			out.writeInt(manifest.documents.size());
+			for(Map.Entry<String, Location> document : manifest.documents.entrySet()) {
+				Location location = document.getValue();
+				out.writeUTF(document.getKey());
+				out.writeInt(renumbered[location.segment]);
+				out.writeInt(location.doc);
+				out.writeLong(location.modified);
+				out.writeLong(location.size);
+			}
+		}
+		finally {
+			out.close();
+		}
+		Files.move(temporary.toPath(), new File(directory, MANIFEST).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+	/** The segments and live documents of one generation, documents sorted by name. */
+	private static final class Manifest {
+		long generation = 0;
+		final ArrayList<String> segments = new ArrayList<String>();
+		final TreeMap<String, Location> documents = new TreeMap<String, Location>();
+	}
+	/** Where a document is and the state of its file when it was read. */
+	private static final class Location {
+		final int segment, doc;
+		final long modified, size;
+		Location(int newSegment, int newDoc, long newModified, long newSize) {
+			segment = newSegment;
+			doc = newDoc;
+			modified = newModified;
+			size = newSize;
+		}
+	}
+}
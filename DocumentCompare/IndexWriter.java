@@ -0,0 +1,178 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.IOException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+/** Index writer.
+ * Writes the statistics of an InvertedIndex, usually a MemoryIndex, to disk so that queries can be answered
+ * without parsing the documents again. The index holds, for every document, its name and
+ * total term count n(d), and for every term its document frequency n(t) and the postings
+ * list of (document number, n(d,t)) pairs.
+ *
+ * The squared magnitude of every document's TF-IDF vector is stored as well, so there is no
+ * reason to sum it when the index is opened, and so is the weight bound MaxScoreScorer prunes with.
+ *
+ * The layout is made of fixed width tables so that Index can map the file and read it in place:
+ * a header of section offsets, the document table, the postings, the term table sorted by the UTF-8
+ * bytes of the term and finally the pool of UTF-8 strings the tables point in to.
+ * The postings are CompressedPostings unless the header flags say they are plain (document number, n(d,t))
+ * pairs. The postings are written before the term table so that each list is encoded once, the header
+ * is filled in last. All numbers are big endian. Section and postings offsets are longs so the postings
+ * can pass 2GB, string offsets are ints from the start of the pool, which holds only names and terms.
+ */
+public class IndexWriter {
+	/** Identifies an index file, "DCIX". */
+	static final int MAGIC = 0x44434958;
+	/** Layout version, bumped whenever the file layout changes. */
+	static final int VERSION = 4;
+	/** Header flag set when the postings are compressed. */
+	static final int COMPRESSED = 1;
+	/** Bytes in the header: magic, version, document count, term count, flags, a reserved int and four section offsets. */
+	static final int HEADER_SIZE = 6 * 4 + 4 * 8;
+	/** Bytes per document table entry: name offset, name length, n(d) and the squared magnitude of the document. */
+	static final int DOCUMENT_ENTRY_SIZE = 3 * 4 + 8;
+	/** Bytes per term table entry: string offset, string length, n(t), postings offset and the weight bound of the term. */
+	static final int TERM_ENTRY_SIZE = 3 * 4 + 8 + 8;
+	/** Bytes per plain posting: document number and n(d,t). */
+	static final int POSTING_SIZE = 2 * 4;
+	/** Writes an index with compressed postings.
+	 *\param index The inverted documents, see MemoryIndex.
+	 *\param indexFile The file to write to.
+	 *\throws IOException if the index can't be written.
+	 */
+	public static void write(InvertedIndex index, String indexFile) throws IOException {
+		write(index, indexFile, true);
+	}
+	/** Writes an index.
+	 *\param index The inverted documents, see MemoryIndex.
+	 *\param indexFile The file to write to.
+	 *\param compressed false to write plain postings, which are larger but need no decoding.
+	 *\throws IOException if the index can't be written.
+	 */
+	public static void write(InvertedIndex index, String indexFile, boolean compressed) throws IOException {
+		int documentCount = index.getDocumentCount(), termCount = 0;
+		/*Index binary searches the term table by comparing bytes, so it is sorted the same way.
+		 * Terms that are in no document, like stopwords, are left out.
+		 */
+		final byte[][] terms = new byte[index.getTermCount()][];
+		Integer[] sorted = new Integer[index.getTermCount()];
+		for(int term=0; term < index.getTermCount(); term++) {
+			if(index.getDocumentFrequency(term) == 0)
+				continue;
+			terms[term] = index.getTerm(term).getBytes(StandardCharsets.UTF_8);
+			sorted[termCount++] = term;
+		}
+		sorted = Arrays.copyOf(sorted, termCount);
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return compareBytes(terms[a], terms[b]);
+			}
+		});
+		byte[][] names = new byte[documentCount][];
+		for(int doc=0; doc < documentCount; doc++)
+			names[doc] = index.getName(doc).getBytes(StandardCharsets.UTF_8);
+		long documentsOffset = HEADER_SIZE;
+		long postingsOffset = documentsOffset + (long) DOCUMENT_ENTRY_SIZE * documentCount;
+		long termsOffset, stringsOffset;
+		long[] offsets = new long[termCount];
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+		try {
+			/*Filled in once the offsets are known.*/
+			out.write(new byte[HEADER_SIZE]);
+			/*String offsets are relative to the start of the string pool, names first then terms.*/
+			int stringOffset = 0;
+			for(int doc=0; doc < documentCount; doc++) {
+				out.writeInt(stringOffset);
+				out.writeInt(names[doc].length);
+				out.writeInt(index.getLength(doc));
+				out.writeDouble(index.getMagnitude(doc));
+				stringOffset += names[doc].length;
+			}
+			long postingOffset = postingsOffset;
+			CompressedPostings encoder = new CompressedPostings();
+			for(int x=0; x < termCount; x++) {
+				offsets[x] = postingOffset;
+				PostingsIterator postings = index.getPostings(sorted[x]);
+				if(compressed) {
+					int length = encoder.encode(postings, index.getDocumentFrequency(sorted[x]));
+					out.write(encoder.getBytes(), 0, length);
+					postingOffset += length;
+				}
+				else {
+					while(postings.next()) {
+						out.writeInt(postings.getDocument());
+						out.writeInt(postings.getCount());
+						postingOffset += POSTING_SIZE;
+					}
+				}
+			}
+			termsOffset = postingOffset;
+			stringsOffset = termsOffset + (long) TERM_ENTRY_SIZE * termCount;
+			for(int x=0; x < termCount; x++) {
+				out.writeInt(stringOffset);
+				out.writeInt(terms[sorted[x]].length);
+				out.writeInt(index.getDocumentFrequency(sorted[x]));
+				out.writeLong(offsets[x]);
+				out.writeDouble(index.getMaxWeight(sorted[x]));
+				stringOffset += terms[sorted[x]].length;
+			}
+			for(byte[] name : names)
+				out.write(name);
+			for(int term : sorted)
+				out.write(terms[term]);
+		}
+		finally {
+			out.close();
+		}
+		RandomAccessFile header = new RandomAccessFile(indexFile, "rw");
+		try {
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+			header.writeInt(documentCount);
+			header.writeInt(termCount);
+			header.writeInt(compressed ? COMPRESSED : 0);
+			header.writeInt(0);
+			header.writeLong(documentsOffset);
+			header.writeLong(termsOffset);
+			header.writeLong(postingsOffset);
+			header.writeLong(stringsOffset);
+		}
+		finally {
+			header.close();
+		}
+	}
+	/** Unsigned lexicographic comparison, the order of the term table.
+	 *\param a bytes
+	 *\param b bytes
+	 *\return negative, zero or positive as a is before, equal to or after b.
+	 */
+	static int compareBytes(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		for(int x=0; x < length; x++) {
+			int difference = (a[x] & 0xff) - (b[x] & 0xff);
+			if(difference != 0)
+				return difference;
+		}
+		return a.length - b.length;
+	}
+}
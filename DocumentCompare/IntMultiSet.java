@@ -0,0 +1,187 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.util.Arrays;
+/** A multiset of non-negative ints.
+ * The same as MultiSet, but for term numbers from a TermDictionary: the counts are kept in an open
+ * addressing table of primitive ints instead of a HashMap of boxed nodes.
+ */
+public class IntMultiSet {
+	private static final int EMPTY = -1;
+	private int elements = 0, size = 0;
+	private int[] keys, counts;
+	/** Constructor, gives you an empty multiset.
+	 */
+	public IntMultiSet() {
+		keys = new int[16];
+		Arrays.fill(keys, EMPTY);
+		counts = new int[16];
+	}
+	/** Clone by constructor.
+	 */
+	public IntMultiSet(IntMultiSet other) {
+		keys = other.keys.clone();
+		counts = other.counts.clone();
+		elements = other.elements;
+		size = other.size;
+	}
+	/** Adds an object to the set.
+	 *\param object Object to add, not negative.
+	 */
+	public void add(int object) {
+		add(object, 1);
+	}
+	/** Adds an object to the set several times.
+	 *\param object Object to add, not negative.
+	 *\param count Number of times to add it, greater than 0.
+	 */
+	public void add(int object, int count) {
+		if(object < 0)
+			throw new IllegalArgumentException("IntMultiSet can't hold negative numbers.");
+		int slot = find(object);
+		if(keys[slot] == EMPTY) {
+			keys[slot] = object;
+			counts[slot] = count;
+			size++;
+			if(size * 2 > keys.length)
+				grow();
+		}
+		else
+			counts[slot] += count;
+		elements += count;
+	}
+	/** Adds the elements of another multiset to the set.
+	 *\param otherSet Set to add.
+	 */
+	public void add(IntMultiSet otherSet) {
+		for(int slot=0; slot < otherSet.keys.length; slot++) {
+			if(otherSet.keys[slot] != EMPTY)
+				add(otherSet.keys[slot], otherSet.counts[slot]);
+		}
+	}
+	/** Removes an object from the set.
+	 *\param object Object to remove.
+	 *\return 0 when object is not present in set, 1 if removed.
+	 */
+	public int remove(int object) {
+		if(object < 0)
+			return 0;
+		int slot = find(object);
+		if(keys[slot] == EMPTY)
+			return 0;
+		elements--;
+		if(--counts[slot] == 0)
+			delete(slot);
+		return 1;
+	}
+	/** Tests membership of an object.
+	 *\param object Object to test membership of.
+	 *\return boolean
+	 */
+	public boolean test(int object) {
+		return count(object) != 0;
+	}
+	/** Returns count of object in set.
+	 *\param object
+	 *\return int count.
+	 */
+	public int count(int object) {
+		if(object < 0)
+			return 0;
+		int slot = find(object);
+		return keys[slot] == EMPTY ? 0 : counts[slot];
+	}
+	/** Returns count of all objects in set.
+	 *\return total number of objects.
+	 */
+	public int count() {
+		return elements;
+	}
+	/** Returns the number of distinct objects in set.
+	 *\return number of unique entries.
+	 */
+	public int size() {
+		return size;
+	}
+	/** Returns the distinct objects.
+	 *\return sorted array of unique entries.
+	 */
+	public int[] getSet() {
+		int[] result = new int[size];
+		int x = 0;
+		for(int key : keys) {
+			if(key != EMPTY)
+				result[x++] = key;
+		}
+		Arrays.sort(result);
+		return result;
+	}
+	/** Returns the counts of the distinct objects.
+	 *\param set Objects, usually from getSet.
+	 *\return the count of each object, in the same order.
+	 */
+	public int[] count(int[] set) {
+		int[] result = new int[set.length];
+		for(int x=0; x < set.length; x++)
+			result[x] = count(set[x]);
+		return result;
+	}
+	/** Linear probing.
+	 *\return the slot holding object, or the empty slot it would go in.
+	 */
+	private int find(int object) {
+		int mask = keys.length - 1;
+		int slot = mix(object) & mask;
+		while(keys[slot] != EMPTY && keys[slot] != object)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	private static int mix(int object) {
+		int hash = object * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+	private void grow() {
+		int[] oldKeys = keys, oldCounts = counts;
+		keys = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		counts = new int[oldKeys.length * 2];
+		for(int slot=0; slot < oldKeys.length; slot++) {
+			if(oldKeys[slot] != EMPTY) {
+				int newSlot = find(oldKeys[slot]);
+				keys[newSlot] = oldKeys[slot];
+				counts[newSlot] = oldCounts[slot];
+			}
+		}
+	}
+	/** Deletes by shifting later entries of the probe sequence back, so no tombstones are needed. */
+	private void delete(int slot) {
+		int mask = keys.length - 1;
+		size--;
+		int gap = slot;
+		for(int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+			int home = mix(keys[next]) & mask;
+			/*An entry can fill the gap when its home slot isn't between the gap and itself.*/
+			if(((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				counts[gap] = counts[next];
+				gap = next;
+			}
+		}
+		keys[gap] = EMPTY;
+		counts[gap] = 0;
+	}
+}
@@ -0,0 +1,74 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** The corpus statistics needed to score a query, arranged by term.
+ * Scoring only walks the postings of the query terms, so documents which share no term with
+ * the query are never visited.
+ */
+public interface InvertedIndex {
+	/** Document count accessor.
+	 *\return the number of documents in the index.
+	 */
+	public int getDocumentCount();
+	/** Document name accessor.
+	 *\param doc The document number.
+	 *\return the name the document was indexed with.
+	 */
+	public String getName(int doc);
+	/** Document length accessor.
+	 *\param doc The document number.
+	 *\return n(d), the total number of terms in the document.
+	 */
+	public int getLength(int doc);
+	/** Document magnitude accessor.
+	 * This is the sum of the squared TF-IDF relevance of every term in the document,
+	 * it only depends on the corpus so it is calculated when the index is built.
+	 *\param doc The document number.
+	 *\return the squared magnitude of the document.
+	 */
+	public double getMagnitude(int doc);
+	/** Weight bound accessor, for pruning.
+	 *\param term The term number.
+	 *\return the largest TF-IDF weight of the term in any document, over the magnitude of that document.
+	 */
+	public double getMaxWeight(int term);
+	/** Term count accessor.
+	 * Term numbers run from 0 to this, some numbers may belong to terms that are in no document.
+	 *\return the number of term numbers.
+	 */
+	public int getTermCount();
+	/** Term accessor.
+	 *\param term The term number.
+	 *\return the lower case value of the term.
+	 */
+	public String getTerm(int term);
+	/** Term lookup.
+	 *\param term The lower case value of a Term.
+	 *\return the term number, or -1 when no document contains the term.
+	 */
+	public int findTerm(String term);
+	/** Document frequency accessor.
+	 *\param term The term number.
+	 *\return n(t), the number of documents containing the term.
+	 */
+	public int getDocumentFrequency(int term);
+	/** Postings accessor.
+	 *\param term The term number.
+	 *\return an iterator over the documents containing the term, in document order.
+	 */
+	public PostingsIterator getPostings(int term);
+}
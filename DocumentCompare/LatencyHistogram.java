@@ -0,0 +1,119 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+/** Latency histogram.
+ * Counts values, such as nanoseconds, in buckets laid out the way HdrHistogram lays them out: values
+ * below 32 have a bucket each, and every power of 2 above that is split in to 16 buckets of equal
+ * width. A value is known to within 1/16 of itself whatever its size, in under a thousand buckets
+ * for every value a long can hold, so nothing is allocated as values are recorded.
+ *
+ * Thread safe, values are recorded without locking. Reads while values are being recorded see some
+ * of the values recorded since reading began.
+ */
+public class LatencyHistogram {
+	/** Bits of the first magnitude, the buckets of the smallest values are 1 wide. */
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS, HALF = SUB_BUCKETS / 2;
+	private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF);
+	private final AtomicLong count = new AtomicLong(), total = new AtomicLong(), max = new AtomicLong();
+	/** Records a value.
+	 *\param value The value, negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		if(value < 0)
+			value = 0;
+		counts.incrementAndGet(bucket(value));
+		count.incrementAndGet();
+		total.addAndGet(value);
+		long held = max.get();
+		while(value > held && !max.compareAndSet(held, value))
+			held = max.get();
+	}
+	/** Count accessor.
+	 *\return the number of values recorded.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	/** Total accessor.
+	 *\return the sum of the values recorded.
+	 */
+	public long getTotal() {
+		return total.get();
+	}
+	/** Max accessor.
+	 *\return the largest value recorded, 0 if there are none.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+	/** Finds a percentile of the values.
+	 *\param percentile From 0 to 100.
+	 *\return the largest value that falls in the same bucket as the value at the percentile, but no more
+	 * than the largest value recorded. 0 if there are no values.
+	 */
+	public long getPercentile(double percentile) {
+		long values = count.get();
+		if(values == 0)
+			return 0;
+		/*The rank of the value at the percentile, counting from 1.*/
+		long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * values));
+		long seen = 0;
+		for(int x=0; x < counts.length(); x++) {
+			seen += counts.get(x);
+			if(seen >= rank)
+				return Math.min(highest(x), max.get());
+		}
+		return max.get();
+	}
+	/** Forgets every value recorded.
+	 */
+	public void reset() {
+		for(int x=0; x < counts.length(); x++)
+			counts.set(x, 0);
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+	/** Works out the bucket of a value.
+	 *\param value A value of 0 or more.
+	 *\return the index of its count.
+	 */
+	static int bucket(long value) {
+		/*The power of 2 of the value, less the bits the first magnitude holds.*/
+		int magnitude = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		if(magnitude == 0)
+			return (int) value;
+		/*The top SUB_BUCKET_BITS bits of the value, of which the first is always set.*/
+		int subBucket = (int) (value >>> magnitude);
+		return SUB_BUCKETS + (magnitude - 1) * HALF + subBucket - HALF;
+	}
+	/** Works out the largest value of a bucket.
+	 *\param bucket The index of a count.
+	 *\return the largest value that bucket counts.
+	 */
+	static long highest(int bucket) {
+		if(bucket < SUB_BUCKETS)
+			return bucket;
+		int magnitude = (bucket - SUB_BUCKETS) / HALF + 1;
+		long subBucket = (bucket - SUB_BUCKETS) % HALF + HALF;
+		long lowest = subBucket << magnitude;
+		return lowest + (1L << magnitude) - 1;
+	}
+}
@@ -0,0 +1,35 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Log IDF cosine similarity.
+ * The same as CosineSimilarity but the inverse document frequency is log(1 + N/n(t)) for a corpus of N
+ * documents, so rare terms aren't weighted so far above common ones. The 1 keeps a term that is in every
+ * document from weighing nothing.
+ */
+public class LogCosineSimilarity implements Similarity {
+	public double documentWeight(int count, int length, int documentFrequency, int documentCount, double averageLength) {
+		double inverseDocumentFrequency = Math.log(1 + (double) documentCount / (double) documentFrequency);
+		return inverseDocumentFrequency * Math.log(1 + (double) count / (double) length);
+	}
+	public double queryWeight(int count, int length, int documentFrequency, int documentCount) {
+		double inverseDocumentFrequency = Math.log(1 + (double) documentCount / (double) documentFrequency);
+		return inverseDocumentFrequency * Math.log(1 + (double) count / (double) length);
+	}
+	public boolean isNormalized() {
+		return true;
+	}
+}
@@ -0,0 +1,117 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+/** Mapped file.
+ * A single mapping is limited to 2GB, so a larger file is mapped as pieces of a power of two bytes, each
+ * reaching a few bytes in to the next so that a number is always read from one mapping. Positions are
+ * longs, the piece holding a position is found with a shift.
+ *
+ * A region that has to be read through one buffer, such as a postings list CompressedPostings decodes,
+ * is made whole in the piece it starts in by keepWhole, which maps that piece further. A file no
+ * larger than the largest mapping is a single piece.
+ */
+final class MappedFile {
+	/** Bytes each piece reaches in to the next, more than the widest number or table entry. */
+	static final int SLACK = 64;
+	private final FileChannel channel;
+	private final long size;
+	private final int maxMapping, shift;
+	private final ByteBuffer[] pieces;
+	/** Constructor, maps the file.
+	 *\param fileChannel The open file, it can be closed once every region is kept whole.
+	 *\param largestMapping The most bytes to map at once, at most Integer.MAX_VALUE.
+	 *\throws IOException if the file can't be mapped.
+	 */
+	MappedFile(FileChannel fileChannel, int largestMapping) throws IOException {
+		channel = fileChannel;
+		size = channel.size();
+		maxMapping = largestMapping;
+		if(size <= maxMapping) {
+			shift = 62;
+			pieces = new ByteBuffer[] {channel.map(FileChannel.MapMode.READ_ONLY, 0, size)};
+			return;
+		}
+		/*Half the largest mapping, so a piece can be mapped further for a region almost as long again.*/
+		int pieceSize = Integer.highestOneBit(maxMapping / 2);
+		if(pieceSize < 2 * SLACK)
+			throw new IllegalArgumentException("The largest mapping must be at least " + 4 * SLACK + " bytes.");
+		shift = Integer.numberOfTrailingZeros(pieceSize);
+		pieces = new ByteBuffer[(int) ((size + pieceSize - 1) >>> shift)];
+		for(int piece=0; piece < pieces.length; piece++) {
+			long start = (long) piece << shift;
+			pieces[piece] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, pieceSize + SLACK));
+		}
+	}
+	/** Size accessor.
+	 *\return the length of the file.
+	 */
+	long size() {
+		return size;
+	}
+	/** Boundary accessor.
+	 *\return where each piece after the first starts, ascending.
+	 */
+	long[] getBoundaries() {
+		long[] boundaries = new long[pieces.length - 1];
+		for(int piece=1; piece < pieces.length; piece++)
+			boundaries[piece - 1] = (long) piece << shift;
+		return boundaries;
+	}
+	/** Maps the piece a region starts in far enough to hold all of it.
+	 *\param start The first byte of the region.
+	 *\param end The byte after the region.
+	 *\throws IOException if the region can't be mapped with the piece it starts in.
+	 */
+	void keepWhole(long start, long end) throws IOException {
+		int piece = (int) (start >>> shift);
+		long pieceStart = (long) piece << shift;
+		if(end <= pieceStart + pieces[piece].capacity())
+			return;
+		if(end - pieceStart > maxMapping)
+			throw new IOException("A region of " + (end - start) + " bytes is too large to map, the most is about " + maxMapping / 2 + ".");
+		pieces[piece] = channel.map(FileChannel.MapMode.READ_ONLY, pieceStart, end - pieceStart);
+	}
+	/** The mapping to read a position through.
+	 *\param position A byte of the file.
+	 *\return the mapping of the piece holding it, see offset.
+	 */
+	ByteBuffer buffer(long position) {
+		return pieces[(int) (position >>> shift)];
+	}
+	/** Where a position is in its mapping.
+	 *\param position A byte of the file.
+	 *\return the position in buffer(position).
+	 */
+	int offset(long position) {
+		return (int) (position & ((1L << shift) - 1));
+	}
+	byte get(long position) {
+		return buffer(position).get(offset(position));
+	}
+	int getInt(long position) {
+		return buffer(position).getInt(offset(position));
+	}
+	long getLong(long position) {
+		return buffer(position).getLong(offset(position));
+	}
+	double getDouble(long position) {
+		return buffer(position).getDouble(offset(position));
+	}
+}
@@ -0,0 +1,206 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.util.ArrayList;
+import java.util.HashSet;
+/** MaxScore scorer.
+ * Finds the same most similar documents as TermAtATimeScorer with the same similarities, but skips
+ * documents that can't enter the results. Every term has a bound, the most it can add to the
+ * similarity of any document: the query weight of the term times the index's largest weight of the
+ * term over a document magnitude. Terms are ordered by bound. Once the collector is full, the terms
+ * whose bounds add up to no more than its threshold can't make a document similar enough on their
+ * own, so only documents in the postings of the other, essential, terms are visited, and the
+ * postings of the rest are only advanced to those documents while the bounds of the terms left
+ * could still lift the document over the threshold.
+ *
+ * Documents are visited in ascending order, a document that ties the threshold loses to the held
+ * documents which all have lower numbers. The weights of a document are added up in the order
+ * TermAtATimeScorer adds them, so the similarities are the same to the last bit.
+ */
+public class MaxScoreScorer {
+	/** Bounds are raised by this much so that rounding never prunes a document that belongs in the results. */
+	private static final double SLACK = 1 + 1e-9;
+	private InvertedIndex index;
+	private long postingsRead;
+	/** Constructor.
+	 *\param newIndex The index to score against.
+	 */
+	public MaxScoreScorer(InvertedIndex newIndex) {
+		index = newIndex;
+	}
+	/** Scores a query and collects the most similar documents.
+	 *\param base The multiset of the query document.
+	 *\param results An empty collector, it ends up holding what TermAtATimeScorer would give it.
+	 */
+	public void score(MultiSet<Term> base, TopKCollector results) {
+		/*Query terms in the order TermAtATimeScorer takes them.*/
+		ArrayList<Integer> found = new ArrayList<Integer>();
+		ArrayList<Double> weights = new ArrayList<Double>();
+		double baseMagnitude = 0;
+		for(Term word : base) {
+			int term = index.findTerm(word.getValue().toLowerCase());
+			if(term < 0)
+				continue;
+			double inverseDocumentFrequency = 1 / (double) index.getDocumentFrequency(term);
+			double baseRelevance = inverseDocumentFrequency * Math.log(1 + (double) base.count(word) / (double) base.count());
+			baseMagnitude += baseRelevance * baseRelevance;
+			found.add(term);
+			weights.add(baseRelevance);
+		}
+		/*A query sharing no term with the corpus scores every document the same way, there is nothing to prune.*/
+		if(found.isEmpty()) {
+			TermAtATimeScorer scorer = new TermAtATimeScorer(index);
+			scorer.score(base, results);
+			postingsRead += scorer.getPostingsRead();
+			return;
+		}
+		int count = found.size();
+		int[] terms = new int[count];
+		double[] baseRelevance = new double[count], inverseDocumentFrequency = new double[count], bounds = new double[count];
+		PostingsIterator[] postings = new PostingsIterator[count];
+		int[] current = new int[count];
+		double baseNorm = Math.sqrt(baseMagnitude);
+		for(int x=0; x < count; x++) {
+			terms[x] = found.get(x);
+			baseRelevance[x] = weights.get(x);
+			inverseDocumentFrequency[x] = 1 / (double) index.getDocumentFrequency(terms[x]);
+			bounds[x] = baseRelevance[x] * index.getMaxWeight(terms[x]) / baseNorm * SLACK;
+			postings[x] = index.getPostings(terms[x]);
+			current[x] = postings[x].next() ? postings[x].getDocument() : Integer.MAX_VALUE;
+		}
+		/*Terms by ascending bound, with the running total of the bounds.*/
+		int[] order = new int[count];
+		for(int x=0; x < count; x++) {
+			int y = x;
+			for(; y > 0 && bounds[order[y - 1]] > bounds[x]; y--)
+				order[y] = order[y - 1];
+			order[y] = x;
+		}
+		double[] totals = new double[count];
+		for(int x=0; x < count; x++)
+			totals[x] = (x > 0 ? totals[x - 1] : 0) + bounds[order[x]];
+		int essential = 0;
+		double threshold = Double.NEGATIVE_INFINITY;
+		int[] matched = new int[count];
+		double[] relevance = new double[count];
+		while(true) {
+			int doc = Integer.MAX_VALUE;
+			for(int x=essential; x < count; x++)
+				doc = Math.min(doc, current[order[x]]);
+			if(doc == Integer.MAX_VALUE)
+				break;
+			double norm = Math.sqrt(index.getMagnitude(doc)) * baseNorm;
+			int length = index.getLength(doc), matches = 0;
+			double partial = 0;
+			for(int x=essential; x < count; x++) {
+				int term = order[x];
+				if(current[term] != doc)
+					continue;
+				relevance[term] = inverseDocumentFrequency[term] * Math.log(1 + (double) postings[term].getCount() / (double) length);
+				partial += relevance[term] * baseRelevance[term] / norm;
+				matched[matches++] = term;
+				current[term] = postings[term].next() ? postings[term].getDocument() : Integer.MAX_VALUE;
+			}
+			boolean pruned = false;
+			for(int x=essential - 1; x >= 0; x--) {
+				if(partial + totals[x] < threshold) {
+					pruned = true;
+					break;
+				}
+				int term = order[x];
+				if(current[term] < doc)
+					current[term] = postings[term].advance(doc) ? postings[term].getDocument() : Integer.MAX_VALUE;
+				if(current[term] != doc)
+					continue;
+				relevance[term] = inverseDocumentFrequency[term] * Math.log(1 + (double) postings[term].getCount() / (double) length);
+				partial += relevance[term] * baseRelevance[term] / norm;
+				matched[matches++] = term;
+			}
+			postingsRead += matches;
+			if(pruned)
+				continue;
+			/*Summed in query order, as the accumulator of TermAtATimeScorer is.*/
+			sort(matched, matches);
+			double area = 0;
+			for(int x=0; x < matches; x++)
+				area += relevance[matched[x]] * baseRelevance[matched[x]];
+			results.collect(doc, area / (Math.sqrt(index.getMagnitude(doc)) * Math.sqrt(baseMagnitude)));
+			if(results.getThreshold() > threshold) {
+				threshold = results.getThreshold();
+				while(essential < count && totals[essential] < threshold)
+					essential++;
+			}
+		}
+		/*Until the collector is full nothing is pruned. Documents without a query term fill the rest,
+		 * 0 for most of them, NaN for empty documents as TermAtATimeScorer gives them.
+		 */
+		if(threshold == Double.NEGATIVE_INFINITY) {
+			HashSet<Integer> held = new HashSet<Integer>();
+			for(int doc : results.getDocuments())
+				held.add(doc);
+			for(int doc=0; doc < index.getDocumentCount(); doc++)
+				if(!held.contains(doc))
+					results.collect(doc, index.getMagnitude(doc) == 0 ? Double.NaN : 0);
+		}
+	}
+	/** A QueryScorer for the cosine similarity, each query is scored with a new MaxScoreScorer so threads can share it.
+	 *\param index The index to score against.
+	 *\return the scorer, which records each query in Statistics.
+	 */
+	public static QueryScorer queryScorer(final InvertedIndex index) {
+		return new QueryScorer() {
+			public void score(MultiSet<Term> base, TopKCollector results) {
+				long started = Statistics.start(), allocated = Statistics.allocated();
+				MaxScoreScorer scorer = new MaxScoreScorer(index);
+				scorer.score(base, results);
+				Statistics.stop(Statistics.SCORE, started, allocated);
+				Statistics.query(scorer.getPostingsRead());
+			}
+		};
+	}
+	/** Postings accessor.
+	 *\return the number of postings read by the queries scored so far, not counting those skipped.
+	 */
+	public long getPostingsRead() {
+		return postingsRead;
+	}
+	private static void sort(int[] values, int size) {
+		for(int x=1; x < size; x++) {
+			int value = values[x], y = x;
+			for(; y > 0 && values[y - 1] > value; y--)
+				values[y] = values[y - 1];
+			values[y] = value;
+		}
+	}
+	/** Works out the weight bound of every term of an index.
+	 *\param index An index with its postings, lengths and magnitudes.
+	 *\return the bounds by term number, see InvertedIndex.getMaxWeight.
+	 */
+	static double[] maxWeights(InvertedIndex index) {
+		double[] maxWeights = new double[index.getTermCount()];
+		for(int term=0; term < maxWeights.length; term++) {
+			double inverseDocumentFrequency = 1 / (double) index.getDocumentFrequency(term);
+			PostingsIterator postings = index.getPostings(term);
+			while(postings.next()) {
+				int doc = postings.getDocument();
+				double weight = inverseDocumentFrequency * Math.log(1 + (double) postings.getCount() / (double) index.getLength(doc)) / Math.sqrt(index.getMagnitude(doc));
+				maxWeights[term] = Math.max(maxWeights[term], weight);
+			}
+		}
+		return maxWeights;
+	}
+}
@@ -0,0 +1,162 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.util.Arrays;
+/** An inverted index held in memory.
+ * This is built from the documents in DocCompare so queries against a data directory are
+ * scored the same way as queries against an index file. IndexWriter writes one of these to disk.
+ * Term numbers are the numbers of the TermDictionary the documents were read with.
+ *
+ * Immutable
+ * Nothing changes once the constructor returns, so any number of threads can query one
+ * without locking, as the query server does.
+ */
+public class MemoryIndex implements InvertedIndex {
+	private static final int[] NO_POSTINGS = new int[0];
+	private final String[] names;
+	private final int[] lengths;
+	private final double[] magnitudes, maxWeights;
+	private final TermDictionary dictionary;
+	private final int termCount;
+	private final int[][] postingDocuments, postingCounts;
+	/** Constructor, inverts the documents.
+	 *\param documents The documents to index, their position in the array is their document number.
+	 *\param newDictionary The dictionary every document was read with.
+	 *\param documentFrequency The number of documents each term appears in, by term number.
+	 */
+	public MemoryIndex(Document[] documents, TermDictionary newDictionary, IntMultiSet documentFrequency) {
+		long started = Statistics.start(), allocated = Statistics.allocated();
+		dictionary = newDictionary;
+		termCount = dictionary.size();
+		names = new String[documents.length];
+		lengths = new int[documents.length];
+		/*The document frequencies give the exact size of every postings list.*/
+		postingDocuments = new int[termCount][];
+		postingCounts = new int[termCount][];
+		for(int term=0; term < termCount; term++) {
+			int size = documentFrequency.count(term);
+			postingDocuments[term] = size == 0 ? NO_POSTINGS : new int[size];
+			postingCounts[term] = size == 0 ? NO_POSTINGS : new int[size];
+		}
+		int[] sizes = new int[termCount];
+		for(int doc=0; doc < documents.length; doc++) {
+			names[doc] = documents[doc].getName();
+			lengths[doc] = documents[doc].getLength();
+			int[] numbers = documents[doc].getTermNumbers(), counts = documents[doc].getTermCounts();
+			for(int x=0; x < numbers.length; x++) {
+				int term = numbers[x];
+				postingDocuments[term][sizes[term]] = doc;
+				postingCounts[term][sizes[term]] = counts[x];
+				sizes[term]++;
+			}
+		}
+		magnitudes = sumMagnitudes(lengths, postingDocuments, postingCounts);
+		maxWeights = MaxScoreScorer.maxWeights(this);
+		Statistics.stop(Statistics.INVERT, started, allocated);
+	}
+	/** Constructor, from postings that are already inverted.
+	 * This is how IndexDirectory puts the segments of an index back together.
+	 *\param newNames The name of every document, by document number.
+	 *\param newLengths n(d) of every document, by document number.
+	 *\param newDictionary Holds the terms, term numbers index the postings.
+	 *\param documents The postings list of every term, ascending document numbers.
+	 *\param counts n(d,t) for every posting in documents.
+	 */
+	MemoryIndex(String[] newNames, int[] newLengths, TermDictionary newDictionary, int[][] documents, int[][] counts) {
+		names = newNames;
+		lengths = newLengths;
+		dictionary = newDictionary;
+		termCount = documents.length;
+		postingDocuments = documents;
+		postingCounts = counts;
+		magnitudes = sumMagnitudes(lengths, postingDocuments, postingCounts);
+		maxWeights = MaxScoreScorer.maxWeights(this);
+	}
+	/** Squared magnitude of every document's TF-IDF vector.
+	 *\param lengths n(d) of every document.
+	 *\param postingDocuments The postings list of every term.
+	 *\param postingCounts n(d,t) for every posting.
+	 *\return the squared magnitudes, by document number.
+	 */
+	private static double[] sumMagnitudes(int[] lengths, int[][] postingDocuments, int[][] postingCounts) {
+		double[] magnitudes = new double[lengths.length];
+		for(int term=0; term < postingDocuments.length; term++) {
+			double inverseDocumentFrequency = 1 / (double) postingDocuments[term].length;
+			for(int x=0; x < postingDocuments[term].length; x++) {
+				int doc = postingDocuments[term][x];
+				double relevance = inverseDocumentFrequency * Math.log(1 + (double) postingCounts[term][x] / (double) lengths[doc]);
+				magnitudes[doc] += relevance * relevance;
+			}
+		}
+		return magnitudes;
+	}
+	public int getDocumentCount() {
+		return names.length;
+	}
+	public String getName(int doc) {
+		return names[doc];
+	}
+	public int getLength(int doc) {
+		return lengths[doc];
+	}
+	public double getMagnitude(int doc) {
+		return magnitudes[doc];
+	}
+	public double getMaxWeight(int term) {
+		return maxWeights[term];
+	}
+	public int findTerm(String term) {
+		int number = dictionary.find(term);
+		/*The dictionary also holds stopwords and terms added after the index was built.*/
+		if(number < 0 || number >= termCount || postingDocuments[number].length == 0)
+			return -1;
+		return number;
+	}
+	public int getDocumentFrequency(int term) {
+		return postingDocuments[term].length;
+	}
+	public PostingsIterator getPostings(final int term) {
+		return new PostingsIterator() {
+			private int x = -1;
+			public boolean next() {
+				return ++x < postingDocuments[term].length;
+			}
+			public boolean advance(int target) {
+				int[] documents = postingDocuments[term];
+				if(x < 0)
+					x = 0;
+				if(x < documents.length && documents[x] < target) {
+					int found = Arrays.binarySearch(documents, x, documents.length, target);
+					x = found < 0 ? -found - 1 : found;
+				}
+				return x < documents.length;
+			}
+			public int getDocument() {
+				return postingDocuments[term][x];
+			}
+			public int getCount() {
+				return postingCounts[term][x];
+			}
+		};
+	}
+	public int getTermCount() {
+		return termCount;
+	}
+	public String getTerm(int term) {
+		return dictionary.getValue(term);
+	}
+}
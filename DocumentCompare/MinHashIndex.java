@@ -0,0 +1,311 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+/** MinHash index.
+ * Finds the documents a query is likely to be similar to without reading every posting of its terms,
+ * then scores only those exactly. Each document's set of terms, the sets MultiSet.getSet gives, is
+ * summarized by a MinHash signature: for each of bands * rows hash functions, the least hash of any of
+ * its terms. Two sets agree on each entry with a probability equal to their Jaccard similarity, the
+ * number of terms they share over the number either has. The signature is cut in to bands of rows
+ * entries, and documents whose band hashes the same as the query's in any band are the candidates.
+ *
+ * The candidates are scored with the TF-IDF cosine of TermAtATimeScorer, the same sums in the same order,
+ * so a result's similarity is exactly the one the whole index gives it. Documents that aren't candidates
+ * are missed, more bands find more of them and take longer, more rows find fewer. The chance of a document
+ * of Jaccard similarity J being a candidate is 1 - (1 - J^rows)^bands.
+ *
+ * A term in many documents adds little to a cosine weighted by 1/n(t) but makes all of those documents
+ * candidates, so terms in more than a limit of documents are left out of the signatures. Documents sharing
+ * no signed term with the query are never candidates, nor is an empty one.
+ *
+ * The signatures are worked out from the postings, so any index can be summarized. Only the band hashes
+ * are kept, sorted in each band so the bucket of a query is found by binary search, along with the terms
+ * of each document so a candidate is scored without searching the postings. Immutable, any number
+ * of threads can query one.
+ */
+public class MinHashIndex implements QueryScorer {
+	/** The bands, rows and document frequency limit if none are given, see MinHashEvaluation. */
+	public static final int BANDS = 64, ROWS = 1, COMMON = 100;
+	/** Seed of the hash functions, the same for every index so results can be repeated. */
+	static final long SEED = 0x5eed;
+	private final InvertedIndex index;
+	private final int bands, rows;
+	/** Terms in more documents than this are left out of the signatures. */
+	private final int common;
+	/** The seed of each hash function. */
+	private final int[] seeds;
+	/** The band hashes of the documents in each band, ascending, and the document each belongs to. */
+	private final int[][] keys, documents;
+	/** Terms of each document, the row of doc runs from starts[doc] to starts[doc + 1], ascending by term. */
+	private final int[] starts, terms;
+	/** log(1 + n(d,t)/n(d)) of each term of a row, the term frequency TermAtATimeScorer works out. */
+	private final double[] frequencies;
+	/** Constructor, with the usual bands, rows and document frequency limit.
+	 *\param newIndex The index of the documents.
+	 */
+	public MinHashIndex(InvertedIndex newIndex) {
+		this(newIndex, BANDS, ROWS, COMMON);
+	}
+	/** Constructor, works out the signature of every document.
+	 *\param newIndex The index of the documents.
+	 *\param bandCount The number of bands, more find more similar documents and take longer.
+	 *\param rowCount The number of signature entries in a band, more make documents less likely to be candidates.
+	 *\param maxDocumentFrequency Terms in more documents than this are left out of the signatures, fewer
+	 * documents are candidates for sharing them.
+	 */
+	public MinHashIndex(InvertedIndex newIndex, int bandCount, int rowCount, int maxDocumentFrequency) {
+		if(bandCount <= 0 || rowCount <= 0 || maxDocumentFrequency <= 0)
+			throw new IllegalArgumentException("Bands, rows and the document frequency limit must be greater than 0.");
+		index = newIndex;
+		bands = bandCount;
+		rows = rowCount;
+		common = maxDocumentFrequency;
+		int length = bands * rows, documentCount = index.getDocumentCount();
+		seeds = new int[length];
+		Random random = new Random(SEED);
+		for(int x=0; x < length; x++)
+			seeds[x] = random.nextInt();
+		/*The rows are sized by a first pass, terms are taken in ascending order so every row is sorted.*/
+		starts = new int[documentCount + 1];
+		for(int term=0; term < index.getTermCount(); term++) {
+			PostingsIterator postings = index.getPostings(term);
+			while(postings.next())
+				starts[postings.getDocument() + 1]++;
+		}
+		for(int doc=0; doc < documentCount; doc++)
+			starts[doc + 1] += starts[doc];
+		terms = new int[starts[documentCount]];
+		frequencies = new double[starts[documentCount]];
+		int[] sizes = new int[documentCount];
+		boolean[] signed = new boolean[documentCount];
+		int filled = 0;
+		for(int term=0; term < index.getTermCount(); term++) {
+			boolean signs = index.getDocumentFrequency(term) <= common;
+			PostingsIterator postings = index.getPostings(term);
+			while(postings.next()) {
+				int doc = postings.getDocument();
+				int entry = starts[doc] + sizes[doc]++;
+				terms[entry] = term;
+				frequencies[entry] = Math.log(1 + (double) postings.getCount() / (double) index.getLength(doc));
+				if(signs && !signed[doc]) {
+					signed[doc] = true;
+					filled++;
+				}
+			}
+		}
+		/*Each signature is worked out from its row and only its band hashes are kept, so the signatures of
+		 * the whole corpus are never held at once.
+		 */
+		keys = new int[bands][filled];
+		documents = new int[bands][filled];
+		int[] signature = new int[length], hashes = new int[length];
+		for(int doc=0, x=0; doc < documentCount; doc++) {
+			if(!signed[doc])
+				continue;
+			Arrays.fill(signature, Integer.MAX_VALUE);
+			for(int entry=starts[doc]; entry < starts[doc + 1]; entry++) {
+				if(index.getDocumentFrequency(terms[entry]) > common)
+					continue;
+				hash(terms[entry], hashes);
+				for(int y=0; y < length; y++)
+					signature[y] = Math.min(signature[y], hashes[y]);
+			}
+			for(int band=0; band < bands; band++) {
+				keys[band][x] = bandHash(signature, 0, band);
+				documents[band][x] = doc;
+			}
+			x++;
+		}
+		/*Each band is sorted as (hash, document) pairs packed in longs.*/
+		long[] pairs = new long[filled];
+		for(int band=0; band < bands; band++) {
+			for(int x=0; x < filled; x++)
+				pairs[x] = ((long) keys[band][x] << 32) | documents[band][x];
+			Arrays.sort(pairs);
+			for(int x=0; x < filled; x++) {
+				keys[band][x] = (int) (pairs[x] >> 32);
+				documents[band][x] = (int) pairs[x];
+			}
+		}
+	}
+	/** Parses the bands, rows and document frequency limit of the command line.
+	 *\param settings Such as 64,1,100, the limit can be left out.
+	 *\return the bands, rows and limit, COMMON if it is left out.
+	 *\throws IllegalArgumentException if they aren't two or three numbers greater than 0.
+	 */
+	public static int[] parseSettings(String settings) {
+		String[] parts = settings.split(",", -1);
+		try {
+			if(parts.length == 2 || parts.length == 3) {
+				int[] parsed = {Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), parts.length == 3 ? Integer.parseInt(parts[2]) : COMMON};
+				if(parsed[0] > 0 && parsed[1] > 0 && parsed[2] > 0)
+					return parsed;
+			}
+		}
+		catch (NumberFormatException e) {}
+		throw new IllegalArgumentException("MinHash settings look like 64,1,100 for bands, rows and the most documents a signed term is in, all greater than 0.");
+	}
+	/** Finds the documents whose signature shares a band with the query's.
+	 *\param base The multiset of the query document.
+	 *\return the candidate document numbers, ascending.
+	 */
+	public int[] candidates(MultiSet<Term> base) {
+		int length = bands * rows;
+		int[] signature = new int[length], hashes = new int[length];
+		Arrays.fill(signature, Integer.MAX_VALUE);
+		boolean disjoint = true;
+		for(Term word : base) {
+			int term = index.findTerm(word.getValue().toLowerCase());
+			if(term < 0 || index.getDocumentFrequency(term) > common)
+				continue;
+			disjoint = false;
+			hash(term, hashes);
+			for(int x=0; x < length; x++)
+				signature[x] = Math.min(signature[x], hashes[x]);
+		}
+		if(disjoint)
+			return new int[0];
+		BitSet found = new BitSet(index.getDocumentCount());
+		for(int band=0; band < bands; band++) {
+			int key = bandHash(signature, 0, band);
+			int[] bucket = keys[band];
+			/*The first document of the bucket, the hashes are ascending.*/
+			int low = 0, high = bucket.length;
+			while(low < high) {
+				int middle = (low + high) >>> 1;
+				if(bucket[middle] < key)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			for(int x=low; x < bucket.length && bucket[x] == key; x++)
+				found.set(documents[band][x]);
+		}
+		int[] candidates = new int[found.cardinality()];
+		for(int doc = found.nextSetBit(0), x = 0; doc >= 0; doc = found.nextSetBit(doc + 1))
+			candidates[x++] = doc;
+		return candidates;
+	}
+	/** Scores the candidates of a query and collects the most similar.
+	 *\param base The multiset of the query document.
+	 *\param results The collector, it ends up holding the candidates TermAtATimeScorer would rank highest.
+	 */
+	public void score(MultiSet<Term> base, TopKCollector results) {
+		int[] candidates = candidates(base);
+		/*The query terms in the order TermAtATimeScorer takes them, found from a row by term number through
+		 * an open addressing table kept at most half full. A term can be in the query more than once, in
+		 * different cases, those positions are chained.
+		 */
+		int count = 0;
+		for(Term word : base)
+			count++;
+		int size = 2;
+		while(size < count * 2)
+			size *= 2;
+		int[] slotTerms = new int[size], first = new int[size], next = new int[count];
+		Arrays.fill(slotTerms, -1);
+		double[] baseRelevance = new double[count], inverseDocumentFrequency = new double[count];
+		double baseMagnitude = 0;
+		count = 0;
+		for(Term word : base) {
+			int term = index.findTerm(word.getValue().toLowerCase());
+			if(term < 0)
+				continue;
+			inverseDocumentFrequency[count] = 1 / (double) index.getDocumentFrequency(term);
+			baseRelevance[count] = inverseDocumentFrequency[count] * Math.log(1 + (double) base.count(word) / (double) base.count());
+			baseMagnitude += baseRelevance[count] * baseRelevance[count];
+			/*Positions are kept one higher, 0 ends a chain.*/
+			int slot = slot(slotTerms, term);
+			slotTerms[slot] = term;
+			next[count] = first[slot];
+			first[slot] = ++count;
+		}
+		int[] matched = new int[count];
+		double[] relevance = new double[count];
+		for(int doc : candidates) {
+			int matches = 0;
+			for(int entry=starts[doc]; entry < starts[doc + 1]; entry++) {
+				for(int position = first[slot(slotTerms, terms[entry])]; position > 0; position = next[position - 1]) {
+					relevance[position - 1] = inverseDocumentFrequency[position - 1] * frequencies[entry];
+					matched[matches++] = position - 1;
+				}
+			}
+			/*Summed in query order, as the accumulator of TermAtATimeScorer is, so the similarity is the same.*/
+			sort(matched, matches);
+			double area = 0;
+			for(int x=0; x < matches; x++)
+				area += relevance[matched[x]] * baseRelevance[matched[x]];
+			results.collect(doc, area / (Math.sqrt(index.getMagnitude(doc)) * Math.sqrt(baseMagnitude)));
+		}
+	}
+	/** Finds the slot of a term in the table of query terms.
+	 *\param slotTerms The term in each slot, -1 for an empty one.
+	 *\param term The term number.
+	 *\return the slot holding the term, or the empty slot it would go in.
+	 */
+	private static int slot(int[] slotTerms, int term) {
+		/*Fibonacci hashing, the high bits of the product depend on every bit of the term.*/
+		int mask = slotTerms.length - 1, slot = (term * 0x9e3779b9) >>> Integer.numberOfLeadingZeros(mask);
+		while(slotTerms[slot] >= 0 && slotTerms[slot] != term)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	/** Insertion sort, a candidate matches few query terms.
+	 *\param values The numbers to sort.
+	 *\param size How many of them are sorted.
+	 */
+	private static void sort(int[] values, int size) {
+		for(int x=1; x < size; x++) {
+			int value = values[x], y = x;
+			for(; y > 0 && values[y - 1] > value; y--)
+				values[y] = values[y - 1];
+			values[y] = value;
+		}
+	}
+	/** Hashes a term with every hash function.
+	 *\param term The term number.
+	 *\param hashes Filled with the hash of each function.
+	 */
+	private void hash(int term, int[] hashes) {
+		for(int x=0; x < hashes.length; x++)
+			hashes[x] = mix(term ^ seeds[x]);
+	}
+	/** Hashes the rows of a band of a signature together.
+	 *\param signatures The signatures.
+	 *\param start The first entry of the signature.
+	 *\param band The band.
+	 *\return the hash of the band.
+	 */
+	private int bandHash(int[] signatures, int start, int band) {
+		int hash = band;
+		for(int x=band * rows; x < (band + 1) * rows; x++)
+			hash = mix(hash * 31 + signatures[start + x]);
+		return hash;
+	}
+	/** The finalizer of MurmurHash3, spreads every bit of a number over the whole hash. */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
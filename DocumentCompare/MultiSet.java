@@ -120,7 +120,11 @@ public class MultiSet<T extends  Comparable<? super T>> implements Iterable<T> {
 					};
 		return result;
 	}
-	private void add(T object, int count) {
+	/** Adds an object to the set several times.
+	 *\param object Object to add.
+	 *\param count Number of times to add it.
+	 */
+	public void add(T object, int count) {
 		Node<T> exists = getObject(object);
 		if(exists == null) {
 			contents.put(object, new Node<T>(object, count));
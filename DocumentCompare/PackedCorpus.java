@@ -0,0 +1,164 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+/** Packed corpus.
+ * The documents of a data directory concatenated in to a single file, so that loading the corpus
+ * opens one file instead of one per document. The file is mapped and each document is tokenized
+ * in place, see DocumentReader.
+ *
+ * The layout is a header of magic, version, document count and a reserved int, then a table with
+ * the offset and length of each document's name and of its bytes, then the UTF-8 names and finally
+ * the bytes of the documents as they were in their files. A document keeps the path it was packed
+ * from as its name, so results name the same files whether the directory or the packed file is
+ * loaded. All numbers are big endian. A single mapping is limited to 2GB, and so is the corpus.
+ */
+public class PackedCorpus {
+	/** Identifies a packed corpus, "DCPK". */
+	static final int MAGIC = 0x4443504B;
+	/** Layout version, bumped whenever the file layout changes. */
+	static final int VERSION = 1;
+	/** Bytes in the header: magic, version, document count and a reserved int. */
+	static final int HEADER_SIZE = 4 * 4;
+	/** Bytes per document table entry: name offset, name length, document offset and document length. */
+	static final int ENTRY_SIZE = 4 * 4;
+	private ByteBuffer corpus;
+	private int documentCount;
+	/** Constructor.
+	 * This maps the packed file.
+	 *\param packedFile A file written by write.
+	 *\throws IOException if the file can't be read or isn't a packed corpus.
+	 */
+	public PackedCorpus(String packedFile) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(packedFile), StandardOpenOption.READ);
+		try {
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException(packedFile + " is too large to map.");
+			if(channel.size() < HEADER_SIZE)
+				throw new IOException(packedFile + " is not a packed corpus.");
+			/*The mapping stays valid after the channel is closed.*/
+			corpus = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			channel.close();
+		}
+		if(corpus.getInt(0) != MAGIC)
+			throw new IOException(packedFile + " is not a packed corpus.");
+		if(corpus.getInt(4) != VERSION)
+			throw new IOException(packedFile + " was written by a different version, pack it again.");
+		documentCount = corpus.getInt(8);
+	}
+	/** Document count accessor.
+	 *\return the number of documents packed.
+	 */
+	public int getDocumentCount() {
+		return documentCount;
+	}
+	/** Name accessor.
+	 *\param doc A document number, the position of its file in the array given to write.
+	 *\return the path the document was packed from.
+	 */
+	public String getName(int doc) {
+		int entry = HEADER_SIZE + doc * ENTRY_SIZE;
+		byte[] name = new byte[corpus.getInt(entry + 4)];
+		ByteBuffer view = corpus.duplicate();
+		view.position(corpus.getInt(entry));
+		view.get(name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+	/** Document accessor.
+	 *\param doc A document number.
+	 *\return the bytes of the document from the position to the limit of a view of the mapping,
+	 * which is the caller's to move.
+	 */
+	public ByteBuffer getDocument(int doc) {
+		int entry = HEADER_SIZE + doc * ENTRY_SIZE;
+		int start = corpus.getInt(entry + 8);
+		ByteBuffer document = corpus.duplicate();
+		document.limit(start + corpus.getInt(entry + 12));
+		document.position(start);
+		return document;
+	}
+	/** Packs documents in to one file.
+	 *\param documentPaths The files to pack, their position in the array is their document number.
+	 *\param packedFile The file to write.
+	 *\throws IOException if a document can't be read, changes while it is packed or the corpus is over 2GB.
+	 */
+	public static void write(File[] documentPaths, String packedFile) throws IOException {
+		int count = documentPaths.length;
+		byte[][] names = new byte[count][];
+		long namesSize = 0, documentsSize = 0;
+		for(int doc=0; doc < count; doc++) {
+			names[doc] = documentPaths[doc].getPath().getBytes(StandardCharsets.UTF_8);
+			namesSize += names[doc].length;
+			documentsSize += documentPaths[doc].length();
+		}
+		long namesOffset = HEADER_SIZE + (long) ENTRY_SIZE * count;
+		long documentsOffset = namesOffset + namesSize;
+		if(documentsOffset + documentsSize > Integer.MAX_VALUE)
+			throw new IOException("The documents are too large to pack in to one file.");
+		ByteBuffer table = ByteBuffer.allocate((int) documentsOffset);
+		table.putInt(MAGIC);
+		table.putInt(VERSION);
+		table.putInt(count);
+		table.putInt(0);
+		int nameOffset = (int) namesOffset, documentOffset = (int) documentsOffset;
+		for(int doc=0; doc < count; doc++) {
+			int length = (int) documentPaths[doc].length();
+			table.putInt(nameOffset);
+			table.putInt(names[doc].length);
+			table.putInt(documentOffset);
+			table.putInt(length);
+			nameOffset += names[doc].length;
+			documentOffset += length;
+		}
+		for(byte[] name : names)
+			table.put(name);
+		table.flip();
+		FileChannel out = FileChannel.open(Paths.get(packedFile), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while(table.hasRemaining())
+				out.write(table);
+			for(int doc=0; doc < count; doc++) {
+				FileChannel in = FileChannel.open(documentPaths[doc].toPath(), StandardOpenOption.READ);
+				try {
+					long length = table.getInt(HEADER_SIZE + doc * ENTRY_SIZE + 12), copied = 0;
+					if(in.size() != length)
+						throw new IOException(documentPaths[doc] + " changed while it was packed.");
+					while(copied < length) {
+						long transferred = in.transferTo(copied, length - copied, out);
+						if(transferred <= 0)
+							throw new IOException(documentPaths[doc] + " changed while it was packed.");
+						copied += transferred;
+					}
+				}
+				finally {
+					in.close();
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,41 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Iterates the postings list of a single term.
+ * The iterator starts before the first posting, next must be called before reading.
+ */
+public interface PostingsIterator {
+	/** Moves to the next posting.
+	 *\return false when there are no more postings.
+	 */
+	public boolean next();
+	/** Moves to the first posting of a document at or after the target.
+	 * Postings are in ascending document order. This doesn't move back, if the current posting is
+	 * already at or after the target it stays.
+	 *\param target A document number.
+	 *\return false when there are no more postings.
+	 */
+	public boolean advance(int target);
+	/** Document accessor.
+	 *\return the document number of the current posting.
+	 */
+	public int getDocument();
+	/** Count accessor.
+	 *\return n(d,t), the number of times the term is in the current document.
+	 */
+	public int getCount();
+}
@@ -0,0 +1,155 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+/** Batch of queries.
+ * Scores every query document in a directory against one loaded corpus, the queries are scored
+ * in parallel with the same search as a single query. Results are written in TREC run format,
+ * "query Q0 document rank similarity tag", where the query and document are the file names
+ * without their directory or extension. Queries are read as DocCompare reads a single query, in the charset
+ * of the corpus.
+ * The queries are scored by a QueryScorer, the cosine similarity unless another is given, and repeated
+ * queries can be answered from a QueryCache.
+ */
+public class QueryBatch {
+	/** The run tag written at the end of every result line. */
+	static final String TAG = "DocCompare";
+	private InvertedIndex index;
+	private int threads;
+	private QueryScorer scorer;
+	private QueryCache cache;
+	private Charset charset;
+	/** Constructor.
+	 *\param newIndex The corpus to score the queries against by cosine similarity.
+	 *\param threadCount The number of queries to score at once.
+	 */
+	public QueryBatch(InvertedIndex newIndex, int threadCount) {
+		this(newIndex, threadCount, MaxScoreScorer.queryScorer(newIndex), null, Charset.defaultCharset());
+	}
+	/** Constructor, with the scorer, a cache and the charset of the queries.
+	 *\param newIndex The corpus the documents are named from.
+	 *\param threadCount The number of queries to score at once.
+	 *\param newScorer Scores the queries against the corpus.
+	 *\param newCache The cache of results of the scorer, or null to score every query.
+	 *\param newCharset The charset the queries are in.
+	 */
+	public QueryBatch(InvertedIndex newIndex, int threadCount, QueryScorer newScorer, QueryCache newCache, Charset newCharset) {
+		if(threadCount <= 0)
+			throw new IllegalArgumentException("Thread count must be greater than 0.");
+		index = newIndex;
+		threads = threadCount;
+		scorer = newScorer;
+		cache = newCache;
+		charset = newCharset;
+	}
+	/** Scores every query in a directory.
+	 * The queries are written in order of their file names, whatever order they finish in.
+	 *\param queryDirectory The directory of query documents.
+	 *\param resultCount The number of results for each query.
+	 *\param out Where the run is written.
+	 *\throws IOException if the directory or a query doesn't open.
+	 */
+	public void run(String queryDirectory, final int resultCount, PrintStream out) throws IOException {
+		File queryFolder = new File(queryDirectory);
+		if(!queryFolder.isDirectory())
+			throw new IOException("Specified query directory is not a directory.");
+		final File[] queryPaths = queryFolder.listFiles(new FileFilter() {
+			public boolean accept(File path) {
+				return path.isFile();
+			}
+		});
+		Arrays.sort(queryPaths);
+		final String[] runs = new String[queryPaths.length];
+		final AtomicInteger next = new AtomicInteger();
+		Callable<Void> worker = new Callable<Void>() {
+			public Void call() throws IOException {
+				for(int x = next.getAndIncrement(); x < queryPaths.length; x = next.getAndIncrement()) {
+					MultiSet<Term> query = DocCompare.readQuery(queryPaths[x].getPath(), charset);
+					TopKCollector results;
+					if(cache != null)
+						results = cache.search(scorer, 0, query, resultCount);
+					else {
+						results = new TopKCollector(resultCount);
+						scorer.score(query, results);
+					}
+					runs[x] = formatRun(trecId(queryPaths[x].getName()), results);
+				}
+				return null;
+			}
+		};
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, queryPaths.length)));
+		try {
+			ArrayList<Future<Void>> workers = new ArrayList<Future<Void>>();
+			for(int x=0; x < threads && x < queryPaths.length; x++)
+				workers.add(pool.submit(worker));
+			for(Future<Void> done : workers)
+				done.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while scoring queries.");
+		}
+		catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		for(String run : runs)
+			out.print(run);
+		out.flush();
+	}
+	/** Formats the results of one query as TREC run lines.
+	 *\param queryId The query identifier.
+	 *\param results The most similar documents.
+	 *\return the run lines.
+	 */
+	String formatRun(String queryId, TopKCollector results) {
+		int[] order = results.getDocuments();
+		double[] cosineSimilarity = results.getScores();
+		StringBuilder lines = new StringBuilder();
+		for(int x=0; x < order.length; x++) {
+			lines.append(queryId).append(" Q0 ").append(trecId(new File(index.getName(order[x])).getName()))
+				.append(' ').append(x + 1).append(' ').append(cosineSimilarity[x]).append(' ').append(TAG).append('\n');
+		}
+		return lines.toString();
+	}
+	/** The identifier of a file in a run, its name without the extension.
+	 *\param fileName A file name without directories.
+	 *\return the identifier.
+	 */
+	static String trecId(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		return dot > 0 ? fileName.substring(0, dot) : fileName;
+	}
+}
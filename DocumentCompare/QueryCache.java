@@ -0,0 +1,136 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+/** Query result cache.
+ * Keeps the results of recent queries so a repeated query isn't scored again. Queries are keyed by
+ * their terms as Document reads them, lower case and without punctuation, with the number of times
+ * each appears, so queries differing only in case, punctuation, spacing or word order share an entry.
+ * The key also holds the number of results and the generation of the index the results came from.
+ *
+ * The cache holds a bounded number of entries and evicts the least recently used. A lookup against
+ * a newer generation of the index empties the cache, the old results can never be used again.
+ * Generations only ever go up.
+ * A repeated query gets the results of the first query with the same terms, which may differ from
+ * scoring it again in the last bit of the similarities, the sums being taken in another order.
+ *
+ * Thread safe, lookups lock the cache but scoring is done outside the lock.
+ */
+public class QueryCache {
+	private final int capacity;
+	private final LinkedHashMap<String, TopKCollector> entries;
+	private long generation = Long.MIN_VALUE;
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+	/** Constructor.
+	 *\param size The most queries to keep results for, greater than 0.
+	 */
+	public QueryCache(int size) {
+		if(size <= 0)
+			throw new IllegalArgumentException("Cache size must be greater than 0.");
+		capacity = size;
+		/*In access order, the eldest entry is the least recently used.*/
+		entries = new LinkedHashMap<String, TopKCollector>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<String, TopKCollector> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	/** Scores a query unless its results are cached.
+	 *\param index The index of the documents.
+	 *\param indexGeneration Goes up whenever the documents of the index change, see IndexDirectory.getGeneration.
+	 *\param base The multiset of the query document.
+	 *\param resultCount The number of results to keep.
+	 *\return the most similar documents, which may be shared with other callers and must not be collected in to.
+	 */
+	public TopKCollector search(InvertedIndex index, long indexGeneration, MultiSet<Term> base, int resultCount) {
+		return search(MaxScoreScorer.queryScorer(index), indexGeneration, base, resultCount);
+	}
+	/** Scores a query with a QueryScorer unless its results are cached.
+	 * A cache holds the results of one scorer, the key doesn't say which scored them.
+	 *\param scorer How the documents are scored.
+	 *\param indexGeneration Goes up whenever the documents of the index change, see IndexDirectory.getGeneration.
+	 *\param base The multiset of the query document.
+	 *\param resultCount The number of results to keep.
+	 *\return the most similar documents, which may be shared with other callers and must not be collected in to.
+	 */
+	public TopKCollector search(QueryScorer scorer, long indexGeneration, MultiSet<Term> base, int resultCount) {
+		String key = key(base, resultCount);
+		synchronized(this) {
+			if(indexGeneration > generation) {
+				entries.clear();
+				generation = indexGeneration;
+			}
+			/*An older generation is still being queried by someone, its results aren't cached.*/
+			TopKCollector results = indexGeneration == generation ? entries.get(key) : null;
+			if(results != null) {
+				hits.incrementAndGet();
+				return results;
+			}
+		}
+		misses.incrementAndGet();
+		TopKCollector results = new TopKCollector(resultCount);
+		scorer.score(base, results);
+		synchronized(this) {
+			/*Results scored against a generation that has since been replaced aren't kept.*/
+			if(indexGeneration == generation)
+				entries.put(key, results);
+		}
+		return results;
+	}
+	/** Empties the cache.
+	 */
+	public synchronized void invalidate() {
+		entries.clear();
+	}
+	/** Entry count accessor.
+	 *\return the number of queries with cached results.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	/** Hit counter accessor.
+	 *\return the number of searches answered from the cache.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	/** Miss counter accessor.
+	 *\return the number of searches that were scored.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	/** Makes the key of a query.
+	 *\param base The multiset of the query document.
+	 *\param resultCount The number of results.
+	 *\return the result count followed by each lower case term and its count, in term order.
+	 */
+	static String key(MultiSet<Term> base, int resultCount) {
+		TreeMap<String, Integer> terms = new TreeMap<String, Integer>();
+		for(Term word : base)
+			terms.put(word.getValue().toLowerCase(), base.count(word));
+		/*Terms have no spaces in them.*/
+		StringBuilder key = new StringBuilder().append(resultCount);
+		for(Map.Entry<String, Integer> term : terms.entrySet())
+			key.append(' ').append(term.getKey()).append(' ').append(term.getValue());
+		return key.toString();
+	}
+}
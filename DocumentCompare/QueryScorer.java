@@ -0,0 +1,30 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Query scorer.
+ * One way of scoring a query document against a corpus: MaxScoreScorer.queryScorer for the cosine
+ * similarity, an ImpactIndex for another model or a MinHashIndex for only the likely near duplicates.
+ * QueryBatch scores every query of a batch with one, from several threads at once, so an
+ * implementation must be thread safe.
+ */
+public interface QueryScorer {
+	/** Scores a query and collects the most similar documents.
+	 *\param base The multiset of the query document.
+	 *\param results An empty collector.
+	 */
+	void score(MultiSet<Term> base, TopKCollector results);
+}
@@ -0,0 +1,256 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+/** Query server.
+ * Keeps a corpus loaded and answers queries over a simple line protocol on a local socket, so the
+ * corpus is read once however many queries are made. Each request is one line of query text,
+ * optionally starting with "-k <number of results>". The reply is one "name : similarity" line per
+ * result, the same as DocCompare prints, followed by an empty line. Errors are replied to with a
+ * line starting "error:" followed by an empty line.
+ *
+ * The request "-stats" is replied to with the hit and miss counts of the query cache.
+ *
+ * A server of a ShardIndex answers a ShardCoordinator. The request "-df <query text>" is replied to
+ * with a "term document frequency" line for each query term, counting the shard's documents. A query
+ * may then give the frequencies over every shard with "-g term:frequency,term:frequency, <query text>",
+ * after any "-k", so it is scored as the whole corpus would score it. These queries aren't cached.
+ *
+ * Every connection is served on its own thread. An index is never changed while serving, so
+ * queries don't lock anything. A server of an IndexDirectory checks the generation of the directory
+ * before every query and opens the new generation once it is updated, queries already being scored
+ * finish against the old one. Results may be kept in a QueryCache, which is emptied by a new generation.
+ */
+public class QueryServer {
+	private InvertedIndex index;
+	private long generation = 0;
+	private final IndexDirectory directory;
+	private final QueryCache cache;
+	private final int defaultResultCount;
+	/** Constructor.
+	 *\param newIndex The corpus to answer queries from, either a MemoryIndex or a mapped Index.
+	 *\param resultCount The number of results to reply with when the request doesn't say.
+	 */
+	public QueryServer(InvertedIndex newIndex, int resultCount) {
+		this(newIndex, resultCount, null);
+	}
+	/** Constructor, with a cache.
+	 *\param newIndex The corpus to answer queries from, either a MemoryIndex or a mapped Index.
+	 *\param resultCount The number of results to reply with when the request doesn't say.
+	 *\param newCache The cache of results, or null to score every query.
+	 */
+	public QueryServer(InvertedIndex newIndex, int resultCount, QueryCache newCache) {
+		index = newIndex;
+		directory = null;
+		cache = newCache;
+		defaultResultCount = resultCount;
+	}
+	/** Constructor, for an index directory that is updated while serving.
+	 *\param newDirectory The index directory to answer queries from.
+	 *\param resultCount The number of results to reply with when the request doesn't say.
+	 *\param newCache The cache of results, or null to score every query.
+	 *\throws IOException if the directory holds no index.
+	 */
+	public QueryServer(IndexDirectory newDirectory, int resultCount, QueryCache newCache) throws IOException {
+		directory = newDirectory;
+		cache = newCache;
+		defaultResultCount = resultCount;
+		/*Read before opening, an update in between is seen as a new generation by the next query.*/
+		generation = directory.getGeneration();
+		index = directory.open();
+	}
+	/** Accepts connections until the process is stopped.
+	 *\param port The port to listen on, only connections from this machine are accepted.
+	 *\throws IOException if the port can't be listened on.
+	 */
+	public void serve(int port) throws IOException {
+		ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		ExecutorService connections = Executors.newCachedThreadPool();
+		try {
+			System.out.println("Listening on " + server.getLocalSocketAddress());
+			while(true) {
+				final Socket client = server.accept();
+				connections.execute(new Runnable() {
+					public void run() {
+						try {
+							serve(new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8)),
+								new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)));
+						}
+						catch (IOException e) {
+							/*The client went away, nothing else depends on the connection.*/
+						}
+						finally {
+							try {
+								client.close();
+							}
+							catch (IOException e) {}
+						}
+					}
+				});
+			}
+		}
+		finally {
+			connections.shutdownNow();
+			server.close();
+		}
+	}
+	/** Answers every request on a connection.
+	 *\param requests One query per line.
+	 *\param replies Where the results are written.
+	 *\throws IOException if the connection fails.
+	 */
+	public void serve(BufferedReader requests, PrintWriter replies) throws IOException {
+		String request;
+		while((request = requests.readLine()) != null) {
+			replies.print(answer(request));
+			replies.println();
+			replies.flush();
+		}
+	}
+	/** Answers a single request.
+	 *\param request A line of query text, optionally starting with "-k <number of results>".
+	 *\return the result lines.
+	 */
+	public String answer(String request) {
+		if(request.equals("-stats")) {
+			if(cache == null)
+				return "error: there is no cache.\n";
+			return "hits " + cache.getHits() + "\nmisses " + cache.getMisses() + "\nentries " + cache.size() + "\n";
+		}
+		if(request.startsWith("-df "))
+			return frequencies(request.substring(4));
+		int resultCount = defaultResultCount;
+		if(request.startsWith("-k ")) {
+			String[] parts = request.split(" ", 3);
+			try {
+				resultCount = Integer.parseInt(parts[1]);
+			}
+			catch (NumberFormatException e) {
+				return "error: " + parts[1] + " is not a number.\n";
+			}
+			if(resultCount <= 0)
+				return "error: k must be greater than 0.\n";
+			request = parts.length > 2 ? parts[2] : "";
+		}
+		Map<String, Integer> frequencies = null;
+		if(request.startsWith("-g ")) {
+			String[] parts = request.split(" ", 3);
+			frequencies = new LinkedHashMap<String, Integer>();
+			for(String entry : parts[1].split(",")) {
+				int separator = entry.lastIndexOf(':');
+				try {
+					frequencies.put(entry.substring(0, Math.max(0, separator)), Integer.parseInt(entry.substring(separator + 1)));
+				}
+				catch (NumberFormatException e) {
+					return "error: " + entry + " is not a term and document frequency.\n";
+				}
+			}
+			request = parts.length > 2 ? parts[2] : "";
+		}
+		MultiSet<Term> query;
+		try {
+			/*Queries get their own dictionary so the corpus dictionary isn't changed by queries.*/
+			query = new Document("query", new StringReader(request), null, new TermDictionary()).getMultiSet();
+		}
+		catch (IOException e) {
+			return "error: " + e.getMessage() + "\n";
+		}
+		InvertedIndex current;
+		long currentGeneration;
+		try {
+			synchronized(this) {
+				refresh();
+				current = index;
+				currentGeneration = generation;
+			}
+		}
+		catch (IOException e) {
+			return "error: " + e.getMessage() + "\n";
+		}
+		TopKCollector results;
+		try {
+			if(frequencies != null)
+				results = DocCompare.search(new GlobalFrequencies(current, frequencies), query, resultCount);
+			else
+				results = cache != null ? cache.search(current, currentGeneration, query, resultCount) : DocCompare.search(current, query, resultCount);
+		}
+		catch (IllegalArgumentException e) {
+			return "error: " + e.getMessage() + "\n";
+		}
+		return DocCompare.formatResults(current, results);
+	}
+	/** Answers a request for the document frequencies of the terms of a query.
+	 *\param request The query text.
+	 *\return a "term document frequency" line for each term, the term in lower case.
+	 */
+	private String frequencies(String request) {
+		MultiSet<Term> query;
+		try {
+			query = new Document("query", new StringReader(request), null, new TermDictionary()).getMultiSet();
+		}
+		catch (IOException e) {
+			return "error: " + e.getMessage() + "\n";
+		}
+		InvertedIndex current;
+		try {
+			synchronized(this) {
+				refresh();
+				current = index;
+			}
+		}
+		catch (IOException e) {
+			return "error: " + e.getMessage() + "\n";
+		}
+		StringBuilder lines = new StringBuilder();
+		HashSet<String> answered = new HashSet<String>();
+		for(Term word : query) {
+			String value = word.getValue().toLowerCase();
+			if(!answered.add(value))
+				continue;
+			int term = current.findTerm(value);
+			lines.append(value).append(' ').append(term >= 0 ? current.getDocumentFrequency(term) : 0).append('\n');
+		}
+		return lines.toString();
+	}
+	/** Opens the current generation of the index directory, if it has changed.
+	 *\throws IOException if the new generation can't be opened.
+	 */
+	private void refresh() throws IOException {
+		if(directory == null)
+			return;
+		long latest = directory.getGeneration();
+		if(latest == generation)
+			return;
+		InvertedIndex opened = directory.open();
+		index = opened;
+		generation = latest;
+	}
+}
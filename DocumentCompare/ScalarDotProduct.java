@@ -0,0 +1,28 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Scalar dot product kernel.
+ * One term at a time, multiplied in floats and summed in a double. This is used wherever VectorDotProduct can't be.
+ */
+public class ScalarDotProduct implements DotProduct {
+	public double dot(float[] dense, int[] terms, float[] weights, int start, int end) {
+		double area = 0;
+		for(int x=start; x < end; x++)
+			area += dense[terms[x]] * weights[x];
+		return area;
+	}
+}
@@ -0,0 +1,259 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+/** Coordinator of shard servers.
+ * Answers queries from a corpus split by ShardIndex, each shard served by a QueryServer in its own process.
+ * Every query is sent to every shard twice. First the shards reply with the document frequencies of the
+ * query terms among their documents, which are added up. Then each shard scores the query with those
+ * frequencies, the ones of the whole corpus, and replies with its most similar documents. Their scores
+ * are exactly what the whole index gives them, so the results are merged by score alone.
+ *
+ * Ties are broken by document name, lowest first, the order of the documents of a corpus read from a
+ * directory, so the results are the same as those of the unsplit corpus.
+ *
+ * Each shard keeps one connection, the shards are sent a request at the same time and one query is answered
+ * at a time. The coordinator can start the shard servers itself, as processes on this machine that are
+ * stopped when it is closed.
+ */
+public class ShardCoordinator {
+	private final Socket[] connections;
+	private final BufferedReader[] replies;
+	private final PrintWriter[] requests;
+	private final Thread stop;
+	private final ExecutorService pool;
+	/** Constructor, for shard servers that are already running.
+	 *\param addresses The "host:port" of the QueryServer of each shard.
+	 *\throws IOException if a shard can't be connected to.
+	 */
+	public ShardCoordinator(String[] addresses) throws IOException {
+		this(addresses, null);
+	}
+	private ShardCoordinator(String[] addresses, Thread hook) throws IOException {
+		if(addresses.length == 0)
+			throw new IllegalArgumentException("There must be at least one shard.");
+		stop = hook;
+		connections = new Socket[addresses.length];
+		replies = new BufferedReader[addresses.length];
+		requests = new PrintWriter[addresses.length];
+		pool = Executors.newFixedThreadPool(addresses.length);
+		try {
+			for(int shard=0; shard < addresses.length; shard++) {
+				int separator = addresses[shard].lastIndexOf(':');
+				if(separator < 0)
+					throw new IOException(addresses[shard] + " is not a host:port.");
+				try {
+					connections[shard] = new Socket(addresses[shard].substring(0, separator), Integer.parseInt(addresses[shard].substring(separator + 1)));
+				}
+				catch (NumberFormatException e) {
+					throw new IOException(addresses[shard] + " is not a host:port.");
+				}
+				replies[shard] = new BufferedReader(new InputStreamReader(connections[shard].getInputStream(), StandardCharsets.UTF_8));
+				requests[shard] = new PrintWriter(new OutputStreamWriter(connections[shard].getOutputStream(), StandardCharsets.UTF_8));
+			}
+		}
+		catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+	/** Starts a shard server for each shard file and connects to them.
+	 * The servers run the classes of this process, with the same java, and listen on any free port.
+	 *\param shardFiles The index file of each shard, see ShardIndex.shardFiles.
+	 *\return the coordinator, which stops the servers when it is closed.
+	 *\throws IOException if a server can't be started.
+	 */
+	public static ShardCoordinator launch(String[] shardFiles) throws IOException {
+		final ArrayList<Process> started = new ArrayList<Process>();
+		/*Servers are stopped if this process ends before the coordinator is closed.*/
+		Thread stop = new Thread() {
+			public void run() {
+				synchronized(started) {
+					for(Process worker : started)
+						worker.destroy();
+				}
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(stop);
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String[] addresses = new String[shardFiles.length];
+		try {
+			for(int shard=0; shard < shardFiles.length; shard++) {
+				ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), DocCompare.class.getName(), "-i", shardFiles[shard], "-p", "0");
+				builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				Process worker = builder.start();
+				synchronized(started) {
+					started.add(worker);
+				}
+				/*The server prints "Listening on /127.0.0.1:port" once it is ready, or why it can't start.*/
+				String listening = new BufferedReader(new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8)).readLine();
+				if(listening == null || !listening.startsWith("Listening on "))
+					throw new IOException("The server of " + shardFiles[shard] + " didn't start: " + listening);
+				addresses[shard] = listening.substring(listening.lastIndexOf('/') + 1);
+			}
+		}
+		catch (IOException e) {
+			Runtime.getRuntime().removeShutdownHook(stop);
+			stop.run();
+			throw e;
+		}
+		/*Closes the connections, stops the servers and removes the hook if it fails.*/
+		return new ShardCoordinator(addresses, stop);
+	}
+	/** Number of shards accessor.
+	 *\return the number of shards.
+	 */
+	public int getShardCount() {
+		return connections.length;
+	}
+	/** Scores a query against every shard.
+	 *\param text The text of the query document.
+	 *\param resultCount The number of results.
+	 *\return the result lines, one "name : similarity" line each, as DocCompare prints them.
+	 *\throws IOException if a shard fails or replies with an error.
+	 */
+	public synchronized String search(String text, int resultCount) throws IOException {
+		if(resultCount <= 0)
+			throw new IllegalArgumentException("k must be greater than 0.");
+		/*A request is one line.*/
+		text = text.replace('\r', ' ').replace('\n', ' ');
+		Map<String, Integer> frequencies = new LinkedHashMap<String, Integer>();
+		for(String[] lines : broadcast("-df " + text)) {
+			for(String line : lines) {
+				int separator = line.lastIndexOf(' ');
+				String term = line.substring(0, separator);
+				int frequency = Integer.parseInt(line.substring(separator + 1));
+				Integer sum = frequencies.get(term);
+				frequencies.put(term, sum != null ? sum + frequency : frequency);
+			}
+		}
+		/*Terms in no document are left out, as they are when the whole corpus is scored.*/
+		StringBuilder given = new StringBuilder();
+		for(Map.Entry<String, Integer> frequency : frequencies.entrySet())
+			if(frequency.getValue() > 0)
+				given.append(frequency.getKey()).append(':').append(frequency.getValue()).append(',');
+		if(given.length() == 0)
+			given.append(',');
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<Double> scores = new ArrayList<Double>();
+		for(String[] lines : broadcast("-k " + resultCount + " -g " + given + " " + text)) {
+			for(String line : lines) {
+				int separator = line.lastIndexOf(" : ");
+				names.add(line.substring(0, separator));
+				scores.add(Double.parseDouble(line.substring(separator + 3)));
+			}
+		}
+		/*A document's place among the names is its number to TopKCollector, which breaks ties by number.*/
+		String[] sorted = names.toArray(new String[names.size()]);
+		Arrays.sort(sorted);
+		TopKCollector results = new TopKCollector(resultCount);
+		for(int x=0; x < sorted.length; x++)
+			results.collect(Arrays.binarySearch(sorted, names.get(x)), scores.get(x));
+		int[] order = results.getDocuments();
+		double[] cosineSimilarity = results.getScores();
+		StringBuilder lines = new StringBuilder();
+		for(int x=0; x < order.length; x++)
+			lines.append(sorted[order[x]]).append(" : ").append(cosineSimilarity[x]).append('\n');
+		return lines.toString();
+	}
+	/** Sends a request to every shard at once.
+	 *\param request The request line.
+	 *\return the reply lines of each shard, without the empty line that ends them.
+	 *\throws IOException if a shard fails or replies with an error.
+	 */
+	private String[][] broadcast(final String request) throws IOException {
+		ArrayList<Future<String[]>> sent = new ArrayList<Future<String[]>>();
+		for(int shard=0; shard < connections.length; shard++) {
+			final int current = shard;
+			sent.add(pool.submit(new Callable<String[]>() {
+				public String[] call() throws IOException {
+					requests[current].println(request);
+					requests[current].flush();
+					ArrayList<String> lines = new ArrayList<String>();
+					String line, error = null;
+					/*The whole reply is read even after an error, so the next one starts at its first line.*/
+					while((line = replies[current].readLine()) != null && line.length() > 0) {
+						if(line.startsWith("error:") && error == null)
+							error = line;
+						lines.add(line);
+					}
+					if(line == null)
+						throw new IOException("Shard " + current + " closed the connection.");
+					if(error != null)
+						throw new IOException("Shard " + current + " replied " + error);
+					return lines.toArray(new String[lines.size()]);
+				}
+			}));
+		}
+		String[][] lines = new String[connections.length][];
+		ExecutionException failed = null;
+		/*Every shard is waited for before a failure is thrown, so none is still answering the next request.*/
+		for(int shard=0; shard < connections.length; shard++) {
+			try {
+				lines[shard] = sent.get(shard).get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the shards.");
+			}
+			catch (ExecutionException e) {
+				if(failed == null)
+					failed = e;
+			}
+		}
+		if(failed != null) {
+			if(failed.getCause() instanceof IOException)
+				throw (IOException) failed.getCause();
+			if(failed.getCause() instanceof RuntimeException)
+				throw (RuntimeException) failed.getCause();
+			throw new IOException(failed.getCause());
+		}
+		return lines;
+	}
+	/** Closes the connections and stops the shard servers this coordinator started.
+	 */
+	public void close() {
+		pool.shutdownNow();
+		for(Socket connection : connections) {
+			try {
+				if(connection != null)
+					connection.close();
+			}
+			catch (IOException e) {}
+		}
+		if(stop != null) {
+			Runtime.getRuntime().removeShutdownHook(stop);
+			stop.run();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+/** Shard of an index.
+ * One of several parts of an index, each holding the documents whose number hashes to it, so that
+ * each part can be served by its own process and none of them needs the whole corpus. Documents keep
+ * their order, document numbers in a shard count its own documents.
+ *
+ * A document's magnitude depends on the document frequency of every term in it, over the whole corpus,
+ * so a shard keeps the magnitudes and weight bounds of the whole index. Its document frequencies only
+ * count its own documents, they are the lengths of its postings lists and that is what IndexWriter
+ * writes. A shard scores a document exactly as the whole index does once it is given the document
+ * frequencies of the query terms over every shard, see GlobalFrequencies and ShardCoordinator.
+ */
+public class ShardIndex implements InvertedIndex {
+	private final InvertedIndex corpus;
+	/*The corpus numbers of the shard's documents, and the shard number of every corpus document or -1.*/
+	private final int[] documents, local;
+	private final int[] documentFrequencies;
+	/** Constructor.
+	 *\param newCorpus The index of the whole corpus.
+	 *\param shard The shard, from 0.
+	 *\param shards The number of shards the corpus is split in to.
+	 */
+	public ShardIndex(InvertedIndex newCorpus, int shard, int shards) {
+		if(shard < 0 || shard >= shards)
+			throw new IllegalArgumentException("There is no shard " + shard + " of " + shards + ".");
+		corpus = newCorpus;
+		local = new int[corpus.getDocumentCount()];
+		int count = 0;
+		for(int doc=0; doc < local.length; doc++)
+			local[doc] = shardOf(doc, shards) == shard ? count++ : -1;
+		documents = new int[count];
+		for(int doc=0; doc < local.length; doc++)
+			if(local[doc] >= 0)
+				documents[local[doc]] = doc;
+		documentFrequencies = new int[corpus.getTermCount()];
+		for(int term=0; term < documentFrequencies.length; term++) {
+			PostingsIterator postings = corpus.getPostings(term);
+			while(postings.next())
+				if(local[postings.getDocument()] >= 0)
+					documentFrequencies[term]++;
+		}
+	}
+	/** Works out which shard a document belongs to.
+	 * The number is mixed first so that runs of similar documents, often numbered together, are spread out.
+	 *\param doc The document number in the whole corpus.
+	 *\param shards The number of shards.
+	 *\return the shard, from 0.
+	 */
+	public static int shardOf(int doc, int shards) {
+		/*The finalizer of MurmurHash3.*/
+		int hash = doc;
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return (hash & Integer.MAX_VALUE) % shards;
+	}
+	/** Splits an index and writes each shard to its own index file.
+	 * Shards left over from splitting in to more shards with the same prefix are deleted, shardFiles
+	 * would find them otherwise.
+	 *\param corpus The index of the whole corpus.
+	 *\param shards The number of shards.
+	 *\param prefix The files are named by shardFile.
+	 *\throws IOException if a shard can't be written or a left over one deleted.
+	 */
+	public static void write(InvertedIndex corpus, int shards, String prefix) throws IOException {
+		for(int shard=shards; new File(shardFile(prefix, shard)).isFile(); shard++)
+			if(!new File(shardFile(prefix, shard)).delete())
+				throw new IOException("Can't delete the old shard " + shardFile(prefix, shard) + ".");
+		for(int shard=0; shard < shards; shard++)
+			IndexWriter.write(new ShardIndex(corpus, shard, shards), shardFile(prefix, shard));
+	}
+	/** Names the index file of a shard.
+	 *\param prefix The name the shards were written with.
+	 *\param shard The shard, from 0.
+	 *\return the prefix, a dot and the shard.
+	 */
+	public static String shardFile(String prefix, int shard) {
+		return prefix + "." + shard;
+	}
+	/** Finds the index files of the shards written with a prefix.
+	 *\param prefix The name the shards were written with.
+	 *\return the files, in shard order.
+	 *\throws IOException if there are none.
+	 */
+	public static String[] shardFiles(String prefix) throws IOException {
+		ArrayList<String> files = new ArrayList<String>();
+		while(new File(shardFile(prefix, files.size())).isFile())
+			files.add(shardFile(prefix, files.size()));
+		if(files.isEmpty())
+			throw new IOException("There is no shard " + shardFile(prefix, 0) + ".");
+		return files.toArray(new String[files.size()]);
+	}
+	/** Corpus number accessor.
+	 *\return the number of each document of the shard in the whole corpus, ascending.
+	 */
+	public int[] getCorpusDocuments() {
+		return Arrays.copyOf(documents, documents.length);
+	}
+	public int getDocumentCount() {
+		return documents.length;
+	}
+	public String getName(int doc) {
+		return corpus.getName(documents[doc]);
+	}
+	public int getLength(int doc) {
+		return corpus.getLength(documents[doc]);
+	}
+	public double getMagnitude(int doc) {
+		return corpus.getMagnitude(documents[doc]);
+	}
+	/** Weight bound accessor.
+	 * The bound over the whole corpus, which is at least the bound over the shard.
+	 *\param term The term number.
+	 *\return the bound, see InvertedIndex.getMaxWeight.
+	 */
+	public double getMaxWeight(int term) {
+		return corpus.getMaxWeight(term);
+	}
+	public int getTermCount() {
+		return corpus.getTermCount();
+	}
+	public String getTerm(int term) {
+		return corpus.getTerm(term);
+	}
+	public int findTerm(String term) {
+		int found = corpus.findTerm(term);
+		return found >= 0 && documentFrequencies[found] > 0 ? found : -1;
+	}
+	public int getDocumentFrequency(int term) {
+		return documentFrequencies[term];
+	}
+	public PostingsIterator getPostings(int term) {
+		final PostingsIterator postings = corpus.getPostings(term);
+		return new PostingsIterator() {
+			private int document = -1;
+			public boolean next() {
+				while(postings.next()) {
+					document = local[postings.getDocument()];
+					if(document >= 0)
+						return true;
+				}
+				return false;
+			}
+			public boolean advance(int target) {
+				if(target >= documents.length)
+					return false;
+				if(!postings.advance(documents[Math.max(0, target)]))
+					return false;
+				document = local[postings.getDocument()];
+				return document >= 0 || next();
+			}
+			public int getDocument() {
+				return document;
+			}
+			public int getCount() {
+				return postings.getCount();
+			}
+		};
+	}
+}
@@ -0,0 +1,49 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Scoring model.
+ * Says how much a term weighs in a document and in a query, the similarity of a document to a query is
+ * the sum over their shared terms of the products of the two weights. A normalized model divides that
+ * by the magnitudes of both weight vectors, so the similarity is a cosine. A term's weight in a document
+ * only depends on the corpus, so it can be worked out once for every posting, see ImpactIndex.
+ *
+ * CosineSimilarity is the TF-IDF model the rest of the program scores with, see LogCosineSimilarity and
+ * BM25Similarity for the others.
+ */
+public interface Similarity {
+	/** Document term weight.
+	 *\param count n(d,t), the number of times the term is in the document.
+	 *\param length n(d), the total number of terms in the document.
+	 *\param documentFrequency n(t), the number of documents the term is in.
+	 *\param documentCount The number of documents in the corpus.
+	 *\param averageLength The average n(d) of the corpus.
+	 *\return the weight, 0 when count is 0.
+	 */
+	public double documentWeight(int count, int length, int documentFrequency, int documentCount, double averageLength);
+	/** Query term weight.
+	 *\param count The number of times the term is in the query.
+	 *\param length The total number of terms in the query.
+	 *\param documentFrequency n(t), the number of documents the term is in.
+	 *\param documentCount The number of documents in the corpus.
+	 *\return the weight, 0 when count is 0.
+	 */
+	public double queryWeight(int count, int length, int documentFrequency, int documentCount);
+	/** Normalization accessor.
+	 *\return true if the sum of products is divided by the magnitudes of the document and the query.
+	 */
+	public boolean isNormalized();
+}
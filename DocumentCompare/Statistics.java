@@ -0,0 +1,262 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+/** Statistics of a run.
+ * Times the phases of loading documents and answering queries, counts what they do and keeps
+ * a LatencyHistogram of each phase and of the postings read per query. Statistics are off unless
+ * setEnabled turns them on, every method then returns at once after reading a single flag, so
+ * the hot paths can be timed without slowing down runs that don't ask for it.
+ *
+ * A phase is timed by taking start and allocated before it and passing both to stop after it.
+ * The bytes a phase allocates are counted on the thread timing it, by the JVM's ThreadMXBean where
+ * it supports that. Phases timed on several threads at once, such as parsing, add up to more
+ * than the time that passed.
+ *
+ * The statistics belong to the JVM rather than to an index or query, there is one set for the
+ * process. They are shown through JMX once registered, and toJson formats them for the --stats option.
+ * Thread safe.
+ */
+public class Statistics implements StatisticsMBean {
+	/** Phase: listing the files of the data directory. */
+	public static final int LIST = 0;
+	/** Phase: parsing a document. */
+	public static final int PARSE = 1;
+	/** Phase: counting the document frequencies of a document, and adding the partial counts of the threads together. */
+	public static final int FREQUENCIES = 2;
+	/** Phase: inverting the documents in to a MemoryIndex. */
+	public static final int INVERT = 3;
+	/** Phase: scoring a query. */
+	public static final int SCORE = 4;
+	/** Phase: sorting and formatting the results of a query. */
+	public static final int RESULTS = 5;
+	private static final String[] PHASES = {"list", "parse", "frequencies", "invert", "score", "results"};
+	/** Counter: documents parsed. */
+	public static final int DOCUMENTS = 0;
+	/** Counter: words tokenized, including the words dropped. */
+	public static final int WORDS = 1;
+	/** Counter: words dropped as stopwords. */
+	public static final int STOPWORDS = 2;
+	/** Counter: words dropped for being only punctuation. */
+	public static final int PUNCTUATION = 3;
+	/** Counter: queries scored. */
+	public static final int QUERIES = 4;
+	/** Counter: postings read while scoring queries. */
+	public static final int POSTINGS = 5;
+	private static final String[] COUNTERS = {"documents", "words", "stopwords", "punctuation", "queries", "postings"};
+	/** The name the statistics are registered with JMX under. */
+	public static final String NAME = "DocumentCompare:type=Statistics";
+	private static volatile boolean enabled = false;
+	private static final AtomicLongArray counters = new AtomicLongArray(COUNTERS.length);
+	private static final AtomicLongArray allocatedBytes = new AtomicLongArray(PHASES.length);
+	private static final LatencyHistogram[] latencies = new LatencyHistogram[PHASES.length];
+	private static final LatencyHistogram postingsPerQuery = new LatencyHistogram();
+	static {
+		for(int phase=0; phase < latencies.length; phase++)
+			latencies[phase] = new LatencyHistogram();
+	}
+	/** The thread bean is only looked up once statistics are on, it costs some time at start up. */
+	private static class Allocation {
+		static final com.sun.management.ThreadMXBean threads = lookup();
+		private static com.sun.management.ThreadMXBean lookup() {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if(!(bean instanceof com.sun.management.ThreadMXBean))
+				return null;
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+			if(!threads.isThreadAllocatedMemorySupported())
+				return null;
+			if(!threads.isThreadAllocatedMemoryEnabled())
+				threads.setThreadAllocatedMemoryEnabled(true);
+			return threads;
+		}
+	}
+	/** Turns recording on or off for the whole process.
+	 *\param on true to record.
+	 */
+	public static void enable(boolean on) {
+		enabled = on;
+	}
+	/** Enabled accessor.
+	 *\return true if statistics are being recorded.
+	 */
+	public static boolean enabled() {
+		return enabled;
+	}
+	/** Starts timing a phase.
+	 *\return the time to pass to stop, 0 when statistics are off.
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+	/** Starts counting the bytes a phase allocates.
+	 *\return the bytes the thread has allocated to pass to stop, 0 when statistics are off or can't be counted.
+	 */
+	public static long allocated() {
+		if(!enabled || Allocation.threads == null)
+			return 0;
+		return Allocation.threads.getCurrentThreadAllocatedBytes();
+	}
+	/** Stops timing a phase and records it.
+	 *\param phase The phase, such as PARSE.
+	 *\param started What start returned before the phase.
+	 *\param allocatedBefore What allocated returned before the phase.
+	 */
+	public static void stop(int phase, long started, long allocatedBefore) {
+		/*Nothing was started if statistics were turned on during the phase.*/
+		if(!enabled || started == 0)
+			return;
+		latencies[phase].record(System.nanoTime() - started);
+		if(allocatedBefore != 0)
+			allocatedBytes.addAndGet(phase, allocated() - allocatedBefore);
+	}
+	/** Adds to a counter.
+	 *\param counter The counter, such as WORDS.
+	 *\param amount The amount to add.
+	 */
+	public static void add(int counter, long amount) {
+		if(enabled)
+			counters.addAndGet(counter, amount);
+	}
+	/** Counts a query that has been scored.
+	 *\param postings The number of postings read to score it.
+	 */
+	public static void query(long postings) {
+		if(!enabled)
+			return;
+		counters.incrementAndGet(QUERIES);
+		counters.addAndGet(POSTINGS, postings);
+		postingsPerQuery.record(postings);
+	}
+	/** Counter accessor.
+	 *\param counter The counter, such as WORDS.
+	 *\return its value.
+	 */
+	public static long get(int counter) {
+		return counters.get(counter);
+	}
+	/** Phase latency accessor.
+	 *\param phase The phase, such as SCORE.
+	 *\return the nanoseconds each time the phase ran.
+	 */
+	public static LatencyHistogram getLatencies(int phase) {
+		return latencies[phase];
+	}
+	/** Postings accessor.
+	 *\return the postings read by each query.
+	 */
+	public static LatencyHistogram getPostingsPerQuery() {
+		return postingsPerQuery;
+	}
+	/** Sets every counter and histogram back to 0, whether or not statistics are on.
+	 */
+	public static void clear() {
+		for(int counter=0; counter < COUNTERS.length; counter++)
+			counters.set(counter, 0);
+		for(int phase=0; phase < PHASES.length; phase++) {
+			allocatedBytes.set(phase, 0);
+			latencies[phase].reset();
+		}
+		postingsPerQuery.reset();
+	}
+	/** Formats the statistics as JSON.
+	 * An object of the counters, of each phase's count, total nanoseconds, bytes allocated and
+	 * latency percentiles in nanoseconds, and of the percentiles of the postings read per query.
+	 *\return a JSON object, one member to a line.
+	 */
+	public static String toJson() {
+		StringBuilder json = new StringBuilder("{\n\t\"counters\": {");
+		for(int counter=0; counter < COUNTERS.length; counter++)
+			json.append(counter > 0 ? ", " : "").append('"').append(COUNTERS[counter]).append("\": ").append(counters.get(counter));
+		json.append("},\n\t\"phases\": {\n");
+		for(int phase=0; phase < PHASES.length; phase++) {
+			json.append("\t\t\"").append(PHASES[phase]).append("\": ");
+			appendHistogram(json, latencies[phase], "nanoseconds");
+			json.append(", \"allocatedBytes\": ").append(allocatedBytes.get(phase)).append('}');
+			json.append(phase < PHASES.length - 1 ? ",\n" : "\n");
+		}
+		json.append("\t},\n\t\"postingsPerQuery\": ");
+		appendHistogram(json, postingsPerQuery, "total");
+		json.append("}\n}\n");
+		return json.toString();
+	}
+	/** Appends the members of a histogram, leaving the object open.
+	 *\param json The JSON being built.
+	 *\param histogram The histogram.
+	 *\param total The name of the sum of its values.
+	 */
+	private static void appendHistogram(StringBuilder json, LatencyHistogram histogram, String total) {
+		json.append("{\"count\": ").append(histogram.getCount());
+		json.append(", \"").append(total).append("\": ").append(histogram.getTotal());
+		json.append(", \"p50\": ").append(histogram.getPercentile(50));
+		json.append(", \"p90\": ").append(histogram.getPercentile(90));
+		json.append(", \"p99\": ").append(histogram.getPercentile(99));
+		json.append(", \"max\": ").append(histogram.getMax());
+	}
+	/** Registers the statistics with the platform MBean server, if they aren't already.
+	 */
+	public static void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(NAME);
+			if(!server.isRegistered(name))
+				server.registerMBean(new Statistics(), name);
+		}
+		catch (JMException e) {
+			throw new IllegalStateException("Can't register the statistics with JMX.", e);
+		}
+	}
+	public boolean isEnabled() {
+		return enabled;
+	}
+	public void setEnabled(boolean on) {
+		enabled = on;
+	}
+	public long getDocuments() {
+		return get(DOCUMENTS);
+	}
+	public long getWords() {
+		return get(WORDS);
+	}
+	public long getStopwords() {
+		return get(STOPWORDS);
+	}
+	public long getPunctuation() {
+		return get(PUNCTUATION);
+	}
+	public long getQueries() {
+		return get(QUERIES);
+	}
+	public long getPostings() {
+		return get(POSTINGS);
+	}
+	public long getAllocatedBytes() {
+		long total = 0;
+		for(int phase=0; phase < PHASES.length; phase++)
+			total += allocatedBytes.get(phase);
+		return total;
+	}
+	public String getJson() {
+		return toJson();
+	}
+	public void reset() {
+		clear();
+	}
+}
@@ -0,0 +1,65 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Management interface of Statistics.
+ * The counters and phases of a running DocCompare, seen through JMX as DocumentCompare:type=Statistics.
+ */
+public interface StatisticsMBean {
+	/** Enabled accessor.
+	 *\return true if statistics are being recorded.
+	 */
+	public boolean isEnabled();
+	/** Turns recording on or off.
+	 *\param enabled true to record.
+	 */
+	public void setEnabled(boolean enabled);
+	/** Documents accessor.
+	 *\return the number of documents parsed.
+	 */
+	public long getDocuments();
+	/** Words accessor.
+	 *\return the number of words tokenized, including those dropped.
+	 */
+	public long getWords();
+	/** Stopwords accessor.
+	 *\return the number of words dropped as stopwords.
+	 */
+	public long getStopwords();
+	/** Punctuation accessor.
+	 *\return the number of words dropped for being only punctuation.
+	 */
+	public long getPunctuation();
+	/** Queries accessor.
+	 *\return the number of queries scored.
+	 */
+	public long getQueries();
+	/** Postings accessor.
+	 *\return the number of postings read while scoring queries.
+	 */
+	public long getPostings();
+	/** Allocation accessor.
+	 *\return the bytes allocated by the timed phases.
+	 */
+	public long getAllocatedBytes();
+	/** Formats every counter, phase and histogram.
+	 *\return a JSON object, see Statistics.toJson.
+	 */
+	public String getJson();
+	/** Sets every counter and histogram back to 0.
+	 */
+	public void reset();
+}
@@ -0,0 +1,219 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+/** Immutable
+ * A compiled set of stopwords. The lower case stopwords are packed in to one character array and found
+ * through an open addressing table of their String hash codes, which the tokenizer has already worked
+ * out, so a lookup makes no garbage and usually compares a single word.
+ *
+ * A TermDictionary made with a filter looks up each new term once and flags it, the tokenizer then
+ * skips stopwords by the flag of their dictionary entry.
+ *
+ * The filter can be written to a binary file that is read back without tokenizing the stopwords
+ * document or building the table again.
+ */
+public class StopwordFilter {
+	/** Identifies a filter file, "DCSW". */
+	static final int MAGIC = 0x44435357;
+	/** Filter file layout version. */
+	static final int VERSION = 1;
+	private final char[] words;
+	private final int[] starts, hashes;
+	/** Table of word number + 1, 0 marks an empty slot. */
+	private final int[] slots;
+	/** Constructor.
+	 *\param stopwords The lower case stopwords, without punctuation.
+	 */
+	public StopwordFilter(String[] stopwords) {
+		String[] sorted = stopwords.clone();
+		Arrays.sort(sorted);
+		int count = 0, characters = 0;
+		for(int x=0; x < sorted.length; x++) {
+			if(x > 0 && sorted[x].equals(sorted[x - 1]))
+				continue;
+			sorted[count++] = sorted[x];
+			characters += sorted[x].length();
+		}
+		words = new char[characters];
+		starts = new int[count + 1];
+		hashes = new int[count];
+		for(int word=0; word < count; word++) {
+			sorted[word].getChars(0, sorted[word].length(), words, starts[word]);
+			starts[word + 1] = starts[word] + sorted[word].length();
+			hashes[word] = sorted[word].hashCode();
+		}
+		/*Kept at most half full, so a miss usually stops at the first empty slot.*/
+		int size = 2;
+		while(size < count * 2)
+			size *= 2;
+		slots = new int[size];
+		for(int word=0; word < count; word++) {
+			int slot = hashes[word] & (size - 1);
+			while(slots[slot] != 0)
+				slot = (slot + 1) & (size - 1);
+			slots[slot] = word + 1;
+		}
+	}
+	/** Constructor, from a stopwords multiset.
+	 *\param stopwords The stopwords, as Document.getMultiSet gives them.
+	 */
+	public StopwordFilter(MultiSet<Term> stopwords) {
+		this(values(stopwords));
+	}
+	private static String[] values(MultiSet<Term> stopwords) {
+		ArrayList<String> values = new ArrayList<String>();
+		for(Term word : stopwords)
+			values.add(word.getValue().toLowerCase());
+		return values.toArray(new String[values.size()]);
+	}
+	private StopwordFilter(char[] newWords, int[] newStarts, int[] newHashes, int[] newSlots) {
+		words = newWords;
+		starts = newStarts;
+		hashes = newHashes;
+		slots = newSlots;
+	}
+	/** Reads a filter, a stopwords document is read in the platform charset.
+	 *\param stopwordsFile Either a stopwords document, whose terms are the stopwords, or a file written by write.
+	 *\return the filter.
+	 *\throws IOException if the file can't be read.
+	 */
+	public static StopwordFilter read(String stopwordsFile) throws IOException {
+		return read(stopwordsFile, Charset.defaultCharset());
+	}
+	/** Reads a filter.
+	 *\param stopwordsFile Either a stopwords document, whose terms are the stopwords, or a file written by write.
+	 *\param charset The charset of a stopwords document, a written filter doesn't depend on it.
+	 *\return the filter.
+	 *\throws IOException if the file can't be read.
+	 */
+	public static StopwordFilter read(String stopwordsFile, Charset charset) throws IOException {
+		/*Filters are small, the whole file is read and the tables copied out in bulk.*/
+		byte[] bytes = Files.readAllBytes(Paths.get(stopwordsFile));
+		ByteBuffer in = ByteBuffer.wrap(bytes);
+		/*Anything else is a stopwords document.*/
+		if(in.remaining() < 4 || in.getInt() != MAGIC)
+			return parse(new InputStreamReader(new ByteArrayInputStream(bytes), charset));
+		try {
+			if(in.getInt() != VERSION)
+				throw new IOException(stopwordsFile + " was written by a different version, compile it again.");
+			char[] words = new char[in.getInt()];
+			int[] starts = new int[in.getInt()];
+			int[] hashes = new int[starts.length - 1];
+			int[] slots = new int[in.getInt()];
+			in.asCharBuffer().get(words);
+			in.position(in.position() + 2 * words.length);
+			IntBuffer tables = in.asIntBuffer();
+			tables.get(starts);
+			tables.get(hashes);
+			tables.get(slots);
+			return new StopwordFilter(words, starts, hashes, slots);
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException(stopwordsFile + " is cut short.");
+		}
+	}
+	/** Makes a filter of the terms of a stopwords document.
+	 *\param stopwordsDocument The text, this is closed once read.
+	 *\return the filter.
+	 *\throws IOException if the text can't be read.
+	 */
+	public static StopwordFilter parse(Reader stopwordsDocument) throws IOException {
+		TermDictionary dictionary = new TermDictionary();
+		try {
+			Tokenizer words = new Tokenizer(stopwordsDocument, dictionary);
+			while(words.next() != -1);
+		}
+		finally {
+			stopwordsDocument.close();
+		}
+		String[] stopwords = new String[dictionary.size()];
+		for(int term=0; term < stopwords.length; term++)
+			stopwords[term] = dictionary.getValue(term);
+		return new StopwordFilter(stopwords);
+	}
+	/** Writes the filter so that read can load it without tokenizing.
+	 *\param filterFile The file to write.
+	 *\throws IOException if the file can't be written.
+	 */
+	public void write(String filterFile) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filterFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(words.length);
+			out.writeInt(starts.length);
+			out.writeInt(slots.length);
+			for(char c : words)
+				out.writeChar(c);
+			for(int start : starts)
+				out.writeInt(start);
+			for(int hash : hashes)
+				out.writeInt(hash);
+			for(int slot : slots)
+				out.writeInt(slot);
+		}
+		finally {
+			out.close();
+		}
+	}
+	/** Stopword count accessor.
+	 *\return the number of distinct stopwords.
+	 */
+	public int size() {
+		return hashes.length;
+	}
+	/** Stopword test.
+	 *\param term The lower case value of a Term.
+	 *\return true if the term is a stopword.
+	 */
+	public boolean contains(String term) {
+		return contains(term.toCharArray(), term.length(), term.hashCode());
+	}
+	/** Stopword test, without making garbage.
+	 *\param key Lower case characters, the term is the first length of them.
+	 *\param hash The String hash code of the term.
+	 *\return true if the term is a stopword.
+	 */
+	public boolean contains(char[] key, int length, int hash) {
+		for(int slot = hash & (slots.length - 1); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+			int word = slots[slot] - 1;
+			if(hashes[word] != hash || starts[word + 1] - starts[word] != length)
+				continue;
+			int start = starts[word], x = 0;
+			while(x < length && words[start + x] == key[x])
+				x++;
+			if(x == length)
+				return true;
+		}
+		return false;
+	}
+}
@@ -21,20 +21,39 @@ package DocumentCompare;
  */
 public class Term implements Comparable<Term> {
 	private String value;
+	/** The lower case value, kept so that hashing and equality don't lower case on every lookup. */
+	private String folded;
 	/** Constructor, strips punctuation.
 	 *\param String String to wrap.
 	 */
 	public Term(String newValue) {
-		if(newValue != null)
-			newValue = newValue.replaceAll("\\p{Punct}", "");
-		if(newValue != null && !newValue.equals(""))
+		if(newValue != null) {
+			StringBuilder stripped = new StringBuilder(newValue.length());
+			for(int x=0; x < newValue.length(); x++) {
+				if(!isPunctuation(newValue.charAt(x)))
+					stripped.append(newValue.charAt(x));
+			}
+			newValue = stripped.toString();
+		}
+		if(newValue != null && !newValue.equals("")) {
 			value = newValue;
+			folded = value.toLowerCase();
+		}
 	}
 	/** Clone by constructor.
 	 *\param Term to clone.
 	 */
 	public Term(Term copy) {
 		 value = copy.getValue();
+		 folded = copy.folded;
+	}
+	/** Punctuation test.
+	 * The characters of the POSIX punct class, the same as \\p{Punct}.
+	 *\param c character to test.
+	 *\return true if c is stripped from terms.
+	 */
+	public static boolean isPunctuation(char c) {
+		return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
 	}
 	/** Accessor.
 	 *\return String value.
@@ -64,11 +83,11 @@ public class Term implements Comparable<Term> {
 	/** hashCode override.
 	 */
 	public int hashCode() { 
-		return value.toLowerCase().hashCode();
+		return folded.hashCode();
 	}
 	/** equals override.
 	 */
 	public boolean equals(Object other) {
-		return ((other instanceof Term) && value.toLowerCase().equals(((Term)other).value.toLowerCase()));
+		return ((other instanceof Term) && folded.equals(((Term)other).folded));
 	}
 }
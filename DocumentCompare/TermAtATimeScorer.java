@@ -0,0 +1,87 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Term at a time scorer.
+ * Calculates the same TF-IDF cosine similarity as Document.setCosineSimilarity, the algorithm is
+ * documented in algorithm.tex. Instead of visiting every document, the postings list of each query
+ * term is walked in turn and the partial dot products are summed in an accumulator per document.
+ * The document magnitudes come precomputed from the index, so a query costs the length of its
+ * postings lists rather than the size of the corpus.
+ */
+public class TermAtATimeScorer {
+	private InvertedIndex index;
+	private long postingsRead;
+	/** Constructor.
+	 *\param newIndex The index to score against.
+	 */
+	public TermAtATimeScorer(InvertedIndex newIndex) {
+		index = newIndex;
+	}
+	/** Scores a query against every document in the index.
+	 *\param base The multiset of the query document.
+	 *\return the cosine similarity of each document, indexed by document number.
+	 */
+	public double[] score(MultiSet<Term> base) {
+		double[] area = new double[index.getDocumentCount()];
+		double baseMagnitude = 0;
+		boolean disjoint = true;
+		for(Term word : base) {
+			int term = index.findTerm(word.getValue().toLowerCase());
+			/*Terms which are in no document have no relevance, as in Document.*/
+			if(term < 0)
+				continue;
+			double inverseDocumentFrequency = 1 / (double) index.getDocumentFrequency(term);
+			double baseRelevance = inverseDocumentFrequency * Math.log(1 + (double) base.count(word) / (double) base.count());
+			baseMagnitude += baseRelevance * baseRelevance;
+			disjoint = false;
+			PostingsIterator postings = index.getPostings(term);
+			while(postings.next()) {
+				int doc = postings.getDocument();
+				double ourRelevance = inverseDocumentFrequency * Math.log(1 + (double) postings.getCount() / (double) index.getLength(doc));
+				area[doc] += ourRelevance * baseRelevance;
+			}
+			postingsRead += index.getDocumentFrequency(term);
+		}
+		/*The accumulators become the similarities.*/
+		for(int doc=0; doc < area.length; doc++) {
+			double magnitude = index.getMagnitude(doc);
+			/*Only an empty document has a magnitude of 0. Document sums n(d,t)/n(d) = 0/0 for it
+			 * once the query shares any term with the corpus, so its similarity is NaN rather than 0.
+			 */
+			if(magnitude == 0)
+				area[doc] = disjoint ? 0 : Double.NaN;
+			else
+				area[doc] = area[doc] / (Math.sqrt(magnitude) * Math.sqrt(baseMagnitude));
+		}
+		return area;
+	}
+	/** Postings accessor.
+	 *\return the number of postings read by the queries scored so far.
+	 */
+	public long getPostingsRead() {
+		return postingsRead;
+	}
+	/** Scores a query and offers every document to a collector.
+	 *\param base The multiset of the query document.
+	 *\param results The collector keeping the most similar documents.
+	 */
+	public void score(MultiSet<Term> base, TopKCollector results) {
+		double[] cosineSimilarity = score(base);
+		for(int doc=0; doc < cosineSimilarity.length; doc++)
+			results.collect(doc, cosineSimilarity[doc]);
+	}
+}
@@ -0,0 +1,164 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.util.Arrays;
+/** Term dictionary.
+ * Interns terms, giving every distinct lower case term a dense number starting at 0 and a single
+ * Term instance. Terms are looked up by their characters so the tokenizer never makes a String
+ * for a term it has seen before.
+ *
+ * The dictionary is shared by the threads loading a corpus. Lookups don't lock, the open addressing
+ * table only ever gains entries and every entry is immutable; adding takes the lock and looks again.
+ */
+public class TermDictionary {
+	private volatile Entry[] table = new Entry[1024];
+	private volatile Entry[] entries = new Entry[512];
+	private int size = 0;
+	private final StopwordFilter stopwords;
+	/** Constructor.
+	 */
+	public TermDictionary() {
+		this(null);
+	}
+	/** Constructor, with stopwords.
+	 * Every term is checked against the filter once, when it is added, and flagged so that a
+	 * Tokenizer reading in to this dictionary skips it.
+	 *\param filter The stopwords, or null for none.
+	 */
+	public TermDictionary(StopwordFilter filter) {
+		stopwords = filter;
+	}
+	/** Term count accessor.
+	 *\return the number of terms in the dictionary.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	/** Term number lookup.
+	 *\param term The lower case value of a Term.
+	 *\return the number of the term, or -1 if it isn't in the dictionary.
+	 */
+	public int find(String term) {
+		Entry entry = find(term.toCharArray(), term.length(), term.hashCode());
+		if(entry == null)
+			return -1;
+		return entry.number;
+	}
+	/** Term accessor.
+	 *\param number The number of a term.
+	 *\return the Term, with the case of the first time it was added.
+	 */
+	public Term getTerm(int number) {
+		return getEntry(number).term;
+	}
+	/** Stopword test.
+	 *\param number The number of a term.
+	 *\return true if the term is in the dictionary's stopwords.
+	 */
+	public boolean isStopword(int number) {
+		return getEntry(number).stopword;
+	}
+	/** Value accessor.
+	 *\param number The number of a term.
+	 *\return the lower case value of the term.
+	 */
+	public String getValue(int number) {
+		return new String(getEntry(number).key);
+	}
+	/** Looks up lower case characters without locking.
+	 *\param key Lower case characters, the term is the first length of them.
+	 *\param hash The String hash code of the term.
+	 *\return the entry, or null if the term isn't in the dictionary.
+	 */
+	Entry find(char[] key, int length, int hash) {
+		Entry[] slots = table;
+		for(int slot = hash & (slots.length - 1); slots[slot] != null; slot = (slot + 1) & (slots.length - 1)) {
+			Entry entry = slots[slot];
+			if(entry.hash == hash && entry.matches(key, length))
+				return entry;
+		}
+		return null;
+	}
+	/** Adds a term unless another thread has already added it.
+	 *\param key Lower case characters, the term is the first length of them.
+	 *\param hash The String hash code of the term.
+	 *\param value The value of the Term, without punctuation but in its original case.
+	 *\return the entry of the term.
+	 */
+	synchronized Entry add(char[] key, int length, int hash, String value) {
+		Entry entry = find(key, length, hash);
+		if(entry != null)
+			return entry;
+		if(size == entries.length)
+			entries = Arrays.copyOf(entries, size * 2);
+		boolean stopword = stopwords != null && stopwords.contains(key, length, hash);
+		entry = new Entry(Arrays.copyOf(key, length), hash, size, new Term(value), stopword);
+		entries[size++] = entry;
+		Entry[] slots = table;
+		/*Kept at most half full, a larger table is filled before it is published.*/
+		if(size * 2 > slots.length) {
+			Entry[] grown = new Entry[slots.length * 2];
+			for(Entry old : slots)
+				if(old != null)
+					insert(grown, old);
+			insert(grown, entry);
+			table = grown;
+		}
+		else
+			insert(slots, entry);
+		return entry;
+	}
+	private static void insert(Entry[] slots, Entry entry) {
+		int slot = entry.hash & (slots.length - 1);
+		while(slots[slot] != null)
+			slot = (slot + 1) & (slots.length - 1);
+		slots[slot] = entry;
+	}
+	private Entry getEntry(int number) {
+		Entry[] current = entries;
+		if(number < current.length && current[number] != null)
+			return current[number];
+		/*Numbers handed out by another thread may not be visible yet.*/
+		synchronized(this) {
+			if(number < 0 || number >= size)
+				throw new IllegalArgumentException("No term numbered " + number + ".");
+			return entries[number];
+		}
+	}
+	/** An interned term, never changed once made. */
+	static final class Entry {
+		final char[] key;
+		final int hash, number;
+		final Term term;
+		final boolean stopword;
+		Entry(char[] newKey, int newHash, int newNumber, Term newTerm, boolean newStopword) {
+			key = newKey;
+			hash = newHash;
+			number = newNumber;
+			term = newTerm;
+			stopword = newStopword;
+		}
+		boolean matches(char[] other, int length) {
+			if(length != key.length)
+				return false;
+			for(int x=0; x < length; x++)
+				if(key[x] != other[x])
+					return false;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+/** Streaming tokenizer.
+ * Reads characters in to a buffer and scans them once, giving the same terms as splitting every
+ * line on spaces and making a Term of each word: punctuation is dropped, words that are only
+ * punctuation are skipped, and words are matched case-insensitively. Each term is interned in a
+ * TermDictionary, so only terms the dictionary hasn't seen make any garbage.
+ * Terms the dictionary flags as stopwords are skipped.
+ *
+ * A tokenizer made to read fields also recognizes the section markers of CACM style documents,
+ * a line starting with ".T", ".A" or ".W" begins the title, author or body, see FieldIndex.
+ * The markers aren't terms. Words before the first marker are body, words in sections of
+ * any other marker, such as ".I" or ".B", are skipped.
+ *
+ * Text that is already in memory can be tokenized in place, as characters or, where every byte is
+ * one character, as bytes without decoding them, see DocumentReader.
+ */
+public class Tokenizer {
+	/** Lower casing ASCII one character at a time is only the same as String.toLowerCase when the
+	 * default locale has no special rules for it, the Turkish dotless i for instance.
+	 */
+	private static final boolean ASCII_FOLDING = "I".toLowerCase().equals("i");
+	private Reader input;
+	private TermDictionary dictionary;
+	/*The characters or bytes being scanned, only one of them is used.*/
+	private char[] buffer;
+	private ByteBuffer bytes;
+	private int position = 0, limit = 0;
+	private char[] value = new char[32], folded = new char[32];
+	private int length;
+	private TermDictionary.Entry current;
+	/*Characters of the word including punctuation, its first character and whether it began a line.*/
+	private int characters;
+	private char first;
+	private boolean newLine = true, startsLine;
+	private boolean fields;
+	private int field = FieldIndex.BODY;
+	/*Words read and dropped since the last end of input, added to the Statistics there.*/
+	private long words, punctuation, stopwords;
+	/** Constructor.
+	 *\param newInput The characters to tokenize, read to the end but not closed.
+	 *\param newDictionary The dictionary to intern terms in.
+	 */
+	public Tokenizer(Reader newInput, TermDictionary newDictionary) {
+		this(newInput, newDictionary, false);
+	}
+	/** Constructor, with fields.
+	 *\param newInput The characters to tokenize, read to the end but not closed.
+	 *\param newDictionary The dictionary to intern terms in.
+	 *\param readFields true to treat section markers as the start of a field rather than as terms.
+	 */
+	public Tokenizer(Reader newInput, TermDictionary newDictionary, boolean readFields) {
+		input = newInput;
+		buffer = new char[8192];
+		dictionary = newDictionary;
+		fields = readFields;
+	}
+	/** Constructor, from characters in memory.
+	 *\param text The characters from its position to its limit are tokenized, text is left as it is.
+	 *\param newDictionary The dictionary to intern terms in.
+	 *\param readFields true to treat section markers as the start of a field rather than as terms.
+	 */
+	public Tokenizer(CharBuffer text, TermDictionary newDictionary, boolean readFields) {
+		if(text.hasArray()) {
+			buffer = text.array();
+			position = text.arrayOffset() + text.position();
+			limit = text.arrayOffset() + text.limit();
+		}
+		else {
+			buffer = new char[text.remaining()];
+			text.duplicate().get(buffer);
+			limit = buffer.length;
+		}
+		dictionary = newDictionary;
+		fields = readFields;
+	}
+	/** Constructor, from bytes that are one character each.
+	 * Each byte is taken as the character with the same number, as ISO-8859-1 decodes it, which is
+	 * also how any ASCII compatible charset decodes bytes below 128.
+	 *\param text The bytes from its position to its limit are tokenized, text is left as it is.
+	 *\param newDictionary The dictionary to intern terms in.
+	 *\param readFields true to treat section markers as the start of a field rather than as terms.
+	 */
+	public Tokenizer(ByteBuffer text, TermDictionary newDictionary, boolean readFields) {
+		bytes = text;
+		position = text.position();
+		limit = text.limit();
+		dictionary = newDictionary;
+		fields = readFields;
+	}
+	/** Reads the next term.
+	 *\return the dictionary number of the term, or -1 at the end of the input.
+	 *\throws IOException if the input can't be read.
+	 */
+	public int next() throws IOException {
+		length = 0;
+		boolean ascii = true;
+		while(true) {
+			if(position == limit && !fill()) {
+				if(endWord(ascii))
+					return current.number;
+				count();
+				return -1;
+			}
+			char c = bytes != null ? (char) (bytes.get(position++) & 0xff) : buffer[position++];
+			/*Words are split on spaces and line breaks.*/
+			if(c == ' ' || c == '\n' || c == '\r') {
+				boolean accepted = endWord(ascii);
+				newLine = c != ' ';
+				if(accepted)
+					return current.number;
+				length = 0;
+				ascii = true;
+			}
+			else {
+				if(characters++ == 0) {
+					first = c;
+					startsLine = newLine;
+				}
+				if(!Term.isPunctuation(c)) {
+					if(length == value.length) {
+						value = Arrays.copyOf(value, length * 2);
+						folded = Arrays.copyOf(folded, length * 2);
+					}
+					value[length++] = c;
+					if(c >= 128)
+						ascii = false;
+				}
+			}
+		}
+	}
+	/** Reads more of the input in to the buffer.
+	 *\return false at the end of the input, text given in memory is all there is.
+	 *\throws IOException if the input can't be read.
+	 */
+	private boolean fill() throws IOException {
+		if(input == null)
+			return false;
+		limit = input.read(buffer, 0, buffer.length);
+		position = 0;
+		if(limit <= 0) {
+			limit = 0;
+			return false;
+		}
+		return true;
+	}
+	/** Term accessor.
+	 *\return the Term last returned by next.
+	 */
+	public Term getTerm() {
+		return current.term;
+	}
+	/** Field accessor.
+	 *\return the FieldIndex field of the term last returned by next, always the body unless reading fields.
+	 */
+	public int getField() {
+		return field;
+	}
+	/** Ends the word in the buffer and counts it.
+	 *\return true if it is a term to return.
+	 */
+	private boolean endWord(boolean ascii) {
+		if(characters == 0)
+			return false;
+		words++;
+		boolean accepted;
+		if(length == 0) {
+			punctuation++;
+			accepted = false;
+		}
+		else
+			accepted = accept(ascii);
+		characters = 0;
+		return accepted;
+	}
+	/** Adds the words read to the Statistics.
+	 */
+	private void count() {
+		Statistics.add(Statistics.WORDS, words);
+		Statistics.add(Statistics.PUNCTUATION, punctuation);
+		Statistics.add(Statistics.STOPWORDS, stopwords);
+		words = punctuation = stopwords = 0;
+	}
+	/** Decides what the word in the buffer is.
+	 *\return true if it is a term to return.
+	 */
+	private boolean accept(boolean ascii) {
+		if(fields) {
+			if(startsLine && characters == 2 && first == '.' && length == 1 && value[0] >= 'A' && value[0] <= 'Z') {
+				field = FieldIndex.field(value[0]);
+				return false;
+			}
+			if(field < 0)
+				return false;
+		}
+		return intern(ascii);
+	}
+	/** Finds or adds the word in the buffer.
+	 *\return false if it is a stopword.
+	 */
+	private boolean intern(boolean ascii) {
+		char[] key;
+		int keyLength, hash = 0;
+		if(ascii && ASCII_FOLDING) {
+			for(int x=0; x < length; x++) {
+				char c = value[x];
+				if(c >= 'A' && c <= 'Z')
+					c += 'a' - 'A';
+				folded[x] = c;
+				hash = 31 * hash + c;
+			}
+			key = folded;
+			keyLength = length;
+		}
+		else {
+			/*Anything else is folded exactly as Term folds it.*/
+			String lower = new String(value, 0, length).toLowerCase();
+			key = lower.toCharArray();
+			keyLength = key.length;
+			hash = lower.hashCode();
+		}
+		current = dictionary.find(key, keyLength, hash);
+		if(current == null)
+			current = dictionary.add(key, keyLength, hash, new String(value, 0, length));
+		if(current.stopword)
+			stopwords++;
+		return !current.stopword;
+	}
+}
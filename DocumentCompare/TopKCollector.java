@@ -0,0 +1,160 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+/** Top k collector.
+ * Keeps the k most similar documents seen so far in a bounded min-heap, so selecting the results
+ * costs O(n log k) instead of sorting every document. Documents are ordered as Document.compareTo
+ * orders them, most similar first, with ties kept in document order and NaN similarities last.
+ *
+ * collect may be called from several scoring threads at once. Scores that can't enter the heap are
+ * rejected without taking the lock once the heap is full, alternatively each thread can fill its
+ * own collector and merge it in to a shared one when it is done.
+ */
+public class TopKCollector {
+	private final int[] documents;
+	private final double[] scores;
+	private int size = 0;
+	/** Score of the worst document held once the heap is full, anything below it is rejected. */
+	private volatile double threshold = Double.NEGATIVE_INFINITY;
+	/** Constructor.
+	 *\param k The number of documents to keep, greater than 0.
+	 */
+	public TopKCollector(int k) {
+		if(k <= 0)
+			throw new IllegalArgumentException("k must be greater than 0.");
+		documents = new int[k];
+		scores = new double[k];
+	}
+	/** Offers a document to the collector.
+	 *\param doc The document number.
+	 *\param score The cosine similarity of the document.
+	 */
+	public void collect(int doc, double score) {
+		if(score < threshold)
+			return;
+		synchronized(this) {
+			if(size < documents.length) {
+				documents[size] = doc;
+				scores[size] = score;
+				siftUp(size++);
+			}
+			else if(before(doc, score, documents[0], scores[0])) {
+				documents[0] = doc;
+				scores[0] = score;
+				siftDown(0, size);
+			}
+			else
+				return;
+			if(size == documents.length && !Double.isNaN(scores[0]))
+				threshold = scores[0];
+		}
+	}
+	/** Offers every document held by another collector.
+	 *\param other A collector, usually one filled by a single thread.
+	 */
+	public void merge(TopKCollector other) {
+		synchronized(other) {
+			for(int x=0; x < other.size; x++)
+				collect(other.documents[x], other.scores[x]);
+		}
+	}
+	/** Threshold accessor.
+	 *\return the similarity of the worst document held once k are held, negative infinity until then.
+	 * A document with a lower similarity can't be collected.
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+	/** Result count accessor.
+	 *\return the number of documents held, at most k.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	/** Results accessor.
+	 *\return the document numbers held, most similar first.
+	 */
+	public synchronized int[] getDocuments() {
+		int[] result = new int[size];
+		double[] ignored = new double[size];
+		sorted(result, ignored);
+		return result;
+	}
+	/** Results accessor.
+	 *\return the similarities of the documents held, most similar first, matching getDocuments.
+	 */
+	public synchronized double[] getScores() {
+		int[] ignored = new int[size];
+		double[] result = new double[size];
+		sorted(ignored, result);
+		return result;
+	}
+	/** Copies the heap and empties the copy in to the arrays, worst first from the back. */
+	private void sorted(int[] sortedDocuments, double[] sortedScores) {
+		TopKCollector copy = new TopKCollector(documents.length);
+		System.arraycopy(documents, 0, copy.documents, 0, size);
+		System.arraycopy(scores, 0, copy.scores, 0, size);
+		for(int remaining = size; remaining > 0; remaining--) {
+			sortedDocuments[remaining - 1] = copy.documents[0];
+			sortedScores[remaining - 1] = copy.scores[0];
+			copy.documents[0] = copy.documents[remaining - 1];
+			copy.scores[0] = copy.scores[remaining - 1];
+			copy.siftDown(0, remaining - 1);
+		}
+	}
+	/** Result order.
+	 *\return true if document a is ranked before document b.
+	 */
+	private static boolean before(int a, double aScore, int b, double bScore) {
+		if(Double.isNaN(aScore) || Double.isNaN(bScore))
+			return !Double.isNaN(aScore) || (Double.isNaN(bScore) && a < b);
+		if(aScore != bScore)
+			return aScore > bScore;
+		return a < b;
+	}
+	/** The root of the heap is the worst document held. */
+	private void siftUp(int x) {
+		while(x > 0) {
+			int parent = (x - 1) / 2;
+			if(!before(documents[parent], scores[parent], documents[x], scores[x]))
+				return;
+			swap(x, parent);
+			x = parent;
+		}
+	}
+	private void siftDown(int x, int heapSize) {
+		while(true) {
+			int worst = x, left = 2 * x + 1, right = left + 1;
+			if(left < heapSize && before(documents[worst], scores[worst], documents[left], scores[left]))
+				worst = left;
+			if(right < heapSize && before(documents[worst], scores[worst], documents[right], scores[right]))
+				worst = right;
+			if(worst == x)
+				return;
+			swap(x, worst);
+			x = worst;
+		}
+	}
+	private void swap(int a, int b) {
+		int doc = documents[a];
+		documents[a] = documents[b];
+		documents[b] = doc;
+		double score = scores[a];
+		scores[a] = scores[b];
+		scores[b] = score;
+	}
+}
@@ -0,0 +1,55 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package DocumentCompare;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+/** SIMD dot product kernel.
+ * Uses the incubating Vector API, the JVM must be started with --add-modules jdk.incubator.vector
+ * or this class can't be loaded and DocumentVectors falls back to ScalarDotProduct.
+ * A whole vector of query weights is gathered by term number at once and multiplied and added to
+ * the row's weights in float lanes. The lanes are added in to a double every BLOCK entries, so
+ * rounding doesn't grow with the length of the row.
+ */
+public class VectorDotProduct implements DotProduct {
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+	/** Entries summed in float lanes before they are added to the total. */
+	private static final int BLOCK = 16 * SPECIES.length();
+	public double dot(float[] dense, int[] terms, float[] weights, int start, int end) {
+		double area = 0;
+		int x = start;
+		int bound = start + SPECIES.loopBound(end - start);
+		while(x < bound) {
+			FloatVector sum = FloatVector.zero(SPECIES);
+			int blockEnd = Math.min(bound, x + BLOCK);
+			for(; x < blockEnd; x += SPECIES.length()) {
+				FloatVector query = FloatVector.fromArray(SPECIES, dense, 0, terms, x);
+				sum = query.fma(FloatVector.fromArray(SPECIES, weights, x), sum);
+			}
+			area += sum.reduceLanes(VectorOperators.ADD);
+		}
+		for(; x < end; x++)
+			area += dense[terms[x]] * weights[x];
+		return area;
+	}
+	/** Lane count accessor.
+	 *\return the number of floats multiplied at once on this machine.
+	 */
+	public static int getLanes() {
+		return SPECIES.length();
+	}
+}
@@ -0,0 +1,94 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.Document;
+import DocumentCompare.IntMultiSet;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TermDictionary;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+/** The small corpora and queries the tests index, parsed without stopwords */
+final class Corpora {
+	/** A few short documents, with an empty one and one sharing no term with the others. */
+	static final String[] TEXTS = {
+		"The cat sat on the mat.",
+		"A dog and a cat, and another dog!",
+		"Nothing in common here",
+		"cat cat cat mat",
+		"",
+		"dog"
+	};
+	private Corpora(){}
+	/** Parses texts as documents named doc0, doc1 and so on.
+	 *\param dictionary The dictionary the documents share.
+	 *\param texts The text of each document.
+	 *\return the documents.
+	 */
+	static Document[] documents(TermDictionary dictionary, String... texts) throws IOException {
+		Document[] documents = new Document[texts.length];
+		for(int doc=0; doc < documents.length; doc++)
+			documents[doc] = new Document("doc" + doc, new StringReader(texts[doc]), null, dictionary);
+		return documents;
+	}
+	/** Inverts documents, counting the document frequencies of their terms.
+	 *\param documents The documents, all sharing the dictionary.
+	 *\param dictionary The dictionary of the documents.
+	 *\return the index.
+	 */
+	static MemoryIndex memoryIndex(Document[] documents, TermDictionary dictionary) {
+		IntMultiSet documentFrequency = new IntMultiSet();
+		for(Document document : documents)
+			for(int term : document.getTermNumbers())
+				documentFrequency.add(term);
+		return new MemoryIndex(documents, dictionary, documentFrequency);
+	}
+	/** Parses and inverts texts as documents named doc0, doc1 and so on.
+	 *\param texts The text of each document.
+	 *\return the index.
+	 */
+	static MemoryIndex memoryIndex(String... texts) throws IOException {
+		TermDictionary dictionary = new TermDictionary();
+		return memoryIndex(documents(dictionary, texts), dictionary);
+	}
+	/** Parses a query.
+	 *\param text The text of the query.
+	 *\return the multiset of the query.
+	 */
+	static MultiSet<Term> query(String text) throws IOException {
+		return new Document("query", new StringReader(text), null, new TermDictionary()).getMultiSet();
+	}
+	/** Makes up a text of words with skewed frequencies, word0 is the most frequent.
+	 *\param random The source of the words.
+	 *\param words The number of words.
+	 *\param vocabulary The number of different words.
+	 *\param skew The power a uniform number is raised to, higher makes the first words more frequent.
+	 *\return the words separated by spaces.
+	 */
+	static String text(Random random, int words, int vocabulary, int skew) {
+		StringBuilder text = new StringBuilder();
+		for(int x=0; x < words; x++) {
+			double uniform = random.nextDouble(), skewed = uniform;
+			for(int y=1; y < skew; y++)
+				skewed *= uniform;
+			text.append("word").append((int) (skewed * vocabulary)).append(' ');
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,149 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.AllPairs;
+import DocumentCompare.Document;
+import DocumentCompare.DocumentVectors;
+import DocumentCompare.MaxScoreScorer;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.TopKCollector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Random;
+/** Checks the neighbours found with pruning are those found by comparing every pair */
+public class TestAllPairs {
+	MemoryIndex index;
+	DocumentVectors vectors;
+	String[] texts;
+	Random random;
+	public TestAllPairs(){}
+	@Before
+	public void setUp() throws IOException {
+		random = new Random(20);
+		TermDictionary dictionary = new TermDictionary();
+		Document[] documents = new Document[400];
+		texts = new String[documents.length];
+		for(int doc=0; doc < documents.length; doc++) {
+			/*Some empty documents and some copies of the document before, in another case.*/
+			texts[doc] = doc % 61 == 0 ? "" : doc % 7 == 0 ? textOf(documents[doc - 1]).toUpperCase() : Corpora.text(random, 1 + random.nextInt(40), 200, 2);
+			documents[doc] = new Document("doc" + doc, new StringReader(texts[doc]), null, dictionary);
+		}
+		index = Corpora.memoryIndex(documents, dictionary);
+		vectors = new DocumentVectors(index);
+	}
+	private static String textOf(Document document) {
+		StringBuilder text = new StringBuilder();
+		int[] terms = document.getTermNumbers(), counts = document.getTermCounts();
+		for(int x=0; x < terms.length; x++)
+			for(int y=0; y < counts[x]; y++)
+				text.append(document.getDictionary().getValue(terms[x])).append(' ');
+		return text.toString();
+	}
+	/** The cosine of two document vectors, the slow way. */
+	private double cosine(int a, int b) {
+		double area = 0;
+		int[] terms = vectors.getTerms();
+		float[] weights = vectors.getWeights();
+		for(int x=vectors.getStart(a); x < vectors.getEnd(a); x++)
+			for(int y=vectors.getStart(b); y < vectors.getEnd(b); y++)
+				if(terms[x] == terms[y])
+					area += weights[x] * (double) weights[y];
+		return area / ((double) vectors.getNorm(a) * vectors.getNorm(b));
+	}
+	private void assertSameNeighbours(TopKCollector[] neighbours, int k, double threshold) {
+		assertEquals(index.getDocumentCount(), neighbours.length);
+		for(int doc=0; doc < neighbours.length; doc++) {
+			TopKCollector expected = new TopKCollector(k);
+			for(int other=0; other < neighbours.length; other++) {
+				if(other == doc || vectors.getNorm(doc) == 0 || vectors.getNorm(other) == 0)
+					continue;
+				double similarity = cosine(doc, other);
+				if(similarity > 0 && similarity >= threshold)
+					expected.collect(other, similarity);
+			}
+			int[] documents = neighbours[doc].getDocuments();
+			double[] scores = neighbours[doc].getScores();
+			/*Float weights can swap documents with nearly equal similarities, so only the similarities are compared in order.*/
+			assertArrayEquals(expected.getScores(), scores, 1e-6);
+			for(int x=0; x < documents.length; x++)
+				assertEquals(cosine(doc, documents[x]), scores[x], 1e-6);
+		}
+	}
+	@Test
+	public void testNoThreshold() throws IOException {
+		assertSameNeighbours(new AllPairs(index, 1).run(5, 0), 5, 0);
+	}
+	@Test
+	public void testThresholds() throws IOException {
+		AllPairs pairs = new AllPairs(index, 3);
+		for(double threshold : new double[] {0.05, 0.2, 0.5, 0.9})
+			assertSameNeighbours(pairs.run(10, threshold), 10, threshold);
+		assertSameNeighbours(pairs.run(1, 0.1), 1, 0.1);
+	}
+	@Test
+	public void testSameAsQuery() throws IOException {
+		/*Without stopwords a document as a query file has the vector it has in the index, so a row is its -q ranking without itself.*/
+		int doc = 100, k = 10;
+		TopKCollector ranking = new TopKCollector(index.getDocumentCount());
+		new MaxScoreScorer(index).score(Corpora.query(texts[doc]), ranking);
+		HashMap<Integer, Double> similarities = new HashMap<Integer, Double>();
+		double[] expected = new double[k];
+		int[] documents = ranking.getDocuments();
+		double[] scores = ranking.getScores();
+		int found = 0;
+		for(int x=0; x < documents.length; x++) {
+			similarities.put(documents[x], scores[x]);
+			if(documents[x] != doc && scores[x] > 0 && found < k)
+				expected[found++] = scores[x];
+		}
+		assertEquals(k, found);
+		for(double threshold : new double[] {0, expected[k - 1] / 2}) {
+			TopKCollector row = new AllPairs(index, 1).run(k, threshold)[doc];
+			assertArrayEquals(expected, row.getScores(), 1e-6);
+			int[] neighbours = row.getDocuments();
+			for(int x=0; x < neighbours.length; x++) {
+				assertNotEquals(doc, neighbours[x]);
+				assertEquals(similarities.get(neighbours[x]), row.getScores()[x], 1e-6);
+			}
+		}
+	}
+	@Test
+	public void testNearDuplicates() throws IOException {
+		TopKCollector[] neighbours = new AllPairs(index, 2).run(1, 0.9);
+		for(int doc=7; doc < neighbours.length; doc += 7) {
+			if((doc - 1) % 61 == 0)
+				continue;
+			assertEquals(doc - 1, neighbours[doc].getDocuments()[0]);
+		}
+		assertEquals(0, neighbours[61].size());
+	}
+	@Test
+	public void testWrite() throws IOException {
+		AllPairs pairs = new AllPairs(index, 2);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		pairs.write(pairs.run(1, 0.9), new PrintStream(bytes, true, "UTF-8"));
+		String lines = bytes.toString("UTF-8");
+		assertTrue(lines, lines.startsWith("doc6 : doc7 : "));
+		assertTrue(lines, lines.contains("\ndoc7 : doc6 : "));
+	}
+}
@@ -0,0 +1,132 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.Document;
+import DocumentCompare.Index;
+import DocumentCompare.IndexWriter;
+import DocumentCompare.InvertedIndex;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.PostingsIterator;
+import DocumentCompare.TermDictionary;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+/** Checks compressed and plain index files give the postings of the index they were written from */
+public class TestCompressedPostings {
+	MemoryIndex expected;
+	File compressedFile, plainFile;
+	public TestCompressedPostings(){}
+	@Before
+	public void setUp() throws IOException {
+		/*Frequent terms span several blocks, with large gaps and counts for the rare ones.*/
+		Random random = new Random(14);
+		TermDictionary dictionary = new TermDictionary();
+		Document[] documents = new Document[3000];
+		for(int doc=0; doc < documents.length; doc++) {
+			StringBuilder text = new StringBuilder("every ");
+			if(doc % 2 == 0)
+				text.append("even ");
+			if(doc % 1000 == 999)
+				for(int x=0; x < 300; x++)
+					text.append("rare ");
+			for(int x=0; x < 5; x++)
+				text.append("word").append(random.nextInt(200)).append(' ');
+			documents[doc] = new Document("doc" + doc, new StringReader(text.toString()), null, dictionary);
+		}
+		expected = Corpora.memoryIndex(documents, dictionary);
+		compressedFile = File.createTempFile("compressed", ".idx");
+		plainFile = File.createTempFile("plain", ".idx");
+		IndexWriter.write(expected, compressedFile.getPath());
+		IndexWriter.write(expected, plainFile.getPath(), false);
+	}
+	@After
+	public void tearDown() {
+		compressedFile.delete();
+		plainFile.delete();
+	}
+	private void assertSamePostings(InvertedIndex index) {
+		for(int term=0; term < expected.getTermCount(); term++) {
+			int found = index.findTerm(expected.getTerm(term));
+			assertEquals(expected.getDocumentFrequency(term), index.getDocumentFrequency(found));
+			PostingsIterator expectedPostings = expected.getPostings(term), postings = index.getPostings(found);
+			while(expectedPostings.next()) {
+				assertTrue(postings.next());
+				assertEquals(expectedPostings.getDocument(), postings.getDocument());
+				assertEquals(expectedPostings.getCount(), postings.getCount());
+			}
+			assertFalse(postings.next());
+		}
+	}
+	private void assertSameAdvance(InvertedIndex index) {
+		Random random = new Random(15);
+		for(int term=0; term < expected.getTermCount(); term++) {
+			int found = index.findTerm(expected.getTerm(term));
+			PostingsIterator expectedPostings = expected.getPostings(term), postings = index.getPostings(found);
+			boolean more = true;
+			for(int target = random.nextInt(20); more; target += random.nextInt(400)) {
+				more = expectedPostings.advance(target);
+				assertEquals(more, postings.advance(target));
+				if(more) {
+					assertTrue(postings.getDocument() >= target);
+					assertEquals(expectedPostings.getDocument(), postings.getDocument());
+					assertEquals(expectedPostings.getCount(), postings.getCount());
+					/*Advancing to the current document stays, next carries on from it.*/
+					assertTrue(postings.advance(postings.getDocument()));
+					assertEquals(expectedPostings.getDocument(), postings.getDocument());
+					if(random.nextBoolean()) {
+						more = expectedPostings.next();
+						assertEquals(more, postings.next());
+						if(more)
+							assertEquals(expectedPostings.getDocument(), postings.getDocument());
+					}
+				}
+			}
+			assertFalse(postings.advance(Integer.MAX_VALUE));
+		}
+	}
+	@Test
+	public void testCompressed() throws IOException {
+		assertSamePostings(new Index(compressedFile.getPath()));
+		assertTrue(compressedFile.length() < plainFile.length());
+	}
+	@Test
+	public void testPlain() throws IOException {
+		assertSamePostings(new Index(plainFile.getPath()));
+	}
+	@Test
+	public void testAdvance() throws IOException {
+		assertSameAdvance(new Index(compressedFile.getPath()));
+		assertSameAdvance(new Index(plainFile.getPath()));
+	}
+	@Test
+	public void testPieces() throws IOException {
+		/*The files are mapped in pieces of 16KB, the longest lists cross a piece boundary.*/
+		assertTrue(plainFile.length() > 4 * 32768);
+		assertSamePostings(new Index(compressedFile.getPath(), 32768));
+		assertSamePostings(new Index(plainFile.getPath(), 32768));
+		assertSameAdvance(new Index(compressedFile.getPath(), 32768));
+		assertSameAdvance(new Index(plainFile.getPath(), 32768));
+	}
+	@Test(expected = IOException.class)
+	public void testListTooLargeForPieces() throws IOException {
+		/*The postings of "every" are 24000 bytes, more than a piece of 2KB can be mapped to.*/
+		new Index(plainFile.getPath(), 4096);
+	}
+}
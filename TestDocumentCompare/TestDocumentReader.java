@@ -0,0 +1,191 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.CorpusLoader;
+import DocumentCompare.DocCompare;
+import DocumentCompare.Document;
+import DocumentCompare.DocumentReader;
+import DocumentCompare.FieldIndex;
+import DocumentCompare.InvertedIndex;
+import DocumentCompare.MaxScoreScorer;
+import DocumentCompare.MultiSet;
+import DocumentCompare.PackedCorpus;
+import DocumentCompare.QueryBatch;
+import DocumentCompare.StopwordFilter;
+import DocumentCompare.Term;
+import DocumentCompare.TermDictionary;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+/** Checks that documents read in bulk, from files or a packed corpus, give the terms a Reader gives */
+public class TestDocumentReader {
+	File folder, data;
+	public TestDocumentReader(){}
+	@Before
+	public void setUp() throws IOException {
+		folder = File.createTempFile("reader", "");
+		folder.delete();
+		folder.mkdir();
+		data = new File(folder, "data");
+		data.mkdir();
+	}
+	@After
+	public void tearDown() {
+		for(File file : data.listFiles())
+			file.delete();
+		data.delete();
+		for(File file : folder.listFiles())
+			file.delete();
+		folder.delete();
+	}
+	private File write(String name, byte[] bytes) throws IOException {
+		return write(data, name, bytes);
+	}
+	private static File write(File directory, String name, byte[] bytes) throws IOException {
+		File file = new File(directory, name);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		}
+		finally {
+			out.close();
+		}
+		return file;
+	}
+	/** Reads a file both ways and compares the terms and their counts. */
+	private static void assertSameTerms(File file, Charset charset) throws IOException {
+		MultiSet<Term> expected = new Document(file.getPath(), new InputStreamReader(new FileInputStream(file), charset), null, new TermDictionary()).getMultiSet();
+		TermDictionary dictionary = new TermDictionary();
+		MultiSet<Term> actual = Document.read(file.getPath(), new DocumentReader(charset).read(file.getPath(), dictionary, false), dictionary).getMultiSet();
+		assertEquals(expected.count(), actual.count());
+		for(Term term : expected)
+			assertEquals(term.getValue(), expected.count(term), actual.count(term));
+	}
+	@Test
+	public void testAscii() throws IOException {
+		File file = write("ascii", "The cat, sat on\r\nthe MAT.\n... -- cat's".getBytes(StandardCharsets.US_ASCII));
+		assertSameTerms(file, StandardCharsets.UTF_8);
+		assertSameTerms(file, StandardCharsets.US_ASCII);
+		assertSameTerms(file, StandardCharsets.ISO_8859_1);
+		assertSameTerms(file, StandardCharsets.UTF_16BE);
+	}
+	@Test
+	public void testNonAscii() throws IOException {
+		String text = "Caf\u00e9 CAF\u00c9 na\u00efve \u00fcber \u00dcBER stra\u00dfe \u65e5\u672c \ud83d\ude00 end";
+		File utf8 = write("utf8", text.getBytes(StandardCharsets.UTF_8));
+		assertSameTerms(utf8, StandardCharsets.UTF_8);
+		assertSameTerms(utf8, StandardCharsets.ISO_8859_1);
+		assertSameTerms(utf8, StandardCharsets.US_ASCII);
+		File latin = write("latin", "Caf\u00e9 CAF\u00c9 \u00fcber \u00dcBER".getBytes(StandardCharsets.ISO_8859_1));
+		assertSameTerms(latin, StandardCharsets.ISO_8859_1);
+		/*Not UTF-8, every byte above 127 is malformed.*/
+		assertSameTerms(latin, StandardCharsets.UTF_8);
+		File wide = write("wide", text.getBytes(StandardCharsets.UTF_16LE));
+		assertSameTerms(wide, StandardCharsets.UTF_16LE);
+	}
+	@Test
+	public void testLargeDocuments() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for(int x=0; x < 30000; x++)
+			text.append("word").append(x % 977).append(x % 10 == 0 ? '\n' : ' ');
+		File ascii = write("large", text.toString().getBytes(StandardCharsets.UTF_8));
+		assertSameTerms(ascii, StandardCharsets.UTF_8);
+		text.append("\u00e9t\u00e9");
+		File utf8 = write("large8", text.toString().getBytes(StandardCharsets.UTF_8));
+		assertSameTerms(utf8, StandardCharsets.UTF_8);
+		/*The buffers grew, a small document read after them is still read alone.*/
+		DocumentReader reader = new DocumentReader(StandardCharsets.UTF_8);
+		TermDictionary dictionary = new TermDictionary();
+		reader.read(utf8.getPath(), dictionary, false);
+		File small = write("small", "one two two".getBytes(StandardCharsets.UTF_8));
+		assertEquals(3, Document.read(small.getPath(), reader.read(small.getPath(), dictionary, false), dictionary).getLength());
+	}
+	@Test
+	public void testFields() throws IOException {
+		String text = ".T\nCats and \u00e9t\u00e9\n.A\nSmith, J.\n.W\nThe cat sat\n.B\nskipped\n";
+		File file = write("fields", text.getBytes(StandardCharsets.UTF_8));
+		Document[] expected = Document.readFields(file.getPath(), new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), new TermDictionary());
+		TermDictionary dictionary = new TermDictionary();
+		Document[] actual = Document.readFields(file.getPath(), new DocumentReader(StandardCharsets.UTF_8).read(file.getPath(), dictionary, true), dictionary);
+		for(int field=0; field < FieldIndex.FIELDS; field++)
+			assertEquals(expected[field].getMultiSet().count(), actual[field].getMultiSet().count());
+		assertEquals(3, actual[FieldIndex.TITLE].getLength());
+	}
+	@Test
+	public void testPackedCorpus() throws IOException {
+		write("doc0", "The cat sat on the mat.".getBytes(StandardCharsets.UTF_8));
+		write("doc1", new byte[0]);
+		write("doc2", "A dog and a cat, and another dog! \u00e9t\u00e9".getBytes(StandardCharsets.UTF_8));
+		write("doc3", "cat CAT Cat mat".getBytes(StandardCharsets.UTF_8));
+		File[] paths = DocCompare.listDocuments(data.getPath());
+		File packed = new File(folder, "corpus.pack");
+		PackedCorpus.write(paths, packed.getPath());
+		PackedCorpus corpus = new PackedCorpus(packed.getPath());
+		assertEquals(paths.length, corpus.getDocumentCount());
+		for(int doc=0; doc < paths.length; doc++) {
+			assertEquals(paths[doc].getPath(), corpus.getName(doc));
+			assertEquals(paths[doc].length(), corpus.getDocument(doc).remaining());
+		}
+		StopwordFilter stopwords = new StopwordFilter(new Document("stopwords", new java.io.StringReader("the a and"), null, new TermDictionary()).getMultiSet());
+		CorpusLoader files = new CorpusLoader(2, StandardCharsets.UTF_8), loaded = new CorpusLoader(2, StandardCharsets.UTF_8);
+		files.load(paths, stopwords);
+		loaded.load(corpus, stopwords);
+		for(int doc=0; doc < paths.length; doc++) {
+			Document expected = files.getDocuments()[doc], actual = loaded.getDocuments()[doc];
+			assertEquals(expected.getName(), actual.getName());
+			assertEquals(expected.getMultiSet().count(), actual.getMultiSet().count());
+			for(Term term : expected.getMultiSet())
+				assertEquals(expected.getMultiSet().count(term), actual.getMultiSet().count(term));
+		}
+	}
+	@Test
+	public void testQueriesAndStopwordsInCharset() throws IOException {
+		/*Nothing but the charset decodes UTF-16, so a query or stopword read in the platform charset matches nothing.*/
+		Charset charset = StandardCharsets.UTF_16BE;
+		write("doc0", "A cat sat on the mat".getBytes(charset));
+		write("doc1", "The stra\u00dfe and the caf\u00e9".getBytes(charset));
+		File stopwords = write(folder, "stopwords", "the caf\u00e9".getBytes(charset));
+		assertTrue(StopwordFilter.read(stopwords.getPath(), charset).contains("caf\u00e9"));
+		InvertedIndex index = new DocCompare(data.getPath(), stopwords.getPath(), 1, charset).getIndex();
+		assertTrue(index.findTerm("stra\u00dfe") >= 0);
+		assertTrue(index.findTerm("caf\u00e9") < 0);
+		File queries = new File(folder, "queries");
+		queries.mkdir();
+		File query = write(queries, "q1", "STRA\u00dfE".getBytes(charset));
+		try {
+			ByteArrayOutputStream run = new ByteArrayOutputStream();
+			new QueryBatch(index, 1, MaxScoreScorer.queryScorer(index), null, charset).run(queries.getPath(), 1, new PrintStream(run, true, "UTF-8"));
+			assertTrue(run.toString("UTF-8"), run.toString("UTF-8").startsWith("q1 Q0 doc1 1 "));
+		}
+		finally {
+			query.delete();
+			queries.delete();
+		}
+	}
+	@Test(expected = IOException.class)
+	public void testNotPacked() throws IOException {
+		new PackedCorpus(write("plain", "not a packed corpus at all".getBytes(StandardCharsets.UTF_8)).getPath());
+	}
+}
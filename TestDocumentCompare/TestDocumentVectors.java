@@ -0,0 +1,101 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.DocumentVectors;
+import DocumentCompare.Index;
+import DocumentCompare.IndexWriter;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+/** Checks scoring precomputed vectors agrees with scoring the index */
+public class TestDocumentVectors {
+	MemoryIndex index;
+	DocumentVectors vectors;
+	Random random;
+	public TestDocumentVectors(){}
+	@Before
+	public void setUp() throws IOException {
+		random = new Random(18);
+		String[] texts = new String[500];
+		for(int doc=0; doc < texts.length; doc++)
+			texts[doc] = doc % 53 == 0 ? "" : Corpora.text(random, random.nextInt(50), 300, 2);
+		index = Corpora.memoryIndex(texts);
+		vectors = new DocumentVectors(index);
+	}
+	private static void assertAgrees(double[] expected, double[] actual) {
+		assertEquals(expected.length, actual.length);
+		for(int doc=0; doc < expected.length; doc++)
+			assertEquals(expected[doc], actual[doc], DocumentVectors.TOLERANCE);
+	}
+	@Test
+	public void testRows() {
+		int[] terms = vectors.getTerms();
+		for(int doc=0; doc < vectors.getDocumentCount(); doc++) {
+			double magnitude = 0;
+			for(int x=vectors.getStart(doc); x < vectors.getEnd(doc); x++) {
+				if(x > vectors.getStart(doc))
+					assertTrue(terms[x - 1] < terms[x]);
+				magnitude += vectors.getWeights()[x] * (double) vectors.getWeights()[x];
+			}
+			assertEquals(Math.sqrt(index.getMagnitude(doc)), vectors.getNorm(doc), 1e-6 * vectors.getNorm(doc));
+			assertEquals(Math.sqrt(magnitude), vectors.getNorm(doc), 1e-6 * vectors.getNorm(doc));
+		}
+		assertEquals(vectors.getStart(53), vectors.getEnd(53));
+	}
+	@Test
+	public void testRandomQueries() throws IOException {
+		for(int x=0; x < 100; x++) {
+			MultiSet<Term> base = Corpora.query(Corpora.text(random, 1 + random.nextInt(30), 300, 2) + (x % 4 == 0 ? " unknown" : ""));
+			assertAgrees(new TermAtATimeScorer(index).score(base), vectors.score(base));
+			assertEquals(0, vectors.compare(base, DocumentVectors.TOLERANCE));
+		}
+	}
+	@Test
+	public void testDisjointQuery() throws IOException {
+		for(String text : new String[] {"nothing matches", ""})
+			assertAgrees(new TermAtATimeScorer(index).score(Corpora.query(text)), vectors.score(Corpora.query(text)));
+	}
+	@Test
+	public void testCompareFindsDifferences() throws IOException {
+		MultiSet<Term> base = Corpora.query("word1 word2 word3");
+		/*No tolerance at all catches the float rounding.*/
+		assertTrue(vectors.compare(base, 0) > 0);
+		assertEquals(0, vectors.compare(base, DocumentVectors.TOLERANCE));
+	}
+	@Test
+	public void testIndexFile() throws IOException {
+		File indexFile = File.createTempFile("vectors", ".idx");
+		try {
+			IndexWriter.write(index, indexFile.getPath());
+			DocumentVectors mapped = new DocumentVectors(new Index(indexFile.getPath()));
+			/*The index file numbers terms in byte order, so only the norms line up.*/
+			for(int doc=0; doc < vectors.getDocumentCount(); doc++)
+				assertEquals(vectors.getNorm(doc), mapped.getNorm(doc), 0);
+			MultiSet<Term> base = Corpora.query(Corpora.text(random, 20, 300, 2));
+			assertAgrees(new TermAtATimeScorer(index).score(base), mapped.score(base));
+		}
+		finally {
+			indexFile.delete();
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.DocumentVectors;
+import DocumentCompare.DotProduct;
+import DocumentCompare.ScalarDotProduct;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.util.Random;
+/** Checks the dot product kernels agree with each other */
+public class TestDotProduct {
+	Random random;
+	public TestDotProduct(){}
+	@Before
+	public void setUp() {
+		random = new Random(19);
+	}
+	@Test
+	public void testFastestKernel() {
+		/*make test starts the JVM with the Vector API, without it the scalar kernel is used.*/
+		boolean vectorApi = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+		assertEquals(vectorApi ? "VectorDotProduct" : "ScalarDotProduct", DocumentVectors.getFastestKernel().getClass().getSimpleName());
+	}
+	@Test
+	public void testKernelsAgree() {
+		DotProduct scalar = new ScalarDotProduct(), fastest = DocumentVectors.getFastestKernel();
+		float[] dense = new float[1000];
+		for(int term=0; term < dense.length; term += 1 + random.nextInt(4))
+			dense[term] = random.nextFloat();
+		/*Rows of every length around the lane counts and blocks, starting anywhere in the arrays.*/
+		for(int length=0; length < 600; length++) {
+			int start = random.nextInt(50), end = start + length;
+			int[] terms = new int[end + 10];
+			float[] weights = new float[end + 10];
+			for(int x=0; x < terms.length; x++) {
+				terms[x] = random.nextInt(dense.length);
+				weights[x] = random.nextFloat();
+			}
+			double expected = 0;
+			for(int x=start; x < end; x++)
+				expected += (double) dense[terms[x]] * weights[x];
+			assertEquals(expected, scalar.dot(dense, terms, weights, start, end), 1e-6 * (1 + expected));
+			assertEquals(expected, fastest.dot(dense, terms, weights, start, end), 1e-6 * (1 + expected));
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.Document;
+import DocumentCompare.FieldIndex;
+import DocumentCompare.InvertedIndex;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.TopKCollector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+/** Checks documents are split in to fields and the fields are searched separately */
+public class TestFieldIndex {
+	File directory;
+	File[] documentPaths;
+	Random random;
+	public TestFieldIndex(){}
+	@Before
+	public void setUp() throws IOException {
+		random = new Random(16);
+		directory = File.createTempFile("fields", "");
+		directory.delete();
+		directory.mkdir();
+		documentPaths = new File[300];
+		for(int doc=0; doc < documentPaths.length; doc++) {
+			documentPaths[doc] = new File(directory, String.format("%03d.txt", doc));
+			StringBuilder text = new StringBuilder();
+			text.append(".T\n").append(words("title", 1 + random.nextInt(8))).append('\n');
+			/*Some documents have no authors, as in the set.*/
+			if(doc % 7 != 0)
+				text.append(".A\n").append(words("name", 1 + random.nextInt(3))).append('\n');
+			text.append(".W\n").append(words("word", random.nextInt(60))).append('\n');
+			FileWriter writer = new FileWriter(documentPaths[doc]);
+			writer.write(text.toString());
+			writer.close();
+		}
+	}
+	@After
+	public void tearDown() {
+		for(File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+	private String words(String prefix, int count) {
+		StringBuilder text = new StringBuilder();
+		for(int x=0; x < count; x++) {
+			double uniform = random.nextDouble();
+			text.append(prefix).append((int) (uniform * uniform * 40)).append(x % 9 == 8 ? '\n' : ' ');
+		}
+		return text.toString();
+	}
+	private static MultiSet<Term> query(String text) throws IOException {
+		return FieldIndex.readQuery("query", new StringReader(text));
+	}
+	private static MultiSet<Term> terms(Document document) {
+		return document.getMultiSet();
+	}
+	@Test
+	public void testReadFields() throws IOException {
+		Document[] fields = Document.readFields("doc", new StringReader("before\n.T\nThe Title .W\n.A\nAn Author\n .W not\n.W\nbody .T\n.I 5\nskipped\n.W\nmore"), new TermDictionary());
+		MultiSet<Term> title = terms(fields[FieldIndex.TITLE]), author = terms(fields[FieldIndex.AUTHOR]), body = terms(fields[FieldIndex.BODY]);
+		/*Markers only start a field at the start of a line, anywhere else they are terms.*/
+		assertEquals(3, title.count());
+		assertEquals(1, title.count(new Term("w")));
+		assertEquals(4, author.count());
+		assertEquals(1, author.count(new Term("not")));
+		assertEquals(4, body.count());
+		assertEquals(1, body.count(new Term("before")));
+		assertEquals(1, body.count(new Term("t")));
+		assertEquals(0, body.count(new Term("skipped")));
+		assertEquals(0, body.count(new Term("5")));
+		/*The whole document still reads markers as terms.*/
+		assertEquals(4, terms(new Document("doc", new StringReader(".T\ntitle\n.W\nbody"), null, new TermDictionary())).count());
+	}
+	@Test
+	public void testParseWeights() {
+		assertArrayEquals(new double[] {2, 0, 1}, FieldIndex.parseWeights("T=2,W=1"), 0);
+		assertArrayEquals(new double[] {0, 0.5, 0}, FieldIndex.parseWeights("A=0.5"), 0);
+		for(String bad : new String[] {"T=0", "X=1", "T", "T=-1", "T=1,", "TA=1", "T=NaN"}) {
+			try {
+				FieldIndex.parseWeights(bad);
+				fail(bad);
+			}
+			catch (IllegalArgumentException e) {
+			}
+		}
+	}
+	@Test
+	public void testFieldsAreSeparateIndexes() throws IOException {
+		FieldIndex index = FieldIndex.load(documentPaths, null, 3);
+		/*Each field matches an index of documents holding only that section.*/
+		for(int field=0; field < FieldIndex.FIELDS; field++) {
+			TermDictionary dictionary = new TermDictionary();
+			Document[] documents = new Document[documentPaths.length];
+			for(int doc=0; doc < documents.length; doc++)
+				documents[doc] = Document.readFields(documentPaths[doc].getPath(), dictionary)[field];
+			MemoryIndex expected = Corpora.memoryIndex(documents, dictionary);
+			InvertedIndex actual = index.getField(field);
+			assertEquals(expected.getDocumentCount(), actual.getDocumentCount());
+			for(int doc=0; doc < documents.length; doc++) {
+				assertEquals(expected.getLength(doc), actual.getLength(doc));
+				assertEquals(expected.getMagnitude(doc), actual.getMagnitude(doc), 1e-15);
+			}
+		}
+		assertEquals(-1, index.getField(FieldIndex.TITLE).findTerm("word1"));
+		assertEquals(-1, index.getField(FieldIndex.BODY).findTerm("title1"));
+		assertEquals(-1, index.getField(FieldIndex.BODY).findTerm("w"));
+	}
+	@Test
+	public void testSingleField() throws IOException {
+		FieldIndex index = FieldIndex.load(documentPaths, null, 2);
+		double[] authors = {0, 1, 0};
+		for(String text : new String[] {"name1 name2", "name39", "title1 word2", "nothing"}) {
+			MultiSet<Term> base = query(text);
+			double[] expected = new TermAtATimeScorer(index.getField(FieldIndex.AUTHOR)).score(base);
+			double[] actual = index.score(base, authors);
+			for(int doc=0; doc < expected.length; doc++)
+				assertEquals(Double.isNaN(expected[doc]) ? 0 : expected[doc], actual[doc], 0);
+			for(int k : new int[] {1, 10, 300})
+				assertSameResults(actual, index.search(base, authors, k), k);
+		}
+	}
+	@Test
+	public void testWeightedFields() throws IOException {
+		FieldIndex index = FieldIndex.load(documentPaths, null, 1);
+		double[] weights = {2, 0.5, 1};
+		MultiSet<Term> base = query(".W\ntitle3 title1 name2 word1 word5\n.T\nword3");
+		double[][] fields = new double[FieldIndex.FIELDS][];
+		for(int field=0; field < FieldIndex.FIELDS; field++)
+			fields[field] = new TermAtATimeScorer(index.getField(field)).score(base);
+		double[] actual = index.score(base, weights);
+		for(int doc=0; doc < actual.length; doc++) {
+			double expected = 0;
+			for(int field=0; field < FieldIndex.FIELDS; field++)
+				if(!Double.isNaN(fields[field][doc]))
+					expected += weights[field] * fields[field][doc];
+			assertEquals(expected / 3.5, actual[doc], 1e-15);
+		}
+		assertSameResults(actual, index.search(base, weights, 10), 10);
+	}
+	@Test
+	public void testWriteAndOpen() throws IOException {
+		FieldIndex index = FieldIndex.load(documentPaths, null, 2);
+		String indexFile = new File(directory, "index").getPath();
+		index.write(indexFile);
+		FieldIndex opened = FieldIndex.open(indexFile);
+		MultiSet<Term> base = query("title2 name3 word4 word7");
+		for(double[] weights : new double[][] {{1, 0, 0}, {0, 0, 1}, {1, 1, 1}}) {
+			TopKCollector expected = index.search(base, weights, 20), actual = opened.search(base, weights, 20);
+			assertArrayEquals(expected.getDocuments(), actual.getDocuments());
+			assertArrayEquals(expected.getScores(), actual.getScores(), 1e-12);
+		}
+	}
+	private static void assertSameResults(double[] similarity, TopKCollector results, int k) {
+		TopKCollector expected = new TopKCollector(k);
+		for(int doc=0; doc < similarity.length; doc++)
+			expected.collect(doc, similarity[doc]);
+		assertArrayEquals(expected.getDocuments(), results.getDocuments());
+		assertArrayEquals(expected.getScores(), results.getScores(), 0);
+	}
+}
@@ -0,0 +1,114 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.DocCompare;
+import DocumentCompare.Index;
+import DocumentCompare.IndexBuilder;
+import DocumentCompare.IndexWriter;
+import DocumentCompare.InvertedIndex;
+import DocumentCompare.PostingsIterator;
+import DocumentCompare.StopwordFilter;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+/** Checks the streaming builder writes the same index as IndexWriter */
+public class TestIndexBuilder {
+	static final String[] WORDS = {"cat", "dog", "mat", "sat", "the", "another", "common", "here", "zebra", "a"};
+	File folder, data, stopwordsFile;
+	File[] documentPaths;
+	StopwordFilter stopwords;
+	InvertedIndex expected;
+	public TestIndexBuilder(){}
+	@Before
+	public void setUp() throws IOException {
+		folder = File.createTempFile("builder", "");
+		folder.delete();
+		folder.mkdir();
+		data = new File(folder, "data");
+		data.mkdir();
+		stopwordsFile = write(folder, "stopwords", "the a");
+		stopwords = StopwordFilter.read(stopwordsFile.getPath());
+		for(int doc=0; doc < 40; doc++) {
+			StringBuilder text = new StringBuilder();
+			for(int word=0; word < doc % 7 + 1; word++)
+				text.append(WORDS[(doc * 3 + word * word) % WORDS.length]).append(word % 2 == 0 ? " " : ", ");
+			write(data, "doc" + doc, text.toString());
+		}
+		write(data, "empty", "");
+		documentPaths = DocCompare.listDocuments(data.getPath());
+		File written = new File(folder, "written.idx");
+		IndexWriter.write(new DocCompare(data.getPath(), stopwordsFile.getPath(), 1).getIndex(), written.getPath());
+		expected = new Index(written.getPath());
+	}
+	@After
+	public void tearDown() {
+		for(File file : data.listFiles())
+			file.delete();
+		for(File file : folder.listFiles())
+			file.delete();
+		folder.delete();
+	}
+	private static File write(File directory, String name, String text) throws IOException {
+		File file = new File(directory, name);
+		FileWriter out = new FileWriter(file);
+		out.write(text);
+		out.close();
+		return file;
+	}
+	private void assertSameIndex(InvertedIndex index) {
+		assertEquals(expected.getDocumentCount(), index.getDocumentCount());
+		assertEquals(expected.getTermCount(), index.getTermCount());
+		for(int doc=0; doc < expected.getDocumentCount(); doc++) {
+			assertEquals(expected.getName(doc), index.getName(doc));
+			assertEquals(expected.getLength(doc), index.getLength(doc));
+			assertEquals(expected.getMagnitude(doc), index.getMagnitude(doc), 1e-12);
+		}
+		for(int term=0; term < expected.getTermCount(); term++) {
+			assertEquals(expected.getTerm(term), index.getTerm(term));
+			assertEquals(expected.getDocumentFrequency(term), index.getDocumentFrequency(term));
+			PostingsIterator expectedPostings = expected.getPostings(term), postings = index.getPostings(term);
+			while(expectedPostings.next()) {
+				assertTrue(postings.next());
+				assertEquals(expectedPostings.getDocument(), postings.getDocument());
+				assertEquals(expectedPostings.getCount(), postings.getCount());
+			}
+			assertFalse(postings.next());
+		}
+	}
+	private Index build(int threads, long memoryBudget) throws IOException {
+		File built = new File(folder, "built.idx");
+		new IndexBuilder(threads, memoryBudget).build(documentPaths, stopwords, built.getPath());
+		return new Index(built.getPath());
+	}
+	@Test
+	public void testWithoutSpilling() throws IOException {
+		assertSameIndex(build(1, 1L << 20));
+	}
+	@Test
+	public void testSpilling() throws IOException {
+		/*A posting per run, enough runs for several merge passes.*/
+		assertSameIndex(build(1, 1));
+		assertSameIndex(build(3, 1));
+	}
+	@Test
+	public void testRunsRemoved() throws IOException {
+		build(2, 64);
+		assertEquals(4, folder.list().length);
+	}
+}
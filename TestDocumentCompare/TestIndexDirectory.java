@@ -0,0 +1,166 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.DocCompare;
+import DocumentCompare.Document;
+import DocumentCompare.Index;
+import DocumentCompare.IndexDirectory;
+import DocumentCompare.InvertedIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.StopwordFilter;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+/** Checks that an updated index directory scores the same as an index built again */
+public class TestIndexDirectory {
+	File folder, data, indexFolder, stopwordsFile;
+	StopwordFilter stopwords;
+	public TestIndexDirectory(){}
+	@Before
+	public void setUp() throws IOException {
+		folder = File.createTempFile("segments", "");
+		folder.delete();
+		folder.mkdir();
+		data = new File(folder, "data");
+		data.mkdir();
+		indexFolder = new File(folder, "index");
+		stopwordsFile = write(folder, "stopwords", "the a and");
+		stopwords = StopwordFilter.read(stopwordsFile.getPath());
+		write(data, "doc0", "The cat sat on the mat.");
+		write(data, "doc1", "A dog and a cat, and another dog!");
+		write(data, "doc2", "Nothing in common here");
+		write(data, "doc3", "cat CAT Cat mat");
+	}
+	@After
+	public void tearDown() {
+		delete(folder);
+	}
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null)
+			for(File child : children)
+				delete(child);
+		file.delete();
+	}
+	private static File write(File directory, String name, String text) throws IOException {
+		File file = new File(directory, name);
+		FileWriter out = new FileWriter(file);
+		out.write(text);
+		out.close();
+		return file;
+	}
+	private void assertSameAsRebuild(InvertedIndex index) throws IOException {
+		InvertedIndex rebuilt = new DocCompare(data.getPath(), stopwordsFile.getPath(), 1).getIndex();
+		assertEquals(rebuilt.getDocumentCount(), index.getDocumentCount());
+		for(String text : new String[] {"cat and the dog", "mat zebra zebra", "another cat sat here"}) {
+			MultiSet<Term> query = new Document(write(folder, "query", text).getPath()).getMultiSet();
+			double[] expected = new TermAtATimeScorer(rebuilt).score(query);
+			double[] scores = new TermAtATimeScorer(index).score(query);
+			for(int doc=0; doc < expected.length; doc++) {
+				assertEquals(rebuilt.getName(doc), index.getName(doc));
+				assertEquals(expected[doc], scores[doc], 1e-12);
+			}
+		}
+	}
+	@Test
+	public void testFirstUpdate() throws IOException {
+		IndexDirectory directory = new IndexDirectory(indexFolder.getPath());
+		assertTrue(directory.update(data.getPath(), stopwords, 2));
+		assertFalse(directory.update(data.getPath(), stopwords, 2));
+		assertTrue(directory.open() instanceof Index);
+		assertSameAsRebuild(directory.open());
+	}
+	@Test
+	public void testChanges() throws IOException {
+		IndexDirectory directory = new IndexDirectory(indexFolder.getPath());
+		directory.update(data.getPath(), stopwords, 2);
+		write(data, "doc1", "A dog and a mat");
+		write(data, "doc4", "the dog sat");
+		new File(data, "doc2").delete();
+		assertTrue(directory.update(data.getPath(), stopwords, 2));
+		assertSameAsRebuild(directory.open());
+		/*Opened again by a different object, as a later query would.*/
+		assertSameAsRebuild(new IndexDirectory(indexFolder.getPath()).open());
+	}
+	@Test
+	public void testMerge() throws IOException {
+		IndexDirectory directory = new IndexDirectory(indexFolder.getPath());
+		directory.update(data.getPath(), stopwords, 1);
+		write(data, "doc5", "cat");
+		new File(data, "doc0").delete();
+		directory.update(data.getPath(), stopwords, 1);
+		directory.merge();
+		InvertedIndex index = directory.open();
+		assertTrue(index instanceof Index);
+		assertSameAsRebuild(index);
+		/*The merged segments stay for readers of the last manifest until the next commit.*/
+		assertEquals(3, indexFolder.list().length - 1);
+		write(data, "doc6", "dog");
+		directory.update(data.getPath(), stopwords, 1);
+		assertEquals(2, indexFolder.list().length - 1);
+		assertSameAsRebuild(directory.open());
+	}
+	@Test
+	public void testOpenWhileCommitting() throws Exception {
+		final IndexDirectory directory = new IndexDirectory(indexFolder.getPath());
+		directory.update(data.getPath(), stopwords, 1);
+		final Exception[] failure = new Exception[1];
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					for(int x=0; x < 40; x++) {
+						/*The size changes every time, so the update sees the change within the same second.*/
+						write(data, "doc" + (x % 4), x % 2 == 0 ? "dog dog" : "a cat");
+						directory.update(data.getPath(), stopwords, 1);
+						if(x % 3 == 0)
+							directory.merge();
+					}
+				}
+				catch (IOException e) {
+					failure[0] = e;
+				}
+			}
+		});
+		writer.start();
+		/*Another object, as another process would have, so open isn't held back by the writer.*/
+		IndexDirectory reader = new IndexDirectory(indexFolder.getPath());
+		while(writer.isAlive())
+			assertEquals(4, reader.open().getDocumentCount());
+		writer.join();
+		if(failure[0] != null)
+			throw failure[0];
+		assertSameAsRebuild(reader.open());
+	}
+	@Test
+	public void testEverythingRemoved() throws IOException {
+		IndexDirectory directory = new IndexDirectory(indexFolder.getPath());
+		directory.update(data.getPath(), stopwords, 1);
+		for(File file : data.listFiles())
+			file.delete();
+		assertTrue(directory.update(data.getPath(), stopwords, 1));
+		try {
+			directory.open();
+			fail("An empty index directory opened.");
+		}
+		catch (IOException e) {
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.IntMultiSet;
+import org.junit.*;
+import static org.junit.Assert.*;
+/** Simple unit test for an IntMultiSet, the same cases as TestMultiSet */
+public class TestIntMultiSet {
+	IntMultiSet testSet;
+	public TestIntMultiSet(){}
+	@BeforeClass
+	public static void setUpClass() throws Exception{}
+	@AfterClass
+	public static void tearDownClass() throws Exception{}
+	@Before
+	public void setUp() {
+		testSet = new IntMultiSet();
+	}
+	@After
+	public void tearDown(){}
+	@Test
+	public void testEmptySet() {
+		assertEquals(testSet.test(1), false);
+		assertEquals(testSet.count(1), 0);
+		assertEquals(testSet.count(), 0);
+	}
+	@Test
+	public void testSingleMembership() {
+		testSet.add(1);
+		assertEquals(testSet.test(1), true);
+		assertEquals(testSet.count(1), 1);
+		assertEquals(testSet.count(), 1);
+	}
+	@Test
+	public void testMultipleMembership() {
+		testSet.add(1);
+		testSet.add(1);
+		assertEquals(testSet.test(1), true);
+		assertEquals(testSet.count(1), 2);
+		assertEquals(testSet.count(), 2);
+	}
+	@Test
+	public void testVaryingMembership_single() {
+		testSet.add(1);
+		testSet.add(2);
+		assertEquals(testSet.test(1), true);
+		assertEquals(testSet.test(2), true);
+		assertEquals(testSet.count(1), 1);
+		assertEquals(testSet.count(2), 1);
+		assertEquals(testSet.count(), 2);
+	}
+	@Test
+	public void testVaryingMembership_multi() {
+		testSet.add(1);
+		testSet.add(1);
+		testSet.add(2);
+		assertEquals(testSet.test(1), true);
+		assertEquals(testSet.test(2), true);
+		assertEquals(testSet.count(1), 2);
+		assertEquals(testSet.count(2), 1);
+		assertEquals(testSet.count(), 3);
+	}
+	@Test
+	public void testRemoval_single() {
+		testSet.add(1);
+		testSet.remove(1);
+		assertEquals(testSet.test(1), false);
+		assertEquals(testSet.count(1), 0);
+		assertEquals(testSet.count(), 0);
+	}
+	@Test
+	public void testRemoval_multi() {
+		testSet.add(1);
+		testSet.add(1);
+		testSet.add(2);
+		testSet.remove(1);
+		assertEquals(testSet.test(1), true);
+		assertEquals(testSet.test(2), true);
+		assertEquals(testSet.count(1), 1);
+		assertEquals(testSet.count(2), 1);
+		assertEquals(testSet.count(), 2);
+	}
+	@Test
+	public void testManyEntries() {
+		testSet.add(1);
+		testSet.add(2);
+		testSet.add(3);
+		testSet.add(4);
+		testSet.add(5);
+		assertEquals(testSet.test(1), true);
+		assertEquals(testSet.test(2), true);
+		assertEquals(testSet.test(3), true);
+		assertEquals(testSet.test(4), true);
+		assertEquals(testSet.test(5), true);
+		assertEquals(testSet.count(), 5);
+	}
+	@Test
+	public void testGetSet() {
+		testSet.add(1);
+		testSet.add(1);
+		testSet.add(2);
+		testSet.add(4);
+		testSet.add(4);
+		testSet.add(4);
+		int[] singleSet = testSet.getSet();
+		assertEquals(testSet.count(1), 2);
+		assertEquals(testSet.count(2), 1);
+		assertEquals(testSet.count(4), 3);
+		assertEquals(testSet.count(), 6);
+		assertArrayEquals(singleSet, new int[] {1, 2, 4});
+		assertEquals(testSet.size(), 3);
+	}
+	@Test
+	public void testAddMultiSet() {
+		testSet.add(1);
+		IntMultiSet otherSet = new IntMultiSet();
+		otherSet.add(5);
+		otherSet.add(4);
+		otherSet.add(4);
+		testSet.add(otherSet);
+		IntMultiSet thirdSet = new IntMultiSet();
+		thirdSet.add(2);
+		thirdSet.add(1);
+		testSet.add(thirdSet);
+		assertEquals(testSet.count(1), 2);
+		assertEquals(testSet.count(5), 1);
+		assertEquals(testSet.count(4), 2);
+		assertEquals(testSet.count(2), 1);
+		assertEquals(testSet.count(), 6);
+	}
+	@Test
+	public void testSortedSet() {
+		testSet.add(40);
+		testSet.add(3);
+		testSet.add(3);
+		testSet.add(1000);
+		assertArrayEquals(testSet.getSet(), new int[] {3, 40, 1000});
+		assertArrayEquals(testSet.count(testSet.getSet()), new int[] {2, 1, 1});
+	}
+	@Test
+	public void testGrowAndRemove() {
+		for(int x=0; x < 1000; x++)
+			testSet.add(x * 16, x + 1);
+		for(int x=0; x < 1000; x += 2) {
+			for(int y=0; y <= x; y++)
+				testSet.remove(x * 16);
+		}
+		for(int x=0; x < 1000; x++)
+			assertEquals(testSet.count(x * 16), x % 2 == 0 ? 0 : x + 1);
+		assertEquals(testSet.size(), 500);
+	}
+}
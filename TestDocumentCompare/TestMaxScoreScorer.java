@@ -0,0 +1,93 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.Index;
+import DocumentCompare.IndexWriter;
+import DocumentCompare.InvertedIndex;
+import DocumentCompare.MaxScoreScorer;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import DocumentCompare.TopKCollector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+/** Checks the pruning scorer finds exactly what exhaustive scoring finds */
+public class TestMaxScoreScorer {
+	MemoryIndex index;
+	Random random;
+	public TestMaxScoreScorer(){}
+	@Before
+	public void setUp() throws IOException {
+		/*Skewed word frequencies, with repeated and empty documents for ties.*/
+		random = new Random(15);
+		String[] texts = new String[2000];
+		for(int doc=0; doc < texts.length; doc++)
+			texts[doc] = doc % 97 == 0 ? "" : doc % 89 == 0 ? "the same words" : Corpora.text(random, random.nextInt(40), 500, 3);
+		index = Corpora.memoryIndex(texts);
+	}
+	private static void assertSameResults(InvertedIndex index, MultiSet<Term> query, int k) {
+		TopKCollector expected = new TopKCollector(k), results = new TopKCollector(k);
+		new TermAtATimeScorer(index).score(query, expected);
+		new MaxScoreScorer(index).score(query, results);
+		assertArrayEquals(expected.getDocuments(), results.getDocuments());
+		assertArrayEquals(expected.getScores(), results.getScores(), 0);
+	}
+	@Test
+	public void testRandomQueries() throws IOException {
+		for(int x=0; x < 200; x++) {
+			MultiSet<Term> query = Corpora.query(Corpora.text(random, 1 + random.nextInt(30), 500, 3) + (x % 3 == 0 ? "unknown" : ""));
+			for(int k : new int[] {1, 10, 100})
+				assertSameResults(index, query, k);
+		}
+	}
+	@Test
+	public void testFewerMatchesThanK() throws IOException {
+		assertSameResults(index, Corpora.query("word499 the"), 50);
+		assertSameResults(index, Corpora.query("word1"), 2000);
+		assertSameResults(index, Corpora.query("word1 word2"), 5000);
+	}
+	@Test
+	public void testTies() throws IOException {
+		assertSameResults(index, Corpora.query("same"), 3);
+		assertSameResults(index, Corpora.query("the same words"), 10);
+	}
+	@Test
+	public void testDisjointQuery() throws IOException {
+		assertSameResults(index, Corpora.query("nothing matches"), 10);
+		assertSameResults(index, Corpora.query(""), 10);
+	}
+	@Test
+	public void testIndexFile() throws IOException {
+		File indexFile = File.createTempFile("maxscore", ".idx");
+		try {
+			IndexWriter.write(index, indexFile.getPath());
+			Index mapped = new Index(indexFile.getPath());
+			for(int term=0; term < index.getTermCount(); term++)
+				if(index.getDocumentFrequency(term) > 0)
+					assertEquals(index.getMaxWeight(term), mapped.getMaxWeight(mapped.findTerm(index.getTerm(term))), 0);
+			for(int x=0; x < 50; x++)
+				assertSameResults(mapped, Corpora.query(Corpora.text(random, 1 + random.nextInt(30), 500, 3)), 10);
+		}
+		finally {
+			indexFile.delete();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MinHashIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import DocumentCompare.TopKCollector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.util.Arrays;
+/** Checks MinHashIndex finds similar documents and scores them as TermAtATimeScorer does */
+public class TestMinHash {
+	static final String[] TEXTS = Arrays.copyOf(Corpora.TEXTS, Corpora.TEXTS.length + 1);
+	static {
+		TEXTS[Corpora.TEXTS.length] = "The Cat sat on the MAT and the dog sat too";
+	}
+	static final String[] QUERIES = {"cat and the dog", "mat zebra zebra", "Cat cat sat", "A dog and a cat, and another dog!"};
+	MemoryIndex index;
+	public TestMinHash(){}
+	@Before
+	public void setUp() throws IOException {
+		index = Corpora.memoryIndex(TEXTS);
+	}
+	@Test
+	public void testCandidatesAreScoredExactly() throws IOException {
+		MinHashIndex signatures = new MinHashIndex(index, 16, 1, 100);
+		for(String text : QUERIES) {
+			MultiSet<Term> base = Corpora.query(text);
+			double[] expected = new TermAtATimeScorer(index).score(base);
+			TopKCollector results = new TopKCollector(TEXTS.length);
+			signatures.score(base, results);
+			assertEquals(text, signatures.candidates(base).length, results.size());
+			for(int x=0; x < results.size(); x++)
+				assertEquals(text, Double.doubleToLongBits(expected[results.getDocuments()[x]]), Double.doubleToLongBits(results.getScores()[x]));
+		}
+	}
+	@Test
+	public void testDocumentIsItsOwnCandidate() throws IOException {
+		MinHashIndex signatures = new MinHashIndex(index, 1, 4, 100);
+		for(int doc=0; doc < TEXTS.length; doc++) {
+			if(TEXTS[doc].isEmpty())
+				continue;
+			int[] candidates = signatures.candidates(Corpora.query(TEXTS[doc]));
+			assertTrue(TEXTS[doc], Arrays.binarySearch(candidates, doc) >= 0);
+		}
+	}
+	@Test
+	public void testManyBandsFindEverySharedTerm() throws IOException {
+		/*A document sharing one of two terms agrees on half the entries, 256 bands miss it with a chance of 2^-256.*/
+		MinHashIndex signatures = new MinHashIndex(index, 256, 1, 100);
+		assertArrayEquals(new int[] {0, 1, 3, 5, 6}, signatures.candidates(Corpora.query("cat dog")));
+	}
+	@Test
+	public void testDisjointQueryHasNoCandidates() throws IOException {
+		MinHashIndex signatures = new MinHashIndex(index);
+		assertEquals(0, signatures.candidates(Corpora.query("zebra")).length);
+		assertEquals(0, signatures.candidates(Corpora.query("")).length);
+		TopKCollector results = new TopKCollector(3);
+		signatures.score(Corpora.query("zebra"), results);
+		assertEquals(0, results.size());
+	}
+	@Test
+	public void testCommonTermsAreNotSigned() throws IOException {
+		/*cat is in four documents and dog in three, mat in three.*/
+		MinHashIndex signatures = new MinHashIndex(index, 256, 1, 3);
+		assertArrayEquals(new int[] {1, 5, 6}, signatures.candidates(Corpora.query("cat dog")));
+		assertEquals(0, signatures.candidates(Corpora.query("cat")).length);
+	}
+	@Test
+	public void testParseSettings() {
+		assertArrayEquals(new int[] {32, 2, MinHashIndex.COMMON}, MinHashIndex.parseSettings("32,2"));
+		assertArrayEquals(new int[] {64, 1, 500}, MinHashIndex.parseSettings("64,1,500"));
+		for(String settings : new String[] {"32", "32,0", "0,1", "a,1", "32,1,0", "32,1,2,3", ""}) {
+			try {
+				MinHashIndex.parseSettings(settings);
+				fail(settings);
+			}
+			catch (IllegalArgumentException e) {}
+		}
+	}
+	@Test(expected=IllegalArgumentException.class)
+	public void testNoBands() {
+		new MinHashIndex(index, 0, 1, 100);
+	}
+}
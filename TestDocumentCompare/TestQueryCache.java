@@ -0,0 +1,133 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.BM25Similarity;
+import DocumentCompare.ImpactIndex;
+import DocumentCompare.IndexDirectory;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.QueryCache;
+import DocumentCompare.QueryServer;
+import DocumentCompare.TermAtATimeScorer;
+import DocumentCompare.TopKCollector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+/** Checks cached results are the results of scoring and are dropped when the index changes */
+public class TestQueryCache {
+	MemoryIndex index;
+	public TestQueryCache(){}
+	@Before
+	public void setUp() throws IOException {
+		index = Corpora.memoryIndex("the cat sat on the mat", "a dog and a cat", "nothing in common", "cat cat mat", "dog days");
+	}
+	@Test
+	public void testNormalizedQueriesHit() throws IOException {
+		QueryCache cache = new QueryCache(10);
+		TopKCollector first = cache.search(index, 0, Corpora.query("Cat, mat! cat"), 3);
+		assertSame(first, cache.search(index, 0, Corpora.query("mat cat   CAT."), 3));
+		assertSame(first, cache.search(index, 0, Corpora.query("cat\nmat cat"), 3));
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		/*Different counts or k are different queries.*/
+		assertNotSame(first, cache.search(index, 0, Corpora.query("cat mat"), 3));
+		assertNotSame(first, cache.search(index, 0, Corpora.query("cat mat cat"), 4));
+		assertEquals(3, cache.getMisses());
+		TopKCollector expected = new TopKCollector(3);
+		new TermAtATimeScorer(index).score(Corpora.query("cat mat cat"), expected);
+		assertArrayEquals(expected.getDocuments(), first.getDocuments());
+		assertArrayEquals(expected.getScores(), first.getScores(), 0);
+	}
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws IOException {
+		QueryCache cache = new QueryCache(2);
+		cache.search(index, 0, Corpora.query("cat"), 2);
+		cache.search(index, 0, Corpora.query("dog"), 2);
+		cache.search(index, 0, Corpora.query("cat"), 2);
+		cache.search(index, 0, Corpora.query("mat"), 2);
+		assertEquals(2, cache.size());
+		cache.search(index, 0, Corpora.query("cat"), 2);
+		assertEquals(2, cache.getHits());
+		cache.search(index, 0, Corpora.query("dog"), 2);
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+	}
+	@Test
+	public void testNewGenerationInvalidates() throws IOException {
+		QueryCache cache = new QueryCache(10);
+		TopKCollector first = cache.search(index, 1, Corpora.query("cat"), 2);
+		assertSame(first, cache.search(index, 1, Corpora.query("cat"), 2));
+		assertNotSame(first, cache.search(index, 2, Corpora.query("cat"), 2));
+		assertEquals(1, cache.size());
+		/*An older generation is scored but not kept.*/
+		cache.search(index, 1, Corpora.query("dog"), 2);
+		cache.search(index, 1, Corpora.query("dog"), 2);
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getHits());
+		cache.invalidate();
+		assertEquals(0, cache.size());
+	}
+	@Test
+	public void testOtherScorer() throws IOException {
+		ImpactIndex impacts = new ImpactIndex(index, new BM25Similarity());
+		QueryCache cache = new QueryCache(10);
+		TopKCollector first = cache.search(impacts, 0, Corpora.query("dog cat"), 3);
+		assertSame(first, cache.search(impacts, 0, Corpora.query("cat dog"), 3));
+		TopKCollector expected = new TopKCollector(3);
+		impacts.score(Corpora.query("dog cat"), expected);
+		assertArrayEquals(expected.getDocuments(), first.getDocuments());
+		assertArrayEquals(expected.getScores(), first.getScores(), 0);
+	}
+	@Test
+	public void testServerSeesUpdates() throws IOException {
+		File folder = File.createTempFile("cache", "");
+		folder.delete();
+		File data = new File(folder, "data"), indexFolder = new File(folder, "index");
+		data.mkdirs();
+		try {
+			write(new File(data, "doc0"), "cat sat");
+			write(new File(data, "doc1"), "dog");
+			IndexDirectory directory = new IndexDirectory(indexFolder.getPath());
+			directory.update(data.getPath(), null, 1);
+			QueryCache cache = new QueryCache(10);
+			QueryServer server = new QueryServer(directory, 10, cache);
+			String before = server.answer("cat");
+			assertEquals(before, server.answer("CAT"));
+			assertEquals(1, cache.getHits());
+			write(new File(data, "doc2"), "cat cat cat");
+			directory.update(data.getPath(), null, 1);
+			String after = server.answer("cat");
+			assertTrue(after, after.contains("doc2"));
+			assertEquals(1, cache.getHits());
+			assertEquals("hits 1\nmisses 2\nentries 1\n", server.answer("-stats"));
+		}
+		finally {
+			for(File file : new File[] {data, indexFolder}) {
+				for(File child : file.listFiles())
+					child.delete();
+				file.delete();
+			}
+			folder.delete();
+		}
+	}
+	private static void write(File file, String text) throws IOException {
+		FileWriter out = new FileWriter(file);
+		out.write(text);
+		out.close();
+	}
+}
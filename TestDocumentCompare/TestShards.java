@@ -0,0 +1,202 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.Document;
+import DocumentCompare.GlobalFrequencies;
+import DocumentCompare.Index;
+import DocumentCompare.MaxScoreScorer;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.PostingsIterator;
+import DocumentCompare.ShardCoordinator;
+import DocumentCompare.ShardIndex;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.TopKCollector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+/** Checks a corpus split in to shards scores every document as the whole corpus does */
+public class TestShards {
+	static final String[] QUERIES = {"cat mat", "the dog sat on the mat", "zebra fish", "Cat CAT bird", "nothing matches", ""};
+	static final int SHARDS = 3;
+	MemoryIndex index;
+	public TestShards(){}
+	@Before
+	public void setUp() throws IOException {
+		String[] words = {"cat", "mat", "dog", "sat", "the", "on", "fish", "bird", "tree", "rock"};
+		Random random = new Random(23);
+		TermDictionary dictionary = new TermDictionary();
+		Document[] documents = new Document[40];
+		for(int doc=0; doc < documents.length; doc++) {
+			StringBuilder text = new StringBuilder();
+			/*An empty document, a term in one document and repeated documents that tie.*/
+			if(doc == 7)
+				text.append("zebra cat");
+			else if(doc % 10 == 3)
+				text.append("cat mat mat");
+			else if(doc != 11)
+				for(int word = random.nextInt(8); word >= 0; word--)
+					text.append(words[random.nextInt(words.length)]).append(' ');
+			documents[doc] = new Document(String.format("doc%02d", doc), new StringReader(text.toString()), null, dictionary);
+		}
+		index = Corpora.memoryIndex(documents, dictionary);
+	}
+	@Test
+	public void testShardsPartitionCorpus() {
+		int[] shardOf = new int[index.getDocumentCount()];
+		Arrays.fill(shardOf, -1);
+		int[] documentFrequencies = new int[index.getTermCount()];
+		for(int shard=0; shard < SHARDS; shard++) {
+			ShardIndex part = new ShardIndex(index, shard, SHARDS);
+			int[] corpus = part.getCorpusDocuments();
+			assertEquals(corpus.length, part.getDocumentCount());
+			for(int doc=0; doc < corpus.length; doc++) {
+				assertEquals(-1, shardOf[corpus[doc]]);
+				assertEquals(shard, ShardIndex.shardOf(corpus[doc], SHARDS));
+				shardOf[corpus[doc]] = shard;
+				assertEquals(index.getName(corpus[doc]), part.getName(doc));
+				assertEquals(index.getMagnitude(corpus[doc]), part.getMagnitude(doc), 0);
+			}
+			for(int term=0; term < index.getTermCount(); term++) {
+				int count = 0;
+				PostingsIterator postings = part.getPostings(term);
+				while(postings.next()) {
+					assertEquals(shard, shardOf[corpus[postings.getDocument()]]);
+					count++;
+				}
+				assertEquals(count, part.getDocumentFrequency(term));
+				assertEquals(count > 0 ? term : -1, part.findTerm(index.getTerm(term)));
+				documentFrequencies[term] += count;
+				/*Advancing finds the same postings as stepping through them.*/
+				for(int target=0; target <= corpus.length; target++) {
+					PostingsIterator stepped = part.getPostings(term), advanced = part.getPostings(term);
+					boolean more;
+					while((more = stepped.next()) && stepped.getDocument() < target);
+					assertEquals(more, advanced.advance(target));
+					if(more)
+						assertEquals(stepped.getDocument(), advanced.getDocument());
+				}
+			}
+		}
+		for(int doc=0; doc < shardOf.length; doc++)
+			assertTrue(shardOf[doc] >= 0);
+		for(int term=0; term < index.getTermCount(); term++)
+			assertEquals(index.getDocumentFrequency(term), documentFrequencies[term]);
+	}
+	@Test
+	public void testGlobalFrequenciesScoreAsWhole() throws IOException {
+		ShardIndex[] parts = new ShardIndex[SHARDS];
+		for(int shard=0; shard < SHARDS; shard++)
+			parts[shard] = new ShardIndex(index, shard, SHARDS);
+		for(String text : QUERIES) {
+			MultiSet<Term> base = Corpora.query(text);
+			TopKCollector whole = new TopKCollector(index.getDocumentCount());
+			new TermAtATimeScorer(index).score(base, whole);
+			Map<String, Double> expected = new HashMap<String, Double>();
+			for(int x=0; x < whole.size(); x++)
+				expected.put(index.getName(whole.getDocuments()[x]), whole.getScores()[x]);
+			/*The frequencies a coordinator adds up from the shards.*/
+			Map<String, Integer> frequencies = new HashMap<String, Integer>();
+			for(Term word : base) {
+				String value = word.getValue().toLowerCase();
+				int sum = 0;
+				for(ShardIndex part : parts) {
+					int term = part.findTerm(value);
+					sum += term >= 0 ? part.getDocumentFrequency(term) : 0;
+				}
+				if(sum > 0)
+					frequencies.put(value, sum);
+			}
+			int scored = 0;
+			for(ShardIndex part : parts) {
+				TopKCollector results = new TopKCollector(part.getDocumentCount());
+				new MaxScoreScorer(new GlobalFrequencies(part, frequencies)).score(base, results);
+				for(int x=0; x < results.size(); x++) {
+					String name = part.getName(results.getDocuments()[x]);
+					assertEquals(text + " " + name, expected.get(name), results.getScores()[x], 0);
+					scored++;
+				}
+			}
+			assertEquals(index.getDocumentCount(), scored);
+		}
+	}
+	@Test
+	public void testCoordinatorMatchesIndex() throws IOException {
+		File folder = File.createTempFile("shards", "");
+		folder.delete();
+		folder.mkdirs();
+		String prefix = new File(folder, "index").getPath();
+		try {
+			ShardIndex.write(index, SHARDS, prefix);
+			String[] files = ShardIndex.shardFiles(prefix);
+			assertEquals(SHARDS, files.length);
+			ShardCoordinator coordinator = ShardCoordinator.launch(files);
+			try {
+				assertEquals(SHARDS, coordinator.getShardCount());
+				for(String text : QUERIES) {
+					for(int k : new int[] {1, 5, 40}) {
+						TopKCollector results = new TopKCollector(k);
+						new TermAtATimeScorer(index).score(Corpora.query(text), results);
+						StringBuilder expected = new StringBuilder();
+						for(int x=0; x < results.size(); x++)
+							expected.append(index.getName(results.getDocuments()[x])).append(" : ").append(results.getScores()[x]).append('\n');
+						assertEquals(text, expected.toString(), coordinator.search(text, k));
+					}
+				}
+			}
+			finally {
+				coordinator.close();
+			}
+		}
+		finally {
+			for(File file : folder.listFiles())
+				file.delete();
+			folder.delete();
+		}
+	}
+	@Test
+	public void testRewriteWithFewerShards() throws IOException {
+		File folder = File.createTempFile("shards", "");
+		folder.delete();
+		folder.mkdirs();
+		String prefix = new File(folder, "index").getPath();
+		try {
+			ShardIndex.write(index, SHARDS + 2, prefix);
+			assertEquals(SHARDS + 2, ShardIndex.shardFiles(prefix).length);
+			ShardIndex.write(index, 2, prefix);
+			String[] files = ShardIndex.shardFiles(prefix);
+			assertEquals(2, files.length);
+			int documents = 0;
+			for(String file : files)
+				documents += new Index(file).getDocumentCount();
+			assertEquals(index.getDocumentCount(), documents);
+		}
+		finally {
+			for(File file : folder.listFiles())
+				file.delete();
+			folder.delete();
+		}
+	}
+}
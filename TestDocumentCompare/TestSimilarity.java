@@ -0,0 +1,98 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.BM25Similarity;
+import DocumentCompare.CosineSimilarity;
+import DocumentCompare.Document;
+import DocumentCompare.DocumentVectors;
+import DocumentCompare.ImpactIndex;
+import DocumentCompare.LogCosineSimilarity;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Similarity;
+import DocumentCompare.Term;
+import DocumentCompare.TermAtATimeScorer;
+import DocumentCompare.TermDictionary;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.IOException;
+/** Checks the scoring models score an ImpactIndex as Document.setCosineSimilarity scores each document */
+public class TestSimilarity {
+	static final String[] QUERIES = {"cat and the dog", "mat zebra zebra", "zebra", "A dog and a cat, and another dog!"};
+	Document[] documents;
+	MemoryIndex index;
+	MultiSet<Term> documentFrequencyList;
+	double averageLength;
+	public TestSimilarity(){}
+	@Before
+	public void setUp() throws IOException {
+		TermDictionary dictionary = new TermDictionary();
+		documents = Corpora.documents(dictionary, Corpora.TEXTS);
+		documentFrequencyList = new MultiSet<Term>();
+		for(Document document : documents)
+			documentFrequencyList.add(document.getMultiSet().getSet());
+		index = Corpora.memoryIndex(documents, dictionary);
+		for(int doc=0; doc < index.getDocumentCount(); doc++)
+			averageLength += index.getLength(doc);
+		averageLength /= index.getDocumentCount();
+	}
+	private void assertSameScores(Similarity similarity) throws IOException {
+		ImpactIndex impacts = new ImpactIndex(index, similarity);
+		for(String text : QUERIES) {
+			MultiSet<Term> base = Corpora.query(text);
+			double[] scores = impacts.score(base);
+			boolean disjoint = text.equals("zebra");
+			for(int x=0; x < documents.length; x++) {
+				documents[x].setCosineSimilarity(base, documentFrequencyList, similarity, documents.length, averageLength);
+				double expected = documents[x].getCosineSimilarity();
+				/*The empty document is NaN once the query shares a term with the corpus, as in TermAtATimeScorer.*/
+				if(similarity.isNormalized() && index.getLength(x) == 0 && !disjoint)
+					expected = Double.NaN;
+				assertEquals(text + " doc" + x, expected, scores[x], DocumentVectors.TOLERANCE * Math.max(1, Math.abs(expected)));
+			}
+		}
+	}
+	@Test
+	public void testCosine() throws IOException {
+		assertSameScores(new CosineSimilarity());
+		/*The default model is the one the scorers use.*/
+		for(String text : QUERIES) {
+			double[] expected = new TermAtATimeScorer(index).score(Corpora.query(text));
+			double[] scores = new ImpactIndex(index, new CosineSimilarity()).score(Corpora.query(text));
+			for(int x=0; x < expected.length; x++)
+				assertEquals(text, expected[x], scores[x], DocumentVectors.TOLERANCE);
+		}
+	}
+	@Test
+	public void testLogCosine() throws IOException {
+		assertSameScores(new LogCosineSimilarity());
+	}
+	@Test
+	public void testBM25() throws IOException {
+		assertSameScores(new BM25Similarity());
+		/*dog is in 2 of the 6 documents, twice in doc1.*/
+		double inverseDocumentFrequency = Math.log(1 + (6 - 2 + 0.5) / (2 + 0.5));
+		double expected = inverseDocumentFrequency * 2 * 2.2 / (2 + 1.2 * (0.25 + 0.75 * index.getLength(1) / averageLength));
+		assertEquals(expected, new ImpactIndex(index, new BM25Similarity()).score(Corpora.query("dog"))[1], 1e-6);
+		/*With k1 = 0 only whether a document has the term counts.*/
+		assertEquals(inverseDocumentFrequency, new BM25Similarity(0, 0).documentWeight(2, index.getLength(1), 2, 6, averageLength), 1e-12);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadParameters() {
+		new BM25Similarity(1.2, 2);
+	}
+}
@@ -0,0 +1,120 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.Document;
+import DocumentCompare.LatencyHistogram;
+import DocumentCompare.MemoryIndex;
+import DocumentCompare.Statistics;
+import DocumentCompare.StopwordFilter;
+import DocumentCompare.TermDictionary;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.StringReader;
+/** Checks the histograms and counters of Statistics, and that nothing is recorded while it is off */
+public class TestStatistics {
+	public TestStatistics(){}
+	@Before
+	public void setUp() {
+		Statistics.clear();
+	}
+	@After
+	public void tearDown() {
+		Statistics.enable(false);
+		Statistics.clear();
+	}
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int value=1; value <= 20; value++)
+			histogram.record(value);
+		assertEquals(20, histogram.getCount());
+		assertEquals(210, histogram.getTotal());
+		assertEquals(10, histogram.getPercentile(50));
+		assertEquals(18, histogram.getPercentile(90));
+		assertEquals(20, histogram.getPercentile(100));
+		assertEquals(20, histogram.getMax());
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(50));
+	}
+	@Test
+	public void testLargeValuesAreClose() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		long[] values = {100, 1000, 12345, 999999, 123456789L, Long.MAX_VALUE};
+		for(long value : values) {
+			histogram.reset();
+			histogram.record(value);
+			histogram.record(value / 2);
+			long percentile = histogram.getPercentile(50);
+			assertTrue(value + " " + percentile, percentile >= value / 2 && percentile <= value / 2 + value / 32);
+			assertEquals(value, histogram.getPercentile(100));
+		}
+	}
+	@Test
+	public void testBucketsCoverEveryValue() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(long value=0; value < 100000; value++) {
+			/*The median of a value and a larger one is the highest value of the smaller one's bucket.*/
+			histogram.reset();
+			histogram.record(value);
+			histogram.record(Long.MAX_VALUE);
+			long percentile = histogram.getPercentile(50);
+			assertTrue(value + " " + percentile, percentile >= value && percentile <= value + value / 16);
+		}
+	}
+	@Test
+	public void testDisabledRecordsNothing() throws IOException {
+		Statistics.enable(false);
+		assertEquals(0, Statistics.start());
+		new Document("doc", new StringReader("a b, c ..."), null, new TermDictionary());
+		Statistics.add(Statistics.DOCUMENTS, 1);
+		Statistics.query(5);
+		Statistics.stop(Statistics.SCORE, Statistics.start(), Statistics.allocated());
+		assertEquals(0, Statistics.get(Statistics.WORDS));
+		assertEquals(0, Statistics.get(Statistics.DOCUMENTS));
+		assertEquals(0, Statistics.get(Statistics.QUERIES));
+		assertEquals(0, Statistics.getLatencies(Statistics.SCORE).getCount());
+	}
+	@Test
+	public void testWordsAreCounted() throws IOException {
+		TermDictionary dictionary = new TermDictionary(new StopwordFilter(new Document("stopwords", new StringReader("the a"), null, new TermDictionary()).getMultiSet()));
+		Statistics.enable(true);
+		Document document = new Document("doc", new StringReader("The cat, a -- hat!\n... sat"), null, dictionary);
+		assertEquals(3, document.getLength());
+		assertEquals(7, Statistics.get(Statistics.WORDS));
+		assertEquals(2, Statistics.get(Statistics.STOPWORDS));
+		assertEquals(2, Statistics.get(Statistics.PUNCTUATION));
+	}
+	@Test
+	public void testPhasesAndQueries() throws IOException {
+		Statistics.enable(true);
+		MemoryIndex index = Corpora.memoryIndex("the cat sat", "a dog", "cat cat mat");
+		assertEquals(1, Statistics.getLatencies(Statistics.INVERT).getCount());
+		Statistics.query(4);
+		Statistics.query(2);
+		assertEquals(2, Statistics.get(Statistics.QUERIES));
+		assertEquals(6, Statistics.get(Statistics.POSTINGS));
+		assertEquals(4, Statistics.getPostingsPerQuery().getMax());
+		String json = Statistics.toJson();
+		assertTrue(json, json.contains("\"words\": 8"));
+		assertTrue(json, json.contains("\"queries\": 2"));
+		assertTrue(json, json.contains("\"invert\": {\"count\": 1,"));
+		assertTrue(json, json.contains("\"postingsPerQuery\": {\"count\": 2, \"total\": 6"));
+		assertEquals(3, index.getDocumentCount());
+	}
+}
@@ -0,0 +1,105 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.Document;
+import DocumentCompare.MultiSet;
+import DocumentCompare.StopwordFilter;
+import DocumentCompare.Term;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.Tokenizer;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+/** Checks the compiled stopwords against the stopwords multiset */
+public class TestStopwordFilter {
+	static final String STOPWORDS = "The a AND it's\nof, of";
+	static final String TEXT = "The cat and a dog, it's THE end of its tale and\nthe";
+	public TestStopwordFilter(){}
+	private List<Term> tokenize(String text, StopwordFilter filter) throws IOException {
+		List<Term> result = new ArrayList<Term>();
+		Tokenizer words = new Tokenizer(new StringReader(text), new TermDictionary(filter));
+		while(words.next() != -1)
+			result.add(words.getTerm());
+		return result;
+	}
+	@Test
+	public void testContains() throws IOException {
+		StopwordFilter filter = StopwordFilter.parse(new StringReader(STOPWORDS));
+		assertEquals(5, filter.size());
+		assertTrue(filter.contains("the"));
+		assertTrue(filter.contains("its"));
+		assertTrue(filter.contains("and"));
+		assertFalse(filter.contains("The"));
+		assertFalse(filter.contains("cat"));
+		assertFalse(filter.contains(""));
+		assertFalse(new StopwordFilter(new String[0]).contains("the"));
+	}
+	@Test
+	public void testTokenizerSkips() throws IOException {
+		List<Term> terms = tokenize(TEXT, StopwordFilter.parse(new StringReader(STOPWORDS)));
+		assertEquals(4, terms.size());
+		assertEquals(new Term("cat"), terms.get(0));
+		assertEquals(new Term("dog"), terms.get(1));
+		assertEquals(new Term("end"), terms.get(2));
+		assertEquals(new Term("tale"), terms.get(3));
+		assertEquals(0, tokenize("the and", StopwordFilter.parse(new StringReader(STOPWORDS))).size());
+	}
+	@Test
+	public void testSameAsMultiSet() throws IOException {
+		File stopwordsFile = File.createTempFile("stopwords", ".txt"), textFile = File.createTempFile("text", ".txt");
+		try {
+			FileWriter out = new FileWriter(stopwordsFile);
+			out.write(STOPWORDS);
+			out.close();
+			out = new FileWriter(textFile);
+			out.write(TEXT);
+			out.close();
+			MultiSet<Term> stopwords = new Document(stopwordsFile.getPath()).getMultiSet();
+			MultiSet<Term> expected = new Document(textFile.getPath(), stopwords).getMultiSet();
+			MultiSet<Term> filtered = new Document(textFile.getPath(), null, new TermDictionary(StopwordFilter.read(stopwordsFile.getPath()))).getMultiSet();
+			MultiSet<Term> converted = new Document(textFile.getPath(), null, new TermDictionary(new StopwordFilter(stopwords))).getMultiSet();
+			assertEquals(expected.count(), filtered.count());
+			assertEquals(expected.count(), converted.count());
+			for(Term word : expected) {
+				assertEquals(expected.count(word), filtered.count(word));
+				assertEquals(expected.count(word), converted.count(word));
+			}
+		}
+		finally {
+			stopwordsFile.delete();
+			textFile.delete();
+		}
+	}
+	@Test
+	public void testCompiledFile() throws IOException {
+		File filterFile = File.createTempFile("stopwords", ".bin");
+		try {
+			StopwordFilter.parse(new StringReader(STOPWORDS)).write(filterFile.getPath());
+			StopwordFilter filter = StopwordFilter.read(filterFile.getPath());
+			assertEquals(5, filter.size());
+			assertEquals(tokenize(TEXT, StopwordFilter.parse(new StringReader(STOPWORDS))), tokenize(TEXT, filter));
+		}
+		finally {
+			filterFile.delete();
+		}
+	}
+}
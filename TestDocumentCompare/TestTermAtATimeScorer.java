@@ -0,0 +1,88 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.Document;
+import DocumentCompare.MultiSet;
+import DocumentCompare.Term;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.TermAtATimeScorer;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+/** Checks the term at a time scorer against Document.setCosineSimilarity */
+public class TestTermAtATimeScorer {
+	static final String[] TEXTS = {
+		"The cat sat on the mat.",
+		"A dog and a cat, and another dog!",
+		"Nothing in common here",
+		"cat CAT Cat mat",
+		"",
+		"dog"
+	};
+	File folder;
+	Document[] documents;
+	TermDictionary dictionary;
+	MultiSet<Term> documentFrequencyList;
+	public TestTermAtATimeScorer(){}
+	@Before
+	public void setUp() throws IOException {
+		folder = File.createTempFile("scorer", "");
+		folder.delete();
+		folder.mkdir();
+		documents = new Document[TEXTS.length];
+		dictionary = new TermDictionary();
+		documentFrequencyList = new MultiSet<Term>();
+		for(int x=0; x < TEXTS.length; x++) {
+			documents[x] = new Document(write("doc" + x, TEXTS[x]), null, dictionary);
+			documentFrequencyList.add(documents[x].getMultiSet().getSet());
+		}
+	}
+	@After
+	public void tearDown() {
+		for(File file : folder.listFiles())
+			file.delete();
+		folder.delete();
+	}
+	private String write(String name, String text) throws IOException {
+		File file = new File(folder, name);
+		FileWriter out = new FileWriter(file);
+		out.write(text);
+		out.close();
+		return file.getPath();
+	}
+	private void assertSameScores(MultiSet<Term> query) {
+		double[] scores = new TermAtATimeScorer(Corpora.memoryIndex(documents, dictionary)).score(query);
+		for(int x=0; x < documents.length; x++) {
+			documents[x].setCosineSimilarity(query, documentFrequencyList);
+			assertEquals(documents[x].getCosineSimilarity(), scores[x], 1e-12);
+		}
+	}
+	@Test
+	public void testSharedTerms() throws IOException {
+		assertSameScores(new Document(write("query", "cat and the dog")).getMultiSet());
+	}
+	@Test
+	public void testUnknownTerms() throws IOException {
+		assertSameScores(new Document(write("query", "mat zebra zebra")).getMultiSet());
+	}
+	@Test
+	public void testDocumentAsQuery() throws IOException {
+		assertSameScores(documents[1].getMultiSet());
+	}
+}
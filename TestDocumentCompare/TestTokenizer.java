@@ -0,0 +1,94 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.Term;
+import DocumentCompare.TermDictionary;
+import DocumentCompare.Tokenizer;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+/** Checks the tokenizer against splitting lines and making Terms */
+public class TestTokenizer {
+	TermDictionary dictionary;
+	public TestTokenizer(){}
+	@Before
+	public void setUp() {
+		dictionary = new TermDictionary();
+	}
+	private List<Term> split(String text) throws IOException {
+		List<Term> result = new ArrayList<Term>();
+		BufferedReader lines = new BufferedReader(new StringReader(text));
+		String fullLine;
+		while((fullLine=lines.readLine()) != null) {
+			for(String word : fullLine.split(" ")) {
+				Term newTerm = new Term(word);
+				if(newTerm.getValue() != null)
+					result.add(newTerm);
+			}
+		}
+		return result;
+	}
+	private List<Term> tokenize(String text) throws IOException {
+		List<Term> result = new ArrayList<Term>();
+		Tokenizer words = new Tokenizer(new StringReader(text), dictionary);
+		while(words.next() != -1)
+			result.add(words.getTerm());
+		return result;
+	}
+	private void assertSameTerms(String text) throws IOException {
+		List<Term> expected = split(text), actual = tokenize(text);
+		assertEquals(expected.size(), actual.size());
+		for(int x=0; x < expected.size(); x++)
+			assertEquals(expected.get(x), actual.get(x));
+	}
+	@Test
+	public void testPlain() throws IOException {
+		assertSameTerms("the quick brown fox");
+	}
+	@Test
+	public void testPunctuation() throws IOException {
+		assertSameTerms("it's (a) test... - of, punc.t! -- \"quotes\" ~ {}");
+	}
+	@Test
+	public void testWhitespace() throws IOException {
+		assertSameTerms("  double  spaces\ttabs\r\nwindows\rmac\n\nblank\n");
+	}
+	@Test
+	public void testCase() throws IOException {
+		List<Term> terms = tokenize("Cat CAT cat");
+		assertEquals(terms.get(0), terms.get(2));
+		assertSame(terms.get(0), terms.get(1));
+		assertEquals(dictionary.size(), 1);
+		assertEquals(dictionary.find("cat"), 0);
+	}
+	@Test
+	public void testUnicode() throws IOException {
+		assertSameTerms("Caf\u00c9 caf\u00e9 \u00dcber-\u00fcber na\u00efve");
+		assertEquals(dictionary.find("caf\u00e9"), 0);
+	}
+	@Test
+	public void testLongWord() throws IOException {
+		StringBuilder word = new StringBuilder();
+		for(int x=0; x < 10000; x++)
+			word.append((char) ('a' + x % 26));
+		assertSameTerms(word + " " + word);
+	}
+}
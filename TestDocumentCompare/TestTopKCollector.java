@@ -0,0 +1,102 @@
+/** This is a source file belonging to the DocumentCompare project.
+ * Copyright (C) 2012 Lorne Schell <orange.toaster@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package TestDocumentCompare;
+import DocumentCompare.TopKCollector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.util.Random;
+/** Simple unit test for the top k collector */
+public class TestTopKCollector {
+	TopKCollector testCollector;
+	public TestTopKCollector(){}
+	@Before
+	public void setUp() {
+		testCollector = new TopKCollector(3);
+	}
+	@Test
+	public void testEmpty() {
+		assertEquals(testCollector.size(), 0);
+		assertEquals(testCollector.getDocuments().length, 0);
+	}
+	@Test
+	public void testFewerThanK() {
+		testCollector.collect(0, 0.5);
+		testCollector.collect(1, 0.7);
+		assertArrayEquals(testCollector.getDocuments(), new int[] {1, 0});
+		assertArrayEquals(testCollector.getScores(), new double[] {0.7, 0.5}, 0);
+	}
+	@Test
+	public void testKeepsBest() {
+		double[] scores = {0.1, 0.9, 0.3, 0.8, 0.2, 0.7};
+		for(int doc=0; doc < scores.length; doc++)
+			testCollector.collect(doc, scores[doc]);
+		assertArrayEquals(testCollector.getDocuments(), new int[] {1, 3, 5});
+	}
+	@Test
+	public void testTiesKeepDocumentOrder() {
+		testCollector.collect(4, 0.5);
+		testCollector.collect(2, 0.5);
+		testCollector.collect(3, 0.5);
+		testCollector.collect(1, 0.5);
+		assertArrayEquals(testCollector.getDocuments(), new int[] {1, 2, 3});
+	}
+	@Test
+	public void testNaNLast() {
+		testCollector.collect(0, Double.NaN);
+		testCollector.collect(1, 0);
+		testCollector.collect(2, Double.NaN);
+		testCollector.collect(3, 0.2);
+		assertArrayEquals(testCollector.getDocuments(), new int[] {3, 1, 0});
+	}
+	@Test
+	public void testConcurrentMatchesSort() throws InterruptedException {
+		final double[] scores = new double[10000];
+		Random random = new Random(7);
+		for(int doc=0; doc < scores.length; doc++)
+			scores[doc] = random.nextInt(1000) / 1000.0;
+		final TopKCollector shared = new TopKCollector(25);
+		Thread[] threads = new Thread[4];
+		for(int t=0; t < threads.length; t++) {
+			final int first = t;
+			threads[t] = new Thread() {
+				public void run() {
+					for(int doc=first; doc < scores.length; doc += 4)
+						shared.collect(doc, scores[doc]);
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread thread : threads)
+			thread.join();
+		TopKCollector merged = new TopKCollector(25), half = new TopKCollector(25);
+		for(int doc=0; doc < scores.length; doc++)
+			(doc % 2 == 0 ? merged : half).collect(doc, scores[doc]);
+		merged.merge(half);
+		int[] expected = new int[25];
+		boolean[] taken = new boolean[scores.length];
+		for(int x=0; x < expected.length; x++) {
+			int best = -1;
+			for(int doc=0; doc < scores.length; doc++)
+				if(!taken[doc] && (best == -1 || scores[doc] > scores[best]))
+					best = doc;
+			taken[best] = true;
+			expected[x] = best;
+		}
+		assertArrayEquals(shared.getDocuments(), expected);
+		assertArrayEquals(merged.getDocuments(), expected);
+	}
+}